@@ -1,19 +1,21 @@
 package com.algotrade.bot.controller;
 
+import com.algotrade.bot.model.AlertStatus;
 import com.algotrade.bot.model.Scrip;
 import com.algotrade.bot.model.TradingViewAlert;
+import com.algotrade.bot.services.AlertNotificationService;
+import com.algotrade.bot.services.AlertOrderService;
 import com.algotrade.bot.services.AlertService;
-import com.algotrade.bot.services.AngelOneService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.algotrade.bot.services.AutoExecutionService;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
 
 @Controller
@@ -21,53 +23,50 @@ import java.util.*;
 public class AlertWebController {
 
     private final AlertService alertService;
-    private final AngelOneService angelOneService;
+    private final AlertOrderService alertOrderService;
+    private final AutoExecutionService autoExecutionService;
+    private final AlertNotificationService notificationService;
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final File stateFile = new File("alerts_state.json");
+    private static final String LAST_SEQ_ATTR = "lastAlertSeq";
+    private static final int MAX_DELTA = 500;
 
-    // persisted flag
-    private boolean stopAlerts = false;
-
-    public AlertWebController(AlertService alertService, AngelOneService angelOneService) {
+    public AlertWebController(AlertService alertService, AlertOrderService alertOrderService,
+                              AutoExecutionService autoExecutionService,
+                              AlertNotificationService notificationService) {
         this.alertService = alertService;
-        this.angelOneService = angelOneService;
-        loadStopAlertsState();
+        this.alertOrderService = alertOrderService;
+        this.autoExecutionService = autoExecutionService;
+        this.notificationService = notificationService;
     }
 
-    private void loadStopAlertsState() {
-        try {
-            if (stateFile.exists()) {
-                Map<String, Boolean> state = mapper.readValue(stateFile, new TypeReference<>() {});
-                stopAlerts = state.getOrDefault("stopAlerts", false);
+    @GetMapping("/today")
+    public String listAlerts(@RequestParam(value = "range", required = false, defaultValue = "today") String range,
+                             Model model, HttpSession session) {
+        // read before the alerts, so one stored in between is streamed rather than missed
+        long lastSeq = alertService.getLastSeq();
+        List<TradingViewAlert> alerts;
+        long unprocessed;
+        switch (range) {
+            case "7days" -> alerts = alertService.getRecentAlerts(7);
+            case "all" -> alerts = alertService.getAllAlerts();
+            default -> {
+                range = "today";
+                alerts = alertService.getTodaysAlerts();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-            stopAlerts = false;
         }
-    }
-
-    private void saveStopAlertsState() {
-        try {
-            mapper.writeValue(stateFile, Map.of("stopAlerts", stopAlerts));
-        } catch (IOException e) {
-            e.printStackTrace();
+        if ("today".equals(range)) {
+            unprocessed = alertService.getTodaysAlerts("NEW").size();
+        } else {
+            unprocessed = alerts.stream().filter(a -> a.getAlertStatus() == AlertStatus.NEW).count();
         }
-    }
-
-    @GetMapping("/today")
-    public String listAlerts(Model model, HttpSession session) {
-        List<TradingViewAlert> alerts = alertService.getTodaysAlerts();
         model.addAttribute("alerts", alerts);
-        model.addAttribute("stopAlerts", stopAlerts);
-
-        @SuppressWarnings("unchecked")
-        Set<String> seen = (Set<String>) session.getAttribute("seenAlerts");
-        if (seen == null) {
-            seen = new HashSet<>();
-            for (TradingViewAlert a : alerts) if (a.getId() != null) seen.add(a.getId());
-            session.setAttribute("seenAlerts", seen);
-        }
+        model.addAttribute("range", range);
+        model.addAttribute("unprocessed", unprocessed);
+        model.addAttribute("stopAlerts", notificationService.isStopAlerts());
+        model.addAttribute("lastSeq", lastSeq);
+
+        // everything up to here is on the page; /alerts/stream?after= and /alerts/new continue from this seq
+        session.setAttribute(LAST_SEQ_ATTR, lastSeq);
         return "alerts";
     }
 
@@ -78,75 +77,44 @@ public class AlertWebController {
             redirectAttributes.addFlashAttribute("orderError", "Alert not found");
             return "redirect:/alerts/today";
         }
+        String jwt = (String) session.getAttribute("jwtToken");
+        String clientCode = (String) session.getAttribute("clientCode");
+        if (jwt == null || clientCode == null) {
+            redirectAttributes.addFlashAttribute("orderError", "Not logged in.");
+            return "redirect:/alerts/today";
+        }
+        // only a NEW alert can be accepted, and only once: auto-execution claims it the same way
+        if (alertService.claim(id, AlertStatus.NEW, AlertStatus.PLACING).isEmpty()) {
+            redirectAttributes.addFlashAttribute("orderError",
+                    "Alert is already " + opt.get().getStatus() + " for " + opt.get().getTicker());
+            return "redirect:/alerts/today";
+        }
         TradingViewAlert alert = opt.get();
 
         try {
-            String jwt = (String) session.getAttribute("jwtToken");
-            String clientCode = (String) session.getAttribute("clientCode");
-            if (jwt == null || clientCode == null) throw new RuntimeException("Not logged in.");
-
-            String symboltoken = alert.getSymboltoken();
-            String tradingsymbol = Optional.ofNullable(alert.getTicker()).orElse("").toUpperCase();
-
-            Map<String, String> manualMap = Map.of("RELIANCE", "RELIANCE-EQ");
-            if (manualMap.containsKey(tradingsymbol)) tradingsymbol = manualMap.get(tradingsymbol);
-
-            if (symboltoken == null || symboltoken.isBlank()) {
-                try {
-                    Scrip s = angelOneService.searchScrip(session, "NSE", tradingsymbol);
-                    if (s != null) {
-                        symboltoken = s.getSymboltoken();
-                        tradingsymbol = s.getTradingsymbol();
-                    }
-                } catch (Exception ex) {
-                    try {
-                        List<Map<String, Object>> results = angelOneService.searchScrip(session, tradingsymbol);
-                        if (results != null && !results.isEmpty() && results.get(0).get("symboltoken") != null) {
-                            symboltoken = results.get(0).get("symboltoken").toString();
-                            if (results.get(0).get("tradingsymbol") != null)
-                                tradingsymbol = results.get(0).get("tradingsymbol").toString();
-                        }
-                    } catch (Exception ignored) {}
-                }
-            }
-
-            if (symboltoken == null || symboltoken.isBlank()) {
+            Scrip scrip = alertOrderService.resolveSymbol(session, alert);
+            if (scrip == null) {
                 String msg = "Symbol not found for ticker: " + alert.getTicker();
-                alert.setStatus("FAILED");
+                alert.setAlertStatus(AlertStatus.FAILED);
                 alert.setErrorMessage(msg);
                 alertService.update(alert);
                 redirectAttributes.addFlashAttribute("orderError", msg);
-                markSeenInSession(session, alert.getId());
                 return "redirect:/alerts/today";
             }
 
-            Map<String, Object> order = new HashMap<>();
-            order.put("variety", "NORMAL");
-            order.put("tradingsymbol", tradingsymbol);
-            order.put("symboltoken", symboltoken);
-            order.put("transactiontype", Optional.ofNullable(alert.getAction()).orElse("BUY").toUpperCase());
-            order.put("exchange", Optional.ofNullable(alert.getExchange()).orElse("NSE"));
-            order.put("ordertype", "MARKET");
-            order.put("producttype", "INTRADAY");
-            order.put("duration", "DAY");
-            order.put("price", "0");
-            order.put("quantity", String.valueOf(Math.max(alert.getQuantity(), 1)));
-            order.put("clientcode", clientCode);
-
-            Map<String, Object> result = angelOneService.placeOrder(session, order);
-
-            alert.setStatus("ACCEPTED");
+            Map<String, Object> order = alertOrderService.buildOrder(alert, scrip, clientCode);
+            Map<String, Object> result = alertOrderService.placeOrder(session, order);
+
+            alert.setAlertStatus(AlertStatus.ACCEPTED);
             alert.setOrderResult(result);
             alertService.update(alert);
 
-            markSeenInSession(session, alert.getId());
             redirectAttributes.addFlashAttribute("orderResult", "Order accepted for " + alert.getTicker());
 
         } catch (Exception e) {
-            alert.setStatus("FAILED");
+            alert.setAlertStatus(AlertStatus.FAILED);
             alert.setErrorMessage(e.getMessage());
             alertService.update(alert);
-            markSeenInSession(session, alert.getId());
             redirectAttributes.addFlashAttribute("orderError", e.getMessage());
         }
 
@@ -155,58 +123,86 @@ public class AlertWebController {
 
     @PostMapping("/{id}/reject")
     public String rejectAlert(@PathVariable String id, HttpSession session, RedirectAttributes redirectAttributes) {
-        Optional<TradingViewAlert> opt = alertService.findById(id);
-        opt.ifPresent(alert -> {
-            alert.setStatus("REJECTED");
-            alertService.update(alert);
-            markSeenInSession(session, alert.getId());
-            redirectAttributes.addFlashAttribute("message", "Alert rejected for " + alert.getTicker());
-        });
+        // a queued alert can still be stopped; one already being placed cannot
+        Optional<TradingViewAlert> opt = alertService.claim(id, AlertStatus.NEW, AlertStatus.REJECTED)
+                .or(() -> alertService.claim(id, AlertStatus.QUEUED, AlertStatus.REJECTED));
+        if (opt.isPresent()) {
+            redirectAttributes.addFlashAttribute("message", "Alert rejected for " + opt.get().getTicker());
+        } else {
+            alertService.findById(id).ifPresent(alert -> redirectAttributes.addFlashAttribute("orderError",
+                    "Alert is already " + alert.getStatus() + " for " + alert.getTicker()));
+        }
         return "redirect:/alerts/today";
     }
 
-    private void markSeenInSession(HttpSession session, String alertId) {
-        if (alertId == null) return;
-        @SuppressWarnings("unchecked")
-        Set<String> seen = (Set<String>) session.getAttribute("seenAlerts");
-        if (seen == null) {
-            seen = new HashSet<>();
-            session.setAttribute("seenAlerts", seen);
+    @PostMapping("/ajax/toggle")
+    @ResponseBody
+    public Map<String, Object> toggleAlertsAjax() {
+        return Map.of("stopAlerts", notificationService.toggleStopAlerts());
+    }
+
+    /**
+     * Arm auto-execution with this login: new alerts are placed as orders without a click.
+     */
+    @PostMapping("/auto/arm")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> armAutoExecution(HttpSession session) {
+        try {
+            autoExecutionService.arm(session);
+            return ResponseEntity.ok(autoExecutionService.stats());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-        seen.add(alertId);
     }
 
-    @PostMapping("/ajax/toggle")
+    @PostMapping("/auto/disarm")
     @ResponseBody
-    public Map<String, Object> toggleAlertsAjax() {
-        stopAlerts = !stopAlerts;
-        saveStopAlertsState();
-        return Map.of("stopAlerts", stopAlerts);
+    public Map<String, Object> disarmAutoExecution() {
+        autoExecutionService.disarm();
+        return autoExecutionService.stats();
+    }
+
+    @GetMapping("/auto")
+    @ResponseBody
+    public Map<String, Object> autoExecutionStats() {
+        return autoExecutionService.stats();
+    }
+
+    // push channel for new alerts; replaces polling /alerts/new. The page passes the seq it was
+    // rendered at as ?after=, since a first connect has no Last-Event-ID; a reconnect's header wins
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamAlerts(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                   @RequestParam(value = "after", required = false) Long after) {
+        return notificationService.subscribe(lastEventId != null ? lastEventId : after);
     }
 
     @GetMapping("/new")
     @ResponseBody
     public List<TradingViewAlert> getNewAlerts(HttpSession session) {
-        if (stopAlerts) return Collections.emptyList();
-
-        List<TradingViewAlert> alerts = alertService.getTodaysAlerts();
-        @SuppressWarnings("unchecked")
-        Set<String> seen = (Set<String>) session.getAttribute("seenAlerts");
-        if (seen == null) {
-            seen = new HashSet<>();
-            for (TradingViewAlert a : alerts) if (a.getId() != null) seen.add(a.getId());
-            session.setAttribute("seenAlerts", seen);
+        if (notificationService.isStopAlerts()) return Collections.emptyList();
+
+        Long lastSeq = (Long) session.getAttribute(LAST_SEQ_ATTR);
+        if (lastSeq == null) {
+            session.setAttribute(LAST_SEQ_ATTR, alertService.getLastSeq());
             return Collections.emptyList();
         }
 
-        List<TradingViewAlert> newAlerts = new ArrayList<>();
-        for (TradingViewAlert a : alerts) {
-            if (a.getId() == null) continue;
-            if (!seen.contains(a.getId())) {
-                newAlerts.add(a);
-                seen.add(a.getId());
-            }
-        }
+        List<TradingViewAlert> newAlerts = alertService.getAlertsAfter(lastSeq, MAX_DELTA);
+        if (!newAlerts.isEmpty()) session.setAttribute(LAST_SEQ_ATTR, newAlerts.get(newAlerts.size() - 1).getSeq());
         return newAlerts;
     }
+
+    /**
+     * Delta API: alerts stored after {@code seq}, oldest first. Clients keep the returned
+     * {@code lastSeq} and pass it on the next call.
+     */
+    @GetMapping("/since")
+    @ResponseBody
+    public Map<String, Object> getAlertsSince(@RequestParam(value = "seq", defaultValue = "0") long seq,
+                                              @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        List<TradingViewAlert> alerts = alertService.getAlertsAfter(seq, Math.max(1, Math.min(limit, MAX_DELTA)));
+        long lastSeq = alerts.isEmpty() ? seq : alerts.get(alerts.size() - 1).getSeq();
+        return Map.of("lastSeq", lastSeq, "alerts", alerts);
+    }
 }
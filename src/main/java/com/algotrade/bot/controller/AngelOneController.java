@@ -1,10 +1,23 @@
 package com.algotrade.bot.controller;
 
+import com.algotrade.bot.model.Bar;
+import com.algotrade.bot.model.Instrument;
 import com.algotrade.bot.services.AngelOneService;
+import com.algotrade.bot.services.BarAggregator;
+import com.algotrade.bot.services.InstrumentMasterService;
+import com.algotrade.bot.services.MarketDataStore;
+import com.algotrade.bot.services.QuoteService;
+import com.algotrade.bot.services.SmartStreamClient;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -12,9 +25,24 @@ import java.util.Map;
 public class AngelOneController {
 
     private final AngelOneService angelOneService;
+    private final QuoteService quoteService;
+    private final SmartStreamClient stream;
+    private final InstrumentMasterService instruments;
+    private final BarAggregator bars;
+    private final MarketDataStore history;
+    private final Duration dashboardTimeout;
 
-    public AngelOneController(AngelOneService angelOneService) {
+    public AngelOneController(AngelOneService angelOneService, QuoteService quoteService,
+                              SmartStreamClient stream, InstrumentMasterService instruments, BarAggregator bars,
+                              MarketDataStore history,
+                              @Value("${angel.dashboard.timeout-ms:8000}") long dashboardTimeoutMs) {
         this.angelOneService = angelOneService;
+        this.quoteService = quoteService;
+        this.stream = stream;
+        this.instruments = instruments;
+        this.bars = bars;
+        this.history = history;
+        this.dashboardTimeout = Duration.ofMillis(dashboardTimeoutMs);
     }
 
     @GetMapping("/profile")
@@ -27,6 +55,119 @@ public class AngelOneController {
         }
     }
 
+    /**
+     * Profile, RMS, order book, trade book and holdings in one response, fetched in parallel.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> dashboard(HttpSession session) {
+        try {
+            return ResponseEntity.ok(angelOneService.getDashboard(session, dashboardTimeout));
+        } catch (Exception e) {
+            return ResponseEntity.status(401).body("Failed to get dashboard: " + e.getMessage());
+        }
+    }
+
+    /**
+     * LTP for a comma-separated list of symbols (or tokens) on one exchange, batched and cached.
+     */
+    @GetMapping("/ltp")
+    public ResponseEntity<?> ltp(HttpSession session,
+                                 @RequestParam("symbols") String symbols,
+                                 @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange) {
+        if (session.getAttribute("jwtToken") == null) return ResponseEntity.status(401).body("Not authenticated. Please login.");
+        List<String> list = Arrays.stream(symbols.split(",")).map(String::trim).filter(s -> !s.isEmpty()).distinct().toList();
+        return ResponseEntity.ok(quoteService.ltp(session, exchange, list));
+    }
+
+    /**
+     * Open the tick feed for the logged-in client.
+     */
+    @PostMapping("/stream/start")
+    public ResponseEntity<?> startStream(HttpSession session) {
+        try {
+            stream.start((String) session.getAttribute("clientCode"));
+            return ResponseEntity.ok(stream.stats());
+        } catch (Exception e) {
+            return ResponseEntity.status(401).body("Failed to start stream: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/stream/stop")
+    public ResponseEntity<?> stopStream() {
+        stream.stop();
+        return ResponseEntity.ok(stream.stats());
+    }
+
+    /**
+     * Add (or with {@code remove=true}, drop) a comma-separated list of symbols or tokens on one
+     * exchange to the streamed set.
+     */
+    @PostMapping("/stream/subscribe")
+    public ResponseEntity<?> subscribe(@RequestParam("symbols") String symbols,
+                                       @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange,
+                                       @RequestParam(value = "remove", required = false, defaultValue = "false") boolean remove) {
+        List<String> tokens = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String symbol : symbols.split(",")) {
+            String s = symbol.trim();
+            if (s.isEmpty()) continue;
+            String token = s.chars().allMatch(Character::isDigit) ? s
+                    : instruments.find(exchange, s).map(Instrument::symboltoken).orElse(null);
+            if (token == null) unknown.add(s);
+            else tokens.add(token);
+        }
+        try {
+            if (remove) stream.unsubscribe(exchange, tokens);
+            else stream.subscribe(exchange, tokens);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(Map.of("subscriptions", stream.subscriptions(), "unknown", unknown));
+    }
+
+    /**
+     * The forming and the last closed bar of one streamed symbol (or token) at one interval.
+     */
+    @GetMapping("/bars")
+    public ResponseEntity<?> bars(@RequestParam("symbol") String symbol,
+                                  @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange,
+                                  @RequestParam(value = "interval", required = false, defaultValue = "1") int interval) {
+        String token = symbol.chars().allMatch(Character::isDigit) ? symbol
+                : instruments.find(exchange, symbol).map(Instrument::symboltoken).orElse(null);
+        if (token == null) return ResponseEntity.badRequest().body("Unknown symbol " + symbol);
+        try {
+            int type = SmartStreamClient.exchangeType(exchange);
+            Map<String, Object> out = new LinkedHashMap<>();
+            Bar current = bars.current(type, Long.parseLong(token), interval);
+            Bar last = bars.lastClosed(type, Long.parseLong(token), interval);
+            out.put("current", current);
+            out.put("lastClosed", last);
+            return ResponseEntity.ok(out);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Stored bars of one symbol (or token) at one interval over the last {@code days} days.
+     */
+    @GetMapping("/bars/history")
+    public ResponseEntity<?> barHistory(@RequestParam("symbol") String symbol,
+                                        @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange,
+                                        @RequestParam(value = "interval", required = false, defaultValue = "1") int interval,
+                                        @RequestParam(value = "days", required = false, defaultValue = "1") int days) {
+        String token = symbol.chars().allMatch(Character::isDigit) ? symbol
+                : instruments.find(exchange, symbol).map(Instrument::symboltoken).orElse(null);
+        if (token == null) return ResponseEntity.badRequest().body("Unknown symbol " + symbol);
+        try {
+            long now = System.currentTimeMillis();
+            long from = now - Math.max(1, Math.min(days, 366)) * 86_400_000L;
+            return ResponseEntity.ok(history.bars(SmartStreamClient.exchangeType(exchange), Long.parseLong(token), interval, from, now));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping("/placeSampleOrder")
     public ResponseEntity<?> placeOrder(HttpSession session) {
         try {
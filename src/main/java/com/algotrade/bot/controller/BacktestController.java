@@ -0,0 +1,53 @@
+package com.algotrade.bot.controller;
+
+import com.algotrade.bot.services.Backtester;
+import com.algotrade.bot.services.EmaCrossStrategy;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/backtest")
+public class BacktestController {
+
+    private static final long DAY = 86_400_000L;
+
+    private final Backtester backtester;
+
+    public BacktestController(Backtester backtester) {
+        this.backtester = backtester;
+    }
+
+    /**
+     * Replay the alerts of the last {@code days} days as if every one had been accepted.
+     */
+    @PostMapping("/alerts")
+    public ResponseEntity<?> alerts(@RequestParam(value = "days", required = false, defaultValue = "30") int days) {
+        long now = System.currentTimeMillis();
+        return ResponseEntity.ok(backtester.replayAlerts(now - Math.max(1, days) * DAY, now));
+    }
+
+    /**
+     * Run the EMA cross strategy over the stored bars of a comma-separated list of symbols.
+     */
+    @PostMapping("/ema-cross")
+    public ResponseEntity<?> emaCross(@RequestParam("symbols") String symbols,
+                                      @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange,
+                                      @RequestParam(value = "interval", required = false, defaultValue = "5") int interval,
+                                      @RequestParam(value = "fast", required = false, defaultValue = "9") int fast,
+                                      @RequestParam(value = "slow", required = false, defaultValue = "21") int slow,
+                                      @RequestParam(value = "rsi", required = false, defaultValue = "14") int rsi,
+                                      @RequestParam(value = "qty", required = false, defaultValue = "1") int qty,
+                                      @RequestParam(value = "days", required = false, defaultValue = "30") int days) {
+        List<String> list = Arrays.stream(symbols.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        long now = System.currentTimeMillis();
+        try {
+            return ResponseEntity.ok(backtester.replayStrategy(new EmaCrossStrategy(interval, fast, slow, rsi), exchange,
+                    list, qty, now - Math.max(1, days) * DAY, now));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.algotrade.bot.controller;
+
+import com.algotrade.bot.services.AngelOneService;
+import com.algotrade.bot.services.BarAggregator;
+import com.algotrade.bot.services.LatencyMetrics;
+import com.algotrade.bot.services.MarketDataStore;
+import com.algotrade.bot.services.QuoteService;
+import com.algotrade.bot.services.SmartStreamClient;
+import com.algotrade.bot.services.StrategyEngine;
+import com.algotrade.bot.services.TickBus;
+import com.algotrade.bot.services.TokenVault;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final LatencyMetrics latencyMetrics;
+    private final QuoteService quoteService;
+    private final AngelOneService angelOneService;
+    private final TokenVault tokenVault;
+    private final SmartStreamClient stream;
+    private final TickBus tickBus;
+    private final BarAggregator bars;
+    private final StrategyEngine strategies;
+    private final MarketDataStore history;
+
+    public MetricsController(LatencyMetrics latencyMetrics, QuoteService quoteService,
+                             AngelOneService angelOneService, TokenVault tokenVault,
+                             SmartStreamClient stream, TickBus tickBus, BarAggregator bars,
+                             StrategyEngine strategies, MarketDataStore history) {
+        this.latencyMetrics = latencyMetrics;
+        this.quoteService = quoteService;
+        this.angelOneService = angelOneService;
+        this.tokenVault = tokenVault;
+        this.stream = stream;
+        this.tickBus = tickBus;
+        this.bars = bars;
+        this.strategies = strategies;
+        this.history = history;
+    }
+
+    /**
+     * p50/p99/p999 per alert stage and per broker endpoint, in milliseconds.
+     */
+    @GetMapping("/latency")
+    public Map<String, Object> latency() {
+        return latencyMetrics.snapshot();
+    }
+
+    /**
+     * Quote requests served from cache, coalesced onto an in-flight call, or fetched.
+     */
+    @GetMapping("/quotes")
+    public Map<String, Object> quotes() {
+        return quoteService.stats();
+    }
+
+    /**
+     * Hits and misses of the cached account reads (books, holdings, profile, RMS).
+     */
+    @GetMapping("/broker-cache")
+    public Map<String, Object> brokerCache() {
+        return angelOneService.cacheStats();
+    }
+
+    /**
+     * JWT expiry per logged-in client (no token values).
+     */
+    @GetMapping("/tokens")
+    public Map<String, Object> tokens() {
+        return tokenVault.stats();
+    }
+
+    /**
+     * Tick feed connection state, ticks decoded and reconnects.
+     */
+    @GetMapping("/stream")
+    public Map<String, Object> stream() {
+        return stream.stats();
+    }
+
+    /**
+     * Tick ring: published count, producer waits, and lag and drops per consumer.
+     */
+    @GetMapping("/ticks")
+    public Map<String, Object> ticks() {
+        return tickBus.stats();
+    }
+
+    /**
+     * Symbols and intervals being aggregated, bars closed and late ticks.
+     */
+    @GetMapping("/bars")
+    public Map<String, Object> bars() {
+        return bars.stats();
+    }
+
+    /**
+     * Running strategies, bars and ticks evaluated, and signals turned into alerts.
+     */
+    @GetMapping("/strategies")
+    public Map<String, Object> strategies() {
+        return strategies.stats();
+    }
+
+    /**
+     * Ticks and bars written to the history store, segments opened and rows scanned.
+     */
+    @GetMapping("/marketdata")
+    public Map<String, Object> marketdata() {
+        return history.stats();
+    }
+}
@@ -1,7 +1,10 @@
 package com.algotrade.bot.controller;
 
+import com.algotrade.bot.model.Instrument;
 import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.angelone.OrderBookEntry;
 import com.algotrade.bot.services.AngelOneService;
+import com.algotrade.bot.services.InstrumentMasterService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,9 +19,11 @@ import java.util.*;
 public class OrderController {
 
     private final AngelOneService angelOneService;
+    private final InstrumentMasterService instruments;
 
-    public OrderController(AngelOneService angelOneService) {
+    public OrderController(AngelOneService angelOneService, InstrumentMasterService instruments) {
         this.angelOneService = angelOneService;
+        this.instruments = instruments;
     }
 
     // --- your existing search and place-order endpoints (unchanged) ---
@@ -55,7 +60,14 @@ public class OrderController {
             @RequestParam(value = "symboltoken", required = false) String symboltoken
     ) {
         try {
-            // Resolve symboltoken if not provided
+            // Resolve symboltoken if not provided: local instrument master, then searchScrip
+            if (symboltoken == null || symboltoken.isBlank()) {
+                Optional<Instrument> local = instruments.find(exchange, tradingsymbol);
+                if (local.isPresent()) {
+                    symboltoken = local.get().symboltoken();
+                    tradingsymbol = local.get().tradingsymbol();
+                }
+            }
             if (symboltoken == null || symboltoken.isBlank()) {
                 try {
                     Scrip s = angelOneService.searchScrip(session, exchange, tradingsymbol);
@@ -124,6 +136,19 @@ public class OrderController {
         }
     }
 
+    /**
+     * Local instrument master lookup (no broker call); 404 if the symbol is unknown.
+     */
+    @GetMapping("/api/scrip/resolve")
+    @ResponseBody
+    public ResponseEntity<?> resolveScrip(
+            @RequestParam("symbol") String symbol,
+            @RequestParam(value = "exchange", required = false, defaultValue = "NSE") String exchange) {
+        return instruments.find(exchange, symbol)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(instruments.stats()));
+    }
+
     // --- CANCEL endpoint (accepts JSON or form) ---
     @PostMapping(value = "/orders/cancel", produces = "application/json")
     @ResponseBody
@@ -197,18 +222,20 @@ public class OrderController {
 
             // Fallback: search orderbook by orderId
             if (orderData == null && orderId != null && !orderId.isBlank()) {
-                Map<String, Object> ob = angelOneService.getOrderBook(session);
-                if (ob != null && Boolean.TRUE.equals(ob.get("status"))) {
-                    Object raw = ob.get("data");
-                    if (raw instanceof List) {
-                        List<Map<String, Object>> data = (List<Map<String, Object>>) raw;
-                        for (Map<String, Object> item : data) {
-                            Object oid = item.get("orderid");
-                            if (oid != null && orderId.equals(String.valueOf(oid))) {
-                                orderData = item;
-                                break;
-                            }
-                        }
+                for (OrderBookEntry o : angelOneService.orders(session)) {
+                    if (orderId.equals(o.orderid())) {
+                        orderData = new HashMap<>();
+                        orderData.put("orderid", o.orderid());
+                        orderData.put("uniqueorderid", o.uniqueorderid());
+                        orderData.put("tradingsymbol", o.tradingsymbol());
+                        orderData.put("exchange", o.exchange());
+                        orderData.put("ordertype", o.ordertype());
+                        orderData.put("producttype", o.producttype());
+                        orderData.put("duration", o.duration());
+                        orderData.put("price", o.price());
+                        orderData.put("quantity", o.quantity());
+                        orderData.put("symboltoken", o.symboltoken());
+                        break;
                     }
                 }
             }
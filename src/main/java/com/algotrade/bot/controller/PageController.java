@@ -87,8 +87,7 @@ public class PageController {
         if (clientCode == null) return "redirect:/auth/";
 
         try {
-            Map<String, Object> orderBook = angelOneService.getOrderBook(session);
-            model.addAttribute("orderBook", orderBook);
+            model.addAttribute("orders", angelOneService.orders(session));
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Failed to fetch order book: " + e.getMessage());
         }
@@ -103,8 +102,7 @@ public class PageController {
         if (clientCode == null) return "redirect:/auth/";
 
         try {
-            Map<String, Object> tradeBook = angelOneService.getTradeBook(session);
-            model.addAttribute("tradeBook", tradeBook);
+            model.addAttribute("trades", angelOneService.trades(session));
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Failed to fetch trade book: " + e.getMessage());
         }
@@ -119,8 +117,7 @@ public class PageController {
         if (clientCode == null) return "redirect:/auth/";
 
         try {
-            Map<String, Object> holdings = angelOneService.getAllHoldings(session);
-            model.addAttribute("holdings", holdings);
+            model.addAttribute("holdings", angelOneService.holdings(session));
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Failed to fetch portfolio: " + e.getMessage());
         }
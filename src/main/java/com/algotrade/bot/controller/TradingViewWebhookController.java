@@ -1,26 +1,57 @@
 package com.algotrade.bot.controller;
 
-import com.algotrade.bot.model.TradingViewAlert;
-import com.algotrade.bot.services.AlertService;
+import com.algotrade.bot.services.AlertIngestionService;
+import com.algotrade.bot.services.LatencyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/webhook")
 public class TradingViewWebhookController {
 
-    private final AlertService alertService;
+    private static final Logger log = LoggerFactory.getLogger(TradingViewWebhookController.class);
 
-    public TradingViewWebhookController(AlertService alertService) {
-        this.alertService = alertService;
+    private final AlertIngestionService ingestionService;
+    private final LatencyMetrics metrics;
+
+    public TradingViewWebhookController(AlertIngestionService ingestionService, LatencyMetrics metrics) {
+        this.ingestionService = ingestionService;
+        this.metrics = metrics;
     }
 
     @PostMapping("/alert")
-    public ResponseEntity<TradingViewAlert> receiveAlert(@RequestBody Map<String, Object> payload) {
-        TradingViewAlert alert = alertService.createFromPayload(payload);
-        System.out.println("✅ Received alert from TradingView: " + payload);
-        return ResponseEntity.ok(alert);
+    public ResponseEntity<?> receiveAlert(@RequestBody Map<String, Object> payload) {
+        long start = System.nanoTime();
+        try {
+            AlertIngestionService.IngestResult result = ingestionService.ingest(payload);
+            log.debug("Received alert from TradingView: {}", payload);
+            if (result.duplicate()) {
+                return ResponseEntity.ok(Map.of("id", result.alertId(), "status", "DUPLICATE"));
+            }
+            if (result.queued()) {
+                return ResponseEntity.accepted().body(Map.of("id", result.alertId(), "status", "QUEUED"));
+            }
+            return ResponseEntity.ok(result.alert());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", e.getMessage()));
+        } finally {
+            metrics.stage(LatencyMetrics.RECEIVE, start);
+        }
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return ingestionService.stats();
     }
 }
@@ -0,0 +1,21 @@
+package com.algotrade.bot.model;
+
+import org.slf4j.LoggerFactory;
+
+public enum AlertAction {
+    BUY, SELL;
+
+    /**
+     * Case-insensitive lookup; null stays null. An unknown action, as older alert files and
+     * payloads may carry, is logged and read as null rather than failing the whole load.
+     */
+    public static AlertAction parse(String s) {
+        if (s == null) return null;
+        try {
+            return valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LoggerFactory.getLogger(AlertAction.class).warn("Unknown alert action '{}' read as none", s);
+            return null;
+        }
+    }
+}
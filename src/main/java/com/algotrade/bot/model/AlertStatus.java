@@ -0,0 +1,27 @@
+package com.algotrade.bot.model;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manual flow: NEW -> ACCEPTED / REJECTED / FAILED.
+ * Auto-execution: NEW -> QUEUED -> RESOLVING -> PLACING -> ACCEPTED / FAILED.
+ * <p>
+ * Snapshots store the ordinal, so new constants go at the end.
+ */
+public enum AlertStatus {
+    NEW, ACCEPTED, REJECTED, FAILED, QUEUED, RESOLVING, PLACING;
+
+    /**
+     * Case-insensitive lookup; null stays null. An unknown status, as older alert files and
+     * payloads may carry, is logged and read as null rather than failing the whole load.
+     */
+    public static AlertStatus parse(String s) {
+        if (s == null) return null;
+        try {
+            return valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LoggerFactory.getLogger(AlertStatus.class).warn("Unknown alert status '{}' read as none", s);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.algotrade.bot.model;
+
+/**
+ * One OHLCV candle built from the tick feed. Prices are in the exchange's minor unit (paise), as
+ * on the feed; {@code volume} is traded quantity within the bar, 0 if the feed carries no volume.
+ *
+ * @param exchangeType SmartStream exchange type (1 = NSE, 2 = NFO, ...)
+ * @param startMillis  bar open time, epoch millis
+ */
+public record Bar(int exchangeType, long token, int intervalMinutes, long startMillis,
+                  long open, long high, long low, long close, long volume, int ticks) {
+
+    public long endMillis() {
+        return startMillis + intervalMinutes * 60_000L;
+    }
+}
@@ -0,0 +1,12 @@
+package com.algotrade.bot.model;
+
+/**
+ * One row of the broker's instrument master. {@code tickSize} is in paise, as published.
+ */
+public record Instrument(String exchange, String tradingsymbol, String symboltoken, String name,
+                         String instrumentType, int lotSize, double tickSize) {
+
+    public Scrip toScrip() {
+        return new Scrip(exchange, tradingsymbol, symboltoken);
+    }
+}
@@ -0,0 +1,7 @@
+package com.algotrade.bot.model;
+
+/**
+ * Last traded price for one instrument, as returned by the broker's quote endpoint.
+ */
+public record Quote(String exchange, String tradingsymbol, String symboltoken, double ltp, long fetchedAtMillis) {
+}
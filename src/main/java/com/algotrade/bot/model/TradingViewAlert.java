@@ -1,21 +1,47 @@
 package com.algotrade.bot.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Map;
 
+/**
+ * An alert as held in memory for the lifetime of the store, so the layout is kept small:
+ * status and action are enums, ticker and exchange are interned, the timestamp is epoch millis
+ * (UTC wall clock of the original LocalDateTime) and the raw payload / order result are kept as
+ * the JSON bytes they arrived as, decoded only when someone asks for the map.
+ * <p>
+ * The bean getters and setters keep their old String/Map shapes, so the JSON written to disk and
+ * to the UI is unchanged.
+ */
 public class TradingViewAlert {
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
     private String id;
+    private long seq; // assigned at ingest, strictly increasing
     private String ticker;
     private String exchange;
     private String interval;
-    private String time;
-    private String action;
+    private String time; // only when the payload carried one; otherwise derived from timestamp
+    private AlertAction action;
     private int quantity = 1;
-    private String status = "NEW"; // NEW / ACCEPTED / REJECTED / FAILED
-    private LocalDateTime timestamp;
-    private Map<String,Object> orderResult;
+    private AlertStatus status = AlertStatus.NEW;
+    private long timestampMillis = NO_TIMESTAMP;
+    private byte[] orderResult;
     private String errorMessage;
-    private Map<String,Object> rawPayload;
+    private byte[] rawPayload;
     private String symboltoken; // optional if payload includes it
 
     public TradingViewAlert() {}
@@ -24,39 +50,117 @@ public class TradingViewAlert {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+
     public String getTicker() { return ticker; }
-    public void setTicker(String ticker) { this.ticker = ticker; }
+    public void setTicker(String ticker) { this.ticker = ticker != null ? ticker.intern() : null; }
 
     public String getExchange() { return exchange; }
-    public void setExchange(String exchange) { this.exchange = exchange; }
+    public void setExchange(String exchange) { this.exchange = exchange != null ? exchange.intern() : null; }
 
     public String getInterval() { return interval; }
     public void setInterval(String interval) { this.interval = interval; }
 
-    public String getTime() { return time; }
-    public void setTime(String time) { this.time = time; }
+    public String getTime() {
+        if (time != null) return time;
+        LocalDateTime ts = getTimestamp();
+        return ts != null ? ts.toString() : null;
+    }
+
+    public void setTime(String time) {
+        // older snapshots stored the receive time here as well; no need to keep it twice
+        LocalDateTime ts = getTimestamp();
+        this.time = time != null && ts != null && time.equals(ts.toString()) ? null : time;
+    }
+
+    public String getAction() { return action != null ? action.name() : null; }
+    public void setAction(String action) { this.action = AlertAction.parse(action); }
 
-    public String getAction() { return action; }
-    public void setAction(String action) { this.action = action; }
+    @JsonIgnore
+    public AlertAction getAlertAction() { return action; }
+    public void setAlertAction(AlertAction action) { this.action = action; }
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public String getStatus() { return status != null ? status.name() : null; }
+    public void setStatus(String status) { this.status = AlertStatus.parse(status); }
 
-    public LocalDateTime getTimestamp() { return timestamp; }
-    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    @JsonIgnore
+    public AlertStatus getAlertStatus() { return status; }
+    public void setAlertStatus(AlertStatus status) { this.status = status; }
 
-    public Map<String, Object> getOrderResult() { return orderResult; }
-    public void setOrderResult(Map<String, Object> orderResult) { this.orderResult = orderResult; }
+    public LocalDateTime getTimestamp() {
+        if (timestampMillis == NO_TIMESTAMP) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(timestampMillis, 1000L),
+                (int) Math.floorMod(timestampMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        if (time != null && timestamp != null && time.equals(timestamp.toString())) time = null;
+        this.timestampMillis = timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIMESTAMP;
+    }
+
+    /**
+     * Epoch millis of {@link #getTimestamp()}, or {@link Long#MIN_VALUE} when there is none.
+     */
+    @JsonIgnore
+    public long getTimestampMillis() { return timestampMillis; }
+
+    @JsonIgnore
+    public Map<String, Object> getOrderResult() { return decode(orderResult); }
+    @JsonProperty("orderResult")
+    public void setOrderResult(Map<String, Object> orderResult) { this.orderResult = encode(orderResult); }
 
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
 
-    public Map<String, Object> getRawPayload() { return rawPayload; }
-    public void setRawPayload(Map<String, Object> rawPayload) { this.rawPayload = rawPayload; }
+    @JsonIgnore
+    public Map<String, Object> getRawPayload() { return decode(rawPayload); }
+    @JsonProperty("rawPayload")
+    public void setRawPayload(Map<String, Object> rawPayload) { this.rawPayload = encode(rawPayload); }
 
     public String getSymboltoken() { return symboltoken; }
     public void setSymboltoken(String symboltoken) { this.symboltoken = symboltoken; }
+
+    // serialized form of the stored JSON maps; written through without decoding
+
+    @JsonProperty("orderResult")
+    @JsonRawValue
+    String orderResultJson() { return orderResult != null ? new String(orderResult, StandardCharsets.UTF_8) : null; }
+
+    @JsonProperty("rawPayload")
+    @JsonRawValue
+    String rawPayloadJson() { return rawPayload != null ? new String(rawPayload, StandardCharsets.UTF_8) : null; }
+
+    /**
+     * UTF-8 JSON of the order result as stored, or null. Do not modify.
+     */
+    public byte[] orderResultBytes() { return orderResult; }
+    public void orderResultBytes(byte[] json) { this.orderResult = json; }
+
+    /**
+     * UTF-8 JSON of the webhook payload as stored, or null. Do not modify.
+     */
+    public byte[] rawPayloadBytes() { return rawPayload; }
+    public void rawPayloadBytes(byte[] json) { this.rawPayload = json; }
+
+    private static byte[] encode(Map<String, Object> map) {
+        if (map == null) return null;
+        try {
+            return JSON.writeValueAsBytes(map);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize alert map: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, Object> decode(byte[] json) {
+        if (json == null) return null;
+        try {
+            return JSON.readValue(json, MAP_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,8 @@
+package com.algotrade.bot.model.angelone;
+
+/**
+ * The envelope every AngelOne REST response comes in. A failed call is often a 200 with
+ * {@code status=false} and the reason in {@code message}.
+ */
+public record AngelResponse<T>(boolean status, String message, String errorcode, T data) {
+}
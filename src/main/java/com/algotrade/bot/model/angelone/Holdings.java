@@ -0,0 +1,19 @@
+package com.algotrade.bot.model.angelone;
+
+import java.util.List;
+
+/**
+ * {@code data} of the all-holdings call: the positions and the portfolio totals.
+ */
+public record Holdings(List<Holding> holdings, Totals totalholding) {
+
+    public record Holding(String tradingsymbol, String exchange, String isin, String symboltoken, String product,
+                          int quantity, int t1quantity, int realisedquantity, int authorisedquantity,
+                          int collateralquantity, String collateraltype, double haircut,
+                          double averageprice, double ltp, double close, double profitandloss, double pnlpercentage) {
+    }
+
+    public record Totals(double totalholdingvalue, double totalinvvalue, double totalprofitandloss,
+                         double totalpnlpercentage) {
+    }
+}
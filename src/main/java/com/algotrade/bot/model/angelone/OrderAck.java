@@ -0,0 +1,21 @@
+package com.algotrade.bot.model.angelone;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code data} of a place, modify or cancel order call.
+ */
+public record OrderAck(String script, String orderid, String uniqueorderid) {
+
+    /**
+     * As the broker sent it, for callers that keep the raw order result.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        if (script != null) m.put("script", script);
+        m.put("orderid", orderid);
+        m.put("uniqueorderid", uniqueorderid);
+        return m;
+    }
+}
@@ -0,0 +1,13 @@
+package com.algotrade.bot.model.angelone;
+
+/**
+ * One row of the order book. Quantities arrive as strings and are read as numbers.
+ */
+public record OrderBookEntry(String variety, String ordertype, String producttype, String duration,
+                             double price, double triggerprice, int quantity, int disclosedquantity,
+                             double squareoff, double stoploss, double trailingstoploss,
+                             String tradingsymbol, String transactiontype, String exchange, String symboltoken,
+                             String instrumenttype, double averageprice, int filledshares, int unfilledshares,
+                             String orderid, String uniqueorderid, String text, String status, String orderstatus,
+                             String updatetime, String exchtime, String exchorderupdatetime, String ordertag) {
+}
@@ -0,0 +1,7 @@
+package com.algotrade.bot.model.angelone;
+
+/**
+ * One result of a scrip search.
+ */
+public record ScripMatch(String exchange, String tradingsymbol, String symboltoken) {
+}
@@ -0,0 +1,7 @@
+package com.algotrade.bot.model.angelone;
+
+/**
+ * {@code data} of a login or token refresh.
+ */
+public record SessionTokens(String jwtToken, String refreshToken, String feedToken) {
+}
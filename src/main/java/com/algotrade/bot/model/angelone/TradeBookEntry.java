@@ -0,0 +1,11 @@
+package com.algotrade.bot.model.angelone;
+
+/**
+ * One fill from the trade book.
+ */
+public record TradeBookEntry(String exchange, String producttype, String tradingsymbol, String instrumenttype,
+                             String symbolgroup, double strikeprice, String optiontype, String expirydate,
+                             int marketlot, int precision, int multiplier, double tradevalue,
+                             String transactiontype, double fillprice, int fillsize,
+                             String orderid, String fillid, String filltime) {
+}
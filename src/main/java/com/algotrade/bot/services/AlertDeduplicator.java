@@ -0,0 +1,110 @@
+package com.algotrade.bot.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Suppresses repeated webhooks for the same signal.
+ * <p>
+ * TradingView retries on timeout and a strategy can fire twice per bar, so identical payloads
+ * (same ticker, action, interval, bar time and qty) seen within the TTL map to the alert created
+ * by the first one. The cache is an LRU keyed by a 64-bit fingerprint, bounded by
+ * {@code alerts.dedupe.max-entries}.
+ */
+@Service
+public class AlertDeduplicator {
+
+    private record Entry(String alertId, long expiresAt) {}
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Long, Entry> seen;
+
+    @Autowired
+    public AlertDeduplicator(@Value("${alerts.dedupe.enabled:true}") boolean enabled,
+                             @Value("${alerts.dedupe.ttl-seconds:60}") long ttlSeconds,
+                             @Value("${alerts.dedupe.max-entries:10000}") int maxEntries) {
+        this(enabled, TimeUnit.SECONDS.toNanos(ttlSeconds), maxEntries, System::nanoTime);
+    }
+
+    AlertDeduplicator(boolean enabled, long ttlNanos, int maxEntries, LongSupplier clock) {
+        this.enabled = enabled;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.seen = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Record {@code alertId} for this payload unless an identical payload is still in the window.
+     *
+     * @return {@code null} if this is the first occurrence, otherwise the id of the original alert
+     */
+    public String claim(Map<String, Object> payload, String alertId) {
+        if (!enabled) return null;
+        long key = fingerprint(payload);
+        long now = clock.getAsLong();
+        synchronized (seen) {
+            Entry e = seen.get(key);
+            if (e != null && now - e.expiresAt() < 0) return e.alertId();
+            seen.put(key, new Entry(alertId, now + ttlNanos));
+            return null;
+        }
+    }
+
+    /**
+     * Undo a {@link #claim} whose alert was never stored, so a retry is not treated as a duplicate.
+     */
+    public void release(Map<String, Object> payload, String alertId) {
+        if (!enabled) return;
+        long key = fingerprint(payload);
+        synchronized (seen) {
+            Entry e = seen.get(key);
+            if (e != null && e.alertId().equals(alertId)) seen.remove(key);
+        }
+    }
+
+    public int size() {
+        synchronized (seen) {
+            return seen.size();
+        }
+    }
+
+    // FNV-1a over the normalized signal fields
+    static long fingerprint(Map<String, Object> payload) {
+        Object action = payload.get("action");
+        if (action == null) action = payload.get("strategy.order.action");
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, payload.get("ticker"));
+        h = mix(h, action);
+        h = mix(h, payload.get("interval"));
+        h = mix(h, payload.get("time"));
+        h = mix(h, payload.get("qty"));
+        return h;
+    }
+
+    private static long mix(long h, Object value) {
+        if (value != null) {
+            String s = value.toString().trim();
+            for (int i = 0; i < s.length(); i++) {
+                h ^= Character.toUpperCase(s.charAt(i));
+                h *= 0x100000001b3L;
+            }
+        }
+        // field separator, so ("AB","C") and ("A","BC") differ
+        h ^= 0x1f;
+        h *= 0x100000001b3L;
+        return h;
+    }
+}
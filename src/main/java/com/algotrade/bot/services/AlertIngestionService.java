@@ -0,0 +1,261 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for TradingView webhooks.
+ * <p>
+ * In sync mode the alert is parsed and stored on the request thread, as before. In async mode
+ * ({@code alerts.ingest.async=true}) the payload is validated, given an id and queued; consumer
+ * threads drain the queues in batches, build the alerts and store each batch with one journal
+ * write. Each consumer has its own queue and alerts are partitioned onto them by ticker, so alerts
+ * for one symbol are stored, numbered and handed to auto-execution in the order they arrived. A
+ * full queue pushes back on the caller instead of growing without bound.
+ * <p>
+ * Payloads are accepted as they always were, with a missing ticker stored as UNKNOWN and a
+ * missing action as BUY. With {@code alerts.ingest.strict=true} a payload without a ticker, with
+ * an action other than BUY or SELL, or with a non-numeric qty is refused instead.
+ */
+@Service
+public class AlertIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertIngestionService.class);
+    private static final Set<String> ACTIONS = Set.of("BUY", "SELL");
+
+    /**
+     * Outcome of one webhook: {@code alert} is null when the payload was only queued or was a
+     * duplicate, in which case {@code alertId} is the id of the original alert.
+     */
+    public record IngestResult(String alertId, TradingViewAlert alert, boolean duplicate) {
+        public boolean queued() { return alert == null && !duplicate; }
+    }
+
+    private record PendingAlert(String id, Map<String, Object> payload, LocalDateTime receivedAt, long queuedNanos) {}
+
+    private final AlertService alertService;
+    private final AlertDeduplicator deduplicator;
+    private final LatencyMetrics metrics;
+    private final boolean async;
+    private final boolean strict;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final List<BlockingQueue<PendingAlert>> queues = new ArrayList<>();
+    private final ExecutorService consumers;
+    private volatile boolean running = true;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public AlertIngestionService(AlertService alertService,
+                                 AlertDeduplicator deduplicator,
+                                 LatencyMetrics metrics,
+                                 @Value("${alerts.ingest.async:false}") boolean async,
+                                 @Value("${alerts.ingest.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${alerts.ingest.batch-size:256}") int batchSize,
+                                 @Value("${alerts.ingest.consumers:0}") int consumerCount,
+                                 @Value("${alerts.ingest.offer-timeout-ms:20}") long offerTimeoutMs,
+                                 @Value("${alerts.ingest.strict:false}") boolean strict) {
+        this.alertService = alertService;
+        this.deduplicator = deduplicator;
+        this.metrics = metrics;
+        this.async = async;
+        this.strict = strict;
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeoutMs = offerTimeoutMs;
+
+        int n = !async ? 1 : consumerCount > 0 ? consumerCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < n; i++) queues.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity / n)));
+        if (async) {
+            this.consumers = Executors.newFixedThreadPool(n, new ThreadFactory() {
+                private int seq;
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "alert-ingest-" + seq++);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            for (BlockingQueue<PendingAlert> q : queues) consumers.submit(() -> consumeLoop(q));
+            log.info("Async alert ingestion enabled: {} consumers, queue capacity {}", n, queueCapacity);
+        } else {
+            this.consumers = null;
+        }
+    }
+
+    /**
+     * Validate and ingest one webhook payload. A repeat of a payload seen within the dedupe
+     * window returns the original alert id without storing anything.
+     *
+     * @throws IllegalArgumentException in strict mode, if the payload is not a usable alert
+     * @throws RejectedExecutionException if the queue stays full for longer than the offer timeout
+     */
+    public IngestResult ingest(Map<String, Object> payload) {
+        long start = System.nanoTime();
+        validate(payload);
+        metrics.stage(LatencyMetrics.VALIDATE, start);
+
+        String id = UUID.randomUUID().toString();
+        start = System.nanoTime();
+        String original = deduplicator.claim(payload, id);
+        metrics.stage(LatencyMetrics.DEDUPE, start);
+        if (original != null) {
+            duplicates.incrementAndGet();
+            return new IngestResult(original, null, true);
+        }
+        LocalDateTime receivedAt = LocalDateTime.now();
+
+        if (!async) {
+            TradingViewAlert alert;
+            start = System.nanoTime();
+            try {
+                alert = alertService.buildFromPayload(id, payload, receivedAt);
+            } catch (RuntimeException e) {
+                deduplicator.release(payload, id);
+                throw e;
+            }
+            metrics.stage(LatencyMetrics.PARSE, start);
+            start = System.nanoTime();
+            alertService.storeAll(List.of(alert));
+            metrics.stage(LatencyMetrics.PERSIST, start);
+            accepted.incrementAndGet();
+            processed.incrementAndGet();
+            return new IngestResult(id, alert, false);
+        }
+
+        BlockingQueue<PendingAlert> queue = queueFor(payload);
+        boolean queued = false;
+        try {
+            queued = running && queue.offer(new PendingAlert(id, payload, receivedAt, System.nanoTime()), offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            // TradingView will retry; that retry must not be swallowed as a duplicate
+            deduplicator.release(payload, id);
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Alert queue full (" + queue.size() + " pending)");
+        }
+        accepted.incrementAndGet();
+        return new IngestResult(id, null, false);
+    }
+
+    private BlockingQueue<PendingAlert> queueFor(Map<String, Object> payload) {
+        Object ticker = payload.get("ticker");
+        String key = ticker != null ? ticker.toString().toUpperCase() : "";
+        return queues.get(Math.floorMod(key.hashCode(), queues.size()));
+    }
+
+    private void validate(Map<String, Object> payload) {
+        if (payload == null) throw new IllegalArgumentException("Empty alert payload");
+        if (!strict) return;
+        if (payload.isEmpty()) throw new IllegalArgumentException("Empty alert payload");
+
+        Object ticker = payload.get("ticker");
+        if (ticker == null || ticker.toString().isBlank()) throw new IllegalArgumentException("Missing ticker");
+
+        Object act = payload.get("action");
+        if (act == null) act = payload.get("strategy.order.action");
+        if (act != null && !ACTIONS.contains(act.toString().toUpperCase()))
+            throw new IllegalArgumentException("Unsupported action: " + act);
+
+        Object q = payload.get("qty");
+        if (q != null) {
+            try {
+                Integer.parseInt(q.toString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid qty: " + q);
+            }
+        }
+    }
+
+    private void consumeLoop(BlockingQueue<PendingAlert> queue) {
+        List<PendingAlert> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAlert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Alert ingestion batch of {} failed: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<PendingAlert> batch) {
+        List<TradingViewAlert> alerts = new ArrayList<>(batch.size());
+        for (PendingAlert p : batch) {
+            metrics.stage(LatencyMetrics.QUEUE, p.queuedNanos());
+            long start = System.nanoTime();
+            try {
+                alerts.add(alertService.buildFromPayload(p.id(), p.payload(), p.receivedAt()));
+            } catch (Exception e) {
+                // as on the sync path: a resend of this payload must not be taken for a duplicate
+                deduplicator.release(p.payload(), p.id());
+                log.error("Dropping alert {}: {}", p.id(), e.getMessage(), e);
+            }
+            metrics.stage(LatencyMetrics.PARSE, start);
+        }
+        long start = System.nanoTime();
+        alertService.storeAll(alerts);
+        // one journal write per batch; every alert in it waited this long
+        metrics.stage(LatencyMetrics.PERSIST, start);
+        processed.addAndGet(alerts.size());
+        batches.incrementAndGet();
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (BlockingQueue<PendingAlert> q : queues) depth += q.size();
+        return depth;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("mode", async ? "async" : "sync");
+        int capacity = 0;
+        for (BlockingQueue<PendingAlert> q : queues) capacity += q.size() + q.remainingCapacity();
+        m.put("queueDepth", queueDepth());
+        m.put("queueCapacity", capacity);
+        m.put("accepted", accepted.get());
+        m.put("rejected", rejected.get());
+        m.put("duplicates", duplicates.get());
+        m.put("dedupeEntries", deduplicator.size());
+        m.put("processed", processed.get());
+        m.put("batches", batches.get());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (consumers == null) return;
+        // stop taking new alerts, let consumers drain what is already queued
+        running = false;
+        consumers.shutdown();
+        try {
+            if (!consumers.awaitTermination(10, TimeUnit.SECONDS))
+                log.warn("Alert ingestion shut down with {} alerts still queued", queueDepth());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of alert upserts (one JSON object per line).
+ * <p>
+ * Appends only hit the OS page cache; a background flusher fsyncs the file every
+ * {@code fsyncIntervalMs}, so many appends share one fsync. The journal is rotated
+ * when the owner writes a full snapshot, after which the rotated file can be deleted.
+ */
+public class AlertJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertJournal.class);
+    private static final byte NEWLINE = '\n';
+
+    private final Path journalFile;
+    private final Path rotatedFile;
+    private final ObjectMapper mapper;
+    private final ScheduledExecutorService flusher;
+
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private boolean dirty;
+    private long recordCount;
+
+    public AlertJournal(Path journalFile, ObjectMapper mapper, long fsyncIntervalMs) throws IOException {
+        this.journalFile = journalFile;
+        this.rotatedFile = journalFile.resolveSibling(journalFile.getFileName() + ".compacting");
+        this.mapper = mapper;
+        this.channel = openChannel();
+        terminateTornRecord();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-journal-fsync");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::sync, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // a crash mid-append can leave a partial last line; start the next record on a fresh line
+    private void terminateTornRecord() throws IOException {
+        long size = channel.size();
+        if (size == 0) return;
+        try (FileChannel reader = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            reader.read(last, size - 1);
+            if (last.get(0) != NEWLINE) channel.write(ByteBuffer.wrap(new byte[]{NEWLINE}));
+        }
+    }
+
+    /**
+     * Append the current state of one alert. Serialization happens outside the write lock.
+     */
+    public void append(TradingViewAlert alert) throws IOException {
+        write(ByteBuffer.wrap(encode(alert)), 1);
+    }
+
+    /**
+     * Append several alerts with a single write call.
+     */
+    public void appendAll(Collection<TradingViewAlert> alerts) throws IOException {
+        if (alerts.isEmpty()) return;
+        byte[][] lines = new byte[alerts.size()][];
+        int total = 0, i = 0;
+        for (TradingViewAlert a : alerts) {
+            lines[i] = encode(a);
+            total += lines[i++].length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        for (byte[] line : lines) buf.put(line);
+        buf.flip();
+        write(buf, lines.length);
+    }
+
+    private byte[] encode(TradingViewAlert alert) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(alert);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = NEWLINE;
+        return line;
+    }
+
+    private void write(ByteBuffer buf, int records) throws IOException {
+        synchronized (writeLock) {
+            while (buf.hasRemaining()) channel.write(buf);
+            dirty = true;
+            recordCount += records;
+        }
+    }
+
+    /**
+     * Force pending appends to disk. Called by the flusher; safe to call directly.
+     */
+    public void sync() {
+        synchronized (writeLock) {
+            if (!dirty) return;
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException e) {
+                log.error("Failed to fsync alert journal {}: {}", journalFile, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Number of records appended since the journal was opened or last rotated.
+     */
+    public long recordCount() {
+        synchronized (writeLock) {
+            return recordCount;
+        }
+    }
+
+    /**
+     * Move the current journal aside and start a fresh one. Every record appended before this
+     * call is in the rotated file, so a snapshot taken afterwards covers it.
+     *
+     * @return the rotated file, or {@code null} if there was nothing to rotate
+     */
+    public Path rotate() throws IOException {
+        synchronized (writeLock) {
+            if (recordCount == 0) return Files.exists(rotatedFile) ? rotatedFile : null;
+            channel.force(false);
+            channel.close();
+            if (Files.exists(rotatedFile)) {
+                // a previous compaction failed before deleting it — keep both by appending
+                Files.write(rotatedFile, Files.readAllBytes(journalFile), StandardOpenOption.APPEND);
+                Files.delete(journalFile);
+            } else {
+                Files.move(journalFile, rotatedFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            channel = openChannel();
+            dirty = false;
+            recordCount = 0;
+            return rotatedFile;
+        }
+    }
+
+    /**
+     * Delete the rotated journal once its records are covered by a snapshot.
+     */
+    public void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedFile);
+    }
+
+    /**
+     * Replay the rotated journal (if a compaction was interrupted) and then the live journal.
+     * Unreadable lines — e.g. a torn final write after a crash — are skipped.
+     *
+     * @return number of records replayed
+     */
+    public long replay(Consumer<TradingViewAlert> sink) {
+        long rotated = replayFile(rotatedFile, sink);
+        long live = replayFile(journalFile, sink);
+        synchronized (writeLock) {
+            recordCount += live;
+        }
+        return rotated + live;
+    }
+
+    private long replayFile(Path file, Consumer<TradingViewAlert> sink) {
+        if (!Files.exists(file)) return 0;
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                try {
+                    TradingViewAlert a = mapper.readValue(line, TradingViewAlert.class);
+                    if (a != null && a.getId() != null) {
+                        sink.accept(a);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable journal record {}:{} — {}", file.getFileName(), lineNo, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to replay alert journal {}: {}", file, e.getMessage(), e);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        synchronized (writeLock) {
+            try {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.error("Failed to close alert journal {}: {}", journalFile, e.getMessage(), e);
+            }
+        }
+    }
+}
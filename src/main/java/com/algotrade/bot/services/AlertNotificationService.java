@@ -0,0 +1,154 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes newly stored alerts to open dashboards over Server-Sent Events.
+ * <p>
+ * Fan-out runs on its own thread so a slow browser never delays ingestion. Also owns the
+ * persisted "stop alerts" switch: while it is on, nothing is pushed.
+ */
+@Service
+public class AlertNotificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertNotificationService.class);
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 20;
+    private static final int MAX_REPLAY = 500;
+
+    private final Set<SseEmitter> emitters = new CopyOnWriteArraySet<>();
+    private final ScheduledExecutorService dispatcher;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final File stateFile = new File("alerts_state.json");
+    private final AlertService alertService;
+
+    // persisted flag
+    private volatile boolean stopAlerts = false;
+
+    public AlertNotificationService(AlertService alertService) {
+        this.alertService = alertService;
+        loadStopAlertsState();
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-sse");
+            t.setDaemon(true);
+            return t;
+        });
+        // comments keep proxies from closing idle streams and flush out dead clients
+        dispatcher.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        alertService.addAlertListener(this::publish);
+    }
+
+    private void loadStopAlertsState() {
+        try {
+            if (stateFile.exists()) {
+                Map<String, Boolean> state = mapper.readValue(stateFile, new TypeReference<>() {});
+                stopAlerts = state.getOrDefault("stopAlerts", false);
+            }
+        } catch (IOException e) {
+            log.error("Failed to read {}: {}", stateFile.getName(), e.getMessage(), e);
+            stopAlerts = false;
+        }
+    }
+
+    private void saveStopAlertsState() {
+        try {
+            mapper.writeValue(stateFile, Map.of("stopAlerts", stopAlerts));
+        } catch (IOException e) {
+            log.error("Failed to write {}: {}", stateFile.getName(), e.getMessage(), e);
+        }
+    }
+
+    public boolean isStopAlerts() {
+        return stopAlerts;
+    }
+
+    public synchronized boolean toggleStopAlerts() {
+        stopAlerts = !stopAlerts;
+        saveStopAlertsState();
+        return stopAlerts;
+    }
+
+    /**
+     * Register a browser for alert events. Event ids are alert sequence numbers, so a reconnecting
+     * EventSource that sends {@code Last-Event-ID} first receives whatever it missed.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+
+        if (lastEventId != null && !stopAlerts) {
+            // registered first, so an alert arriving meanwhile may come twice but is never lost
+            List<TradingViewAlert> missed = alertService.getAlertsAfter(lastEventId, MAX_REPLAY);
+            dispatcher.execute(() -> {
+                for (TradingViewAlert a : missed) {
+                    try {
+                        emitter.send(alertEvent(a));
+                    } catch (IOException | IllegalStateException e) {
+                        emitters.remove(emitter);
+                        return;
+                    }
+                }
+            });
+        }
+        return emitter;
+    }
+
+    private static SseEmitter.SseEventBuilder alertEvent(TradingViewAlert alert) {
+        return SseEmitter.event().id(Long.toString(alert.getSeq())).name("alert").data(alert, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Queue an alert for delivery to every subscriber. Returns immediately.
+     */
+    public void publish(TradingViewAlert alert) {
+        if (stopAlerts || emitters.isEmpty()) return;
+        dispatcher.execute(() -> send(alertEvent(alert)));
+    }
+
+    private void heartbeat() {
+        if (!emitters.isEmpty()) send(SseEmitter.event().comment("ping"));
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return emitters.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (SseEmitter emitter : emitters) emitter.complete();
+        emitters.clear();
+    }
+}
@@ -0,0 +1,149 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Turns an alert into an AngelOne order: symbol resolution and payload building shared by the
+ * manual accept flow and auto-execution.
+ */
+@Service
+public class AlertOrderService {
+
+    private static final Map<String, String> MANUAL_SYMBOLS = Map.of("RELIANCE", "RELIANCE-EQ");
+
+    private final AngelOneService angelOneService;
+    private final InstrumentMasterService instruments;
+    private final LatencyMetrics metrics;
+
+    public AlertOrderService(AngelOneService angelOneService, InstrumentMasterService instruments,
+                             LatencyMetrics metrics) {
+        this.angelOneService = angelOneService;
+        this.instruments = instruments;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Whether background orders can be placed for {@code clientCode}; see {@link AngelOneService#isLoggedIn}.
+     */
+    public boolean isLoggedIn(String clientCode) {
+        return angelOneService.isLoggedIn(clientCode);
+    }
+
+    /**
+     * Resolve the alert's ticker to an NSE scrip, using the symbol token from the payload when
+     * present, then the local instrument master, and searchScrip only if both miss.
+     *
+     * @return the scrip, or null if no symbol token could be found
+     */
+    public Scrip resolveSymbol(HttpSession session, TradingViewAlert alert) {
+        return metrics.stage(LatencyMetrics.RESOLVE, () -> lookupSymbol(alert,
+                (exchange, ticker) -> angelOneService.searchScrip(session, exchange, ticker),
+                ticker -> angelOneService.searchScrip(session, ticker)));
+    }
+
+    /**
+     * {@link #resolveSymbol(HttpSession, TradingViewAlert)} with {@code clientCode}'s tokens, for
+     * background engines.
+     */
+    public Scrip resolveSymbol(String clientCode, TradingViewAlert alert) {
+        return metrics.stage(LatencyMetrics.RESOLVE, () -> lookupSymbol(alert,
+                (exchange, ticker) -> angelOneService.searchScrip(clientCode, exchange, ticker),
+                ticker -> angelOneService.searchScrip(clientCode, ticker)));
+    }
+
+    /**
+     * The part of {@link #resolveSymbol} that needs no broker call: the payload's symbol token,
+     * else the local instrument master.
+     *
+     * @return the scrip, or null if neither knows the ticker
+     */
+    Scrip resolveOffline(TradingViewAlert alert) {
+        String symboltoken = alert.getSymboltoken();
+        String tradingsymbol = tradingsymbol(alert);
+        String exchange = Optional.ofNullable(alert.getExchange()).orElse("NSE");
+        if (symboltoken != null && !symboltoken.isBlank()) return new Scrip(exchange, tradingsymbol, symboltoken);
+        return instruments.resolve(exchange, tradingsymbol);
+    }
+
+    private static String tradingsymbol(TradingViewAlert alert) {
+        String tradingsymbol = Optional.ofNullable(alert.getTicker()).orElse("").toUpperCase();
+        return MANUAL_SYMBOLS.getOrDefault(tradingsymbol, tradingsymbol);
+    }
+
+    private Scrip lookupSymbol(TradingViewAlert alert, BiFunction<String, String, Scrip> search,
+                               Function<String, List<Map<String, Object>>> searchAll) {
+        Scrip local = resolveOffline(alert);
+        if (local != null) return local;
+
+        String symboltoken = null;
+        String tradingsymbol = tradingsymbol(alert);
+        String exchange = Optional.ofNullable(alert.getExchange()).orElse("NSE");
+        try {
+            Scrip s = search.apply("NSE", tradingsymbol);
+            if (s != null) {
+                symboltoken = s.getSymboltoken();
+                tradingsymbol = s.getTradingsymbol();
+            }
+        } catch (Exception ex) {
+            try {
+                List<Map<String, Object>> results = searchAll.apply(tradingsymbol);
+                if (results != null && !results.isEmpty() && results.get(0).get("symboltoken") != null) {
+                    symboltoken = results.get(0).get("symboltoken").toString();
+                    if (results.get(0).get("tradingsymbol") != null)
+                        tradingsymbol = results.get(0).get("tradingsymbol").toString();
+                }
+            } catch (Exception ignored) {}
+        }
+
+        if (symboltoken == null || symboltoken.isBlank()) return null;
+        return new Scrip(exchange, tradingsymbol, symboltoken);
+    }
+
+    /**
+     * Market intraday order for the alert's side and quantity.
+     */
+    public Map<String, Object> buildOrder(TradingViewAlert alert, Scrip scrip, String clientCode) {
+        long start = System.nanoTime();
+        Map<String, Object> order = orderPayload(alert, scrip, clientCode);
+        metrics.stage(LatencyMetrics.BUILD, start);
+        return order;
+    }
+
+    /**
+     * {@link #buildOrder} without the latency metric, for replays that must not skew it.
+     *
+     * @throws IllegalArgumentException if the alert has no action to trade on
+     */
+    static Map<String, Object> orderPayload(TradingViewAlert alert, Scrip scrip, String clientCode) {
+        if (alert.getAlertAction() == null)
+            throw new IllegalArgumentException("Unknown action for " + alert.getTicker() + ", no order placed");
+        Map<String, Object> order = new HashMap<>();
+        order.put("variety", "NORMAL");
+        order.put("tradingsymbol", scrip.getTradingsymbol());
+        order.put("symboltoken", scrip.getSymboltoken());
+        order.put("transactiontype", alert.getAction());
+        order.put("exchange", scrip.getExchange());
+        order.put("ordertype", "MARKET");
+        order.put("producttype", "INTRADAY");
+        order.put("duration", "DAY");
+        order.put("price", "0");
+        order.put("quantity", String.valueOf(Math.max(alert.getQuantity(), 1)));
+        order.put("clientcode", clientCode);
+        return order;
+    }
+
+    public Map<String, Object> placeOrder(HttpSession session, Map<String, Object> order) {
+        return metrics.stage(LatencyMetrics.PLACE, () -> angelOneService.placeOrder(session, order));
+    }
+
+    public Map<String, Object> placeOrder(String clientCode, Map<String, Object> order) {
+        return metrics.stage(LatencyMetrics.PLACE, () -> angelOneService.placeOrder(clientCode, order));
+    }
+}
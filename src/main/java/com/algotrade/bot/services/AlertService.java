@@ -1,44 +1,168 @@
 package com.algotrade.bot.services;
 
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.AlertStatus;
 import com.algotrade.bot.model.TradingViewAlert;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class AlertService {
 
     private static final Logger log = LoggerFactory.getLogger(AlertService.class);
 
-    private final Map<String, TradingViewAlert> alertStore = new ConcurrentHashMap<>();
+    private final AlertStore alertStore = new AlertStore();
     private final ObjectMapper mapper;
-    private final File alertsFile = new File("alerts_data.json");
+    private final File alertsFile;
+    private final Path snapshotFile;
+    private final boolean lazyHistory;
+    private final boolean writeJson;
+    private final AlertJournal journal;
+    private final ScheduledExecutorService compactor;
+    private final long compactThreshold;
+    private final Object compactionLock = new Object();
+    private final List<Consumer<TradingViewAlert>> alertListeners = new CopyOnWriteArrayList<>();
+    private final LatencyMetrics metrics;
+    // completes once every day of the snapshot is in alertStore
+    private volatile CompletableFuture<Void> historyLoaded = CompletableFuture.completedFuture(null);
 
-    public AlertService() {
+    public AlertService(LatencyMetrics metrics,
+                        @Value("${alerts.journal.fsync-interval-ms:50}") long fsyncIntervalMs,
+                        @Value("${alerts.journal.compact-interval-ms:60000}") long compactIntervalMs,
+                        @Value("${alerts.journal.compact-threshold:1000}") long compactThreshold,
+                        @Value("${alerts.snapshot.lazy-history:false}") boolean lazyHistory,
+                        @Value("${alerts.snapshot.write-json:true}") boolean writeJson,
+                        @Value("${alerts.dir:.}") String dir) throws IOException {
+        this.alertsFile = new File(dir, "alerts_data.json");
+        this.snapshotFile = alertsFile.toPath().resolveSibling("alerts_data.bin");
         this.mapper = new ObjectMapper();
         // enable Java 8 Date/Time support
         this.mapper.registerModule(new JavaTimeModule());
         // prefer ISO strings rather than timestamps
         this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.metrics = metrics;
+        this.compactThreshold = compactThreshold;
+        this.lazyHistory = lazyHistory;
+        this.writeJson = writeJson;
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+
+        boolean fromBinary = loadSnapshot();
+        if (!fromBinary) loadFromFile();
+
+        // snapshot (alerts_data.bin / .json) + journal of everything written since that snapshot
+        this.journal = new AlertJournal(alertsFile.toPath().resolveSibling("alerts_journal.jsonl"), mapper, fsyncIntervalMs);
+        long replayed = journal.replay(alertStore::put);
+        if (replayed > 0) log.info("Replayed {} journal records, {} alerts in store", replayed, alertStore.size());
+
+        // first start after an upgrade: write the binary snapshot so the next start can use it
+        if (!fromBinary && alertStore.size() > 0) compactor.execute(this::compact);
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, 0, compactIntervalMs, TimeUnit.MILLISECONDS);
+    }
 
-        loadFromFile();
+    /**
+     * Load from the binary snapshot if it is present and at least as new as alerts_data.json.
+     * With {@code alerts.snapshot.lazy-history} only today's block is decoded here; earlier days
+     * are merged in on the compactor thread.
+     *
+     * @return false if the JSON file should be loaded instead
+     */
+    private boolean loadSnapshot() {
+        if (!Files.exists(snapshotFile)) return false;
+        if (alertsFile.exists() && alertsFile.lastModified() > snapshotFile.toFile().lastModified()) {
+            log.info("{} is newer than {} — loading JSON", alertsFile.getName(), snapshotFile.getFileName());
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            AlertSnapshotFile snapshot = AlertSnapshotFile.open(snapshotFile);
+            alertStore.reserveSeq(snapshot.lastSeq());
+
+            List<AlertSnapshotFile.DayBlock> deferred = new ArrayList<>();
+            LocalDate today = LocalDate.now();
+            for (AlertSnapshotFile.DayBlock block : snapshot.blocks().descendingMap().values()) {
+                if (lazyHistory && block.day().isBefore(today)) deferred.add(block);
+                else alertStore.merge(snapshot.readDay(block));
+            }
+            log.info("Loaded {} alerts from {} in {} ms{}", alertStore.size(), snapshotFile.toAbsolutePath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    deferred.isEmpty() ? "" : ", " + deferred.size() + " earlier days loading in background");
+            if (!deferred.isEmpty()) {
+                historyLoaded = CompletableFuture.runAsync(() -> loadDays(snapshot, deferred), compactor);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to read {}: {} — falling back to JSON", snapshotFile, e.getMessage(), e);
+            alertStore.load(List.of());
+            return false;
+        }
+    }
+
+    // newest day first, so recent history becomes visible soonest
+    private void loadDays(AlertSnapshotFile snapshot, List<AlertSnapshotFile.DayBlock> blocks) {
+        for (AlertSnapshotFile.DayBlock block : blocks) {
+            try {
+                alertStore.merge(snapshot.readDay(block));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load alerts for " + block.day(), e);
+            }
+        }
+        log.info("Alert history loaded, {} alerts in store", alertStore.size());
+    }
+
+    /**
+     * Block until lazily loaded history is in the store. A no-op once loaded or when loading eagerly.
+     */
+    private void ensureHistoryLoaded() {
+        CompletableFuture<Void> f = historyLoaded;
+        if (f.isDone() && !f.isCompletedExceptionally()) return;
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            log.error("Background alert history load failed: {}", e.getMessage(), e);
+            throw new IllegalStateException("Alert history unavailable", e.getCause());
+        }
     }
 
+    /**
+     * Stream alerts_data.json into the store one record at a time, grouped by day, so there is no
+     * intermediate list of the whole file.
+     */
     private synchronized void loadFromFile() {
         if (!alertsFile.exists()) {
             log.info("alerts_data.json not found — starting with empty alert store.");
@@ -50,15 +174,21 @@ public class AlertService {
             return;
         }
 
-        try {
-            List<TradingViewAlert> list = mapper.readValue(alertsFile, new TypeReference<List<TradingViewAlert>>() {});
-            alertStore.clear();
-            if (list != null) {
-                for (TradingViewAlert a : list) {
-                    if (a != null && a.getId() != null) alertStore.put(a.getId(), a);
-                }
+        long start = System.nanoTime();
+        try (JsonParser parser = mapper.getFactory().createParser(alertsFile)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected an array of alerts");
+            TreeMap<LocalDate, List<TradingViewAlert>> byDay = new TreeMap<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                TradingViewAlert a = mapper.readValue(parser, TradingViewAlert.class);
+                byDay.computeIfAbsent(AlertStore.dayOf(a), d -> new ArrayList<>()).add(a);
             }
-            log.info("Loaded {} alerts from {}", alertStore.size(), alertsFile.getAbsolutePath());
+            if (parser.currentToken() != JsonToken.END_ARRAY)
+                throw new JsonParseException(parser, "Unexpected token " + parser.currentToken());
+            // oldest day first, so alerts without a seq are numbered in timestamp order
+            while (!byDay.isEmpty()) alertStore.merge(byDay.pollFirstEntry().getValue());
+            log.info("Loaded {} alerts from {} in {} ms", alertStore.size(), alertsFile.getAbsolutePath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         } catch (JsonProcessingException jpe) {
             // Malformed JSON: move file aside and continue with empty store
             try {
@@ -69,51 +199,129 @@ public class AlertService {
             } catch (IOException ex) {
                 log.error("Failed to move corrupted alerts file: {}", ex.getMessage(), ex);
             }
-            alertStore.clear();
+            alertStore.load(List.of());
         } catch (IOException e) {
             log.error("Error reading alerts file: {}", e.getMessage(), e);
-            alertStore.clear();
+            alertStore.load(List.of());
         }
     }
 
-    private synchronized void persistToFile() {
+    /**
+     * Background compaction: once enough records accumulate in the journal, write a full snapshot
+     * and drop the journaled records it now covers.
+     */
+    private void compactIfNeeded() {
+        // a snapshot written before history is loaded would drop it
+        if (!historyLoaded.isDone()) return;
+        if (journal.recordCount() >= compactThreshold) compact();
+    }
+
+    // separate from the service monitor so ingestion never waits on a snapshot write
+    private void compact() {
+        synchronized (compactionLock) {
+            try {
+                ensureHistoryLoaded();
+                Path rotated = journal.rotate();
+                if (rotated == null && (Files.exists(snapshotFile) || alertStore.size() == 0)) return;
+                // every record in the rotated journal is already in alertStore
+                if (persistToFile()) journal.discardRotated();
+            } catch (IOException | IllegalStateException e) {
+                log.error("Alert journal compaction failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean persistToFile() {
+        if (writeJson && !persistJson()) return false;
         try {
-            List<TradingViewAlert> list = new ArrayList<>(alertStore.values());
-            // sort by timestamp desc, nulls last
-            list.sort(Comparator.comparing(TradingViewAlert::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder())).reversed());
-
-            // write to temp file in same directory and move atomically
-            Path parent = alertsFile.toPath().toAbsolutePath().getParent();
-            if (parent == null) parent = Path.of(".");
-            Path tmp = Files.createTempFile(parent, "alerts_data", ".json.tmp");
-            mapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), list);
-            Files.move(tmp, alertsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            AlertSnapshotFile.write(snapshotFile, alertStore);
+            log.debug("Persisted {} alerts to {}", alertStore.size(), snapshotFile.toAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to write alert snapshot: {}", e.getMessage(), e);
+            // the JSON file is only a valid snapshot if it was written this round
+            return writeJson;
+        }
+    }
+
+    /**
+     * Replace alerts_data.json with the store's contents: write a temp file in the same directory,
+     * fsync it, rename it over the old file and fsync the directory, so a crash leaves either the
+     * old file or the complete new one. On any failure the old file stays and this returns false,
+     * which keeps the journal.
+     */
+    private boolean persistJson() {
+        Path target = alertsFile.toPath().toAbsolutePath();
+        Path tmp = null;
+        try {
+            // already newest first
+            List<TradingViewAlert> list = alertStore.all();
+            tmp = Files.createTempFile(target.getParent(), "alerts_data", ".json.tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                mapper.writerWithDefaultPrettyPrinter().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, list);
+                out.getFD().sync();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            AlertSnapshotFile.syncDirectory(target.getParent());
             log.debug("Persisted {} alerts to {}", list.size(), alertsFile.getAbsolutePath());
+            return true;
         } catch (IOException e) {
             log.error("Failed to persist alerts to file: {}", e.getMessage(), e);
-            // fallback: try direct write (non-atomic)
-            try {
-                mapper.writerWithDefaultPrettyPrinter().writeValue(alertsFile, new ArrayList<>(alertStore.values()));
-            } catch (IOException ex) {
-                log.error("Fallback write also failed: {}", ex.getMessage(), ex);
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
             }
+            return false;
         }
     }
 
-    public synchronized TradingViewAlert createFromPayload(Map<String, Object> payload) {
+    private void appendToJournal(TradingViewAlert alert) {
+        try {
+            journal.append(alert);
+        } catch (IOException e) {
+            log.error("Failed to journal alert {}: {}", alert.getId(), e.getMessage(), e);
+        }
+    }
+
+    public TradingViewAlert createFromPayload(Map<String, Object> payload) {
+        TradingViewAlert alert = buildFromPayload(UUID.randomUUID().toString(), payload, LocalDateTime.now());
+        // as in claim and update: no status change can reach the journal ahead of the create line
+        synchronized (this) {
+            alertStore.put(alert);
+            appendToJournal(alert);
+        }
+        log.info("[ALERT STORED] {} {}", alert.getTicker(), alert.getAction());
+        notifyListeners(alert);
+        return alert;
+    }
+
+    /**
+     * Parse a webhook payload into a NEW alert without storing it. An action other than buy or
+     * sell gives a FAILED alert instead, so it is kept and shown but never traded.
+     */
+    public TradingViewAlert buildFromPayload(String id, Map<String, Object> payload, LocalDateTime receivedAt) {
         TradingViewAlert alert = new TradingViewAlert();
-        alert.setId(UUID.randomUUID().toString());
+        alert.setId(id);
         alert.setRawPayload(payload);
-        alert.setTimestamp(LocalDateTime.now());
+        alert.setTimestamp(receivedAt);
 
         alert.setTicker(Optional.ofNullable(payload.get("ticker")).map(Object::toString).orElse("UNKNOWN"));
         alert.setExchange(Optional.ofNullable(payload.get("exchange")).map(Object::toString).orElse("NSE"));
         alert.setInterval(Optional.ofNullable(payload.get("interval")).map(Object::toString).orElse("1"));
-        alert.setTime(Optional.ofNullable(payload.get("time")).map(Object::toString).orElse(LocalDateTime.now().toString()));
+        // without a bar time, getTime() falls back to the receive timestamp
+        if (payload.get("time") != null) alert.setTime(payload.get("time").toString());
 
+        // no action at all means buy; one we cannot read must not become a buy
         Object act = payload.get("action");
         if (act == null) act = payload.getOrDefault("strategy.order.action", null);
-        alert.setAction(act != null ? act.toString().toUpperCase() : "BUY");
+        alert.setAlertAction(act != null ? AlertAction.parse(act.toString()) : AlertAction.BUY);
+        alert.setAlertStatus(AlertStatus.NEW);
+        if (alert.getAlertAction() == null) {
+            alert.setAlertStatus(AlertStatus.FAILED);
+            alert.setErrorMessage("Unknown action '" + act + "'");
+        }
 
         int qty = 1;
         try {
@@ -123,27 +331,139 @@ public class AlertService {
         alert.setQuantity(Math.max(1, qty));
 
         if (payload.get("symboltoken") != null) alert.setSymboltoken(payload.get("symboltoken").toString());
-
-        alert.setStatus("NEW");
-        alertStore.put(alert.getId(), alert);
-        persistToFile();
-        log.info("[ALERT STORED] {} {}", alert.getTicker(), alert.getAction());
         return alert;
     }
 
+    /**
+     * Store a batch of new alerts with a single journal write.
+     */
+    public void storeAll(List<TradingViewAlert> alerts) {
+        if (alerts.isEmpty()) return;
+        synchronized (this) {
+            for (TradingViewAlert a : alerts) alertStore.put(a);
+            try {
+                journal.appendAll(alerts);
+            } catch (IOException e) {
+                log.error("Failed to journal {} alerts: {}", alerts.size(), e.getMessage(), e);
+            }
+        }
+        log.info("[ALERTS STORED] {} alerts", alerts.size());
+        for (TradingViewAlert a : alerts) notifyListeners(a);
+    }
+
+    /**
+     * Register a callback for newly stored alerts. Listeners run on the storing thread and must not block.
+     */
+    public void addAlertListener(Consumer<TradingViewAlert> listener) {
+        alertListeners.add(listener);
+    }
+
+    private void notifyListeners(TradingViewAlert alert) {
+        for (Consumer<TradingViewAlert> l : alertListeners) {
+            try {
+                l.accept(alert);
+            } catch (Exception e) {
+                log.error("Alert listener failed for {}: {}", alert.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Today's alerts, newest first. Read-only view; no copy or sort per call.
+     */
     public List<TradingViewAlert> getTodaysAlerts() {
-        List<TradingViewAlert> list = new ArrayList<>(alertStore.values());
-        list.sort(Comparator.comparing(TradingViewAlert::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder())).reversed());
-        return list;
+        return alertStore.day(LocalDate.now());
+    }
+
+    /**
+     * Today's alerts with the given status, newest first. Read-only view.
+     */
+    public List<TradingViewAlert> getTodaysAlerts(String status) {
+        return alertStore.dayByStatus(LocalDate.now(), status);
+    }
+
+    /**
+     * Alerts from the last {@code days} trading days (today included), newest first.
+     */
+    public List<TradingViewAlert> getRecentAlerts(int days) {
+        if (days > 1) ensureHistoryLoaded();
+        return alertStore.since(LocalDate.now().minusDays(Math.max(1, days) - 1L));
+    }
+
+    public List<TradingViewAlert> getAllAlerts() {
+        ensureHistoryLoaded();
+        return alertStore.all();
+    }
+
+    /**
+     * Sequence number of the most recently stored alert.
+     */
+    public long getLastSeq() {
+        return alertStore.lastSeq();
+    }
+
+    /**
+     * Up to {@code limit} alerts stored after {@code seq}, oldest first. O(result).
+     */
+    public List<TradingViewAlert> getAlertsAfter(long seq, int limit) {
+        ensureHistoryLoaded();
+        List<TradingViewAlert> out = new ArrayList<>();
+        for (TradingViewAlert a : alertStore.afterSeq(seq)) {
+            if (out.size() >= limit) break;
+            out.add(a);
+        }
+        return out;
     }
 
     public Optional<TradingViewAlert> findById(String id) {
-        return Optional.ofNullable(alertStore.get(id));
+        Optional<TradingViewAlert> found = alertStore.get(id);
+        if (found.isPresent() || historyLoaded.isDone()) return found;
+        ensureHistoryLoaded();
+        return alertStore.get(id);
+    }
+
+    /**
+     * Move an alert from {@code from} to {@code to} if it is still in {@code from}, and journal the
+     * change. Every path that may place an order takes the alert this way: the check and the write
+     * share the lock {@link #update} takes, so when the accept button and auto-execution race for
+     * one alert, exactly one of them gets it.
+     *
+     * @return the alert if this caller moved it; empty if it is unknown or in another status
+     */
+    public Optional<TradingViewAlert> claim(String id, AlertStatus from, AlertStatus to) {
+        Optional<TradingViewAlert> found = findById(id);
+        if (found.isEmpty()) return found;
+        TradingViewAlert alert = found.get();
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (alert.getAlertStatus() != from) return Optional.empty();
+            alert.setAlertStatus(to);
+            alertStore.put(alert);
+            appendToJournal(alert);
+        }
+        metrics.stage(LatencyMetrics.UPDATE, start);
+        return found;
     }
 
-    public synchronized void update(TradingViewAlert alert) {
+    public void update(TradingViewAlert alert) {
         if (alert == null || alert.getId() == null) return;
-        alertStore.put(alert.getId(), alert);
-        persistToFile();
+        long start = System.nanoTime();
+        synchronized (this) {
+            alertStore.put(alert);
+            appendToJournal(alert);
+        }
+        metrics.stage(LatencyMetrics.UPDATE, start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compact();
+        journal.close();
     }
 }
@@ -0,0 +1,236 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.AlertStatus;
+import com.algotrade.bot.model.TradingViewAlert;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Compact binary alert snapshot, organised as one block per trading day so a single day can be
+ * read without decoding the rest.
+ * <pre>
+ * header : magic(int) version(int) lastSeq(long) indexOffset(long)
+ * blocks : per day, {@code count} records back to back
+ * index  : dayCount(int), then per day: epochDay(long) offset(long) length(int) count(int)
+ * </pre>
+ */
+final class AlertSnapshotFile {
+
+    private static final int MAGIC = 0x41545331; // "ATS1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    // stored by ordinal: only append new constants
+    private static final AlertAction[] ACTIONS = AlertAction.values();
+    private static final AlertStatus[] STATUSES = AlertStatus.values();
+
+    record DayBlock(LocalDate day, long offset, int length, int count) {}
+
+    private final Path file;
+    private final long lastSeq;
+    private final NavigableMap<LocalDate, DayBlock> blocks;
+
+    private AlertSnapshotFile(Path file, long lastSeq, NavigableMap<LocalDate, DayBlock> blocks) {
+        this.file = file;
+        this.lastSeq = lastSeq;
+        this.blocks = blocks;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    NavigableMap<LocalDate, DayBlock> blocks() {
+        return blocks;
+    }
+
+    /**
+     * Read only the header and day index.
+     */
+    static AlertSnapshotFile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(ch, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not an alert snapshot: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported alert snapshot version " + version);
+            long lastSeq = header.getLong();
+            long indexOffset = header.getLong();
+
+            ByteBuffer index = ByteBuffer.allocate((int) (ch.size() - indexOffset));
+            readFully(ch, index, indexOffset);
+            index.flip();
+            int dayCount = index.getInt();
+            NavigableMap<LocalDate, DayBlock> blocks = new TreeMap<>();
+            for (int i = 0; i < dayCount; i++) {
+                LocalDate day = LocalDate.ofEpochDay(index.getLong());
+                blocks.put(day, new DayBlock(day, index.getLong(), index.getInt(), index.getInt()));
+            }
+            return new AlertSnapshotFile(file, lastSeq, blocks);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) throw new EOFException("Truncated alert snapshot");
+        }
+    }
+
+    /**
+     * Decode one day's alerts.
+     */
+    List<TradingViewAlert> readDay(DayBlock block) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(block.length());
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(ch, buf, block.offset());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.array()));
+        List<TradingViewAlert> out = new ArrayList<>(block.count());
+        for (int i = 0; i < block.count(); i++) out.add(readAlert(in));
+        return out;
+    }
+
+    /**
+     * Write every day of {@code store} to {@code target} via a temp file and an atomic move.
+     */
+    static void write(Path target, AlertStore store) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, "alerts_data", ".bin.tmp");
+        List<DayBlock> index = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.position(HEADER_BYTES);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            IOException[] failure = new IOException[1];
+            store.forEachDay((day, alerts) -> {
+                if (failure[0] != null || alerts.isEmpty()) return;
+                try {
+                    bytes.reset();
+                    for (TradingViewAlert a : alerts) writeAlert(out, a);
+                    out.flush();
+                    long offset = ch.position();
+                    ch.write(ByteBuffer.wrap(bytes.toByteArray()));
+                    index.add(new DayBlock(day, offset, bytes.size(), alerts.size()));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+
+            long indexOffset = ch.position();
+            ByteBuffer idx = ByteBuffer.allocate(4 + index.size() * (8 + 8 + 4 + 4));
+            idx.putInt(index.size());
+            for (DayBlock b : index) idx.putLong(b.day().toEpochDay()).putLong(b.offset()).putInt(b.length()).putInt(b.count());
+            idx.flip();
+            while (idx.hasRemaining()) ch.write(idx);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(store.lastSeq()).putLong(indexOffset).flip();
+            while (header.hasRemaining()) ch.write(header, header.position());
+            ch.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * fsync a directory, so a file just renamed into it survives a crash.
+     */
+    static void syncDirectory(Path dir) throws IOException {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        }
+    }
+
+    // -----------------------
+    // Record encoding
+    // -----------------------
+
+    private static void writeAlert(DataOutputStream out, TradingViewAlert a) throws IOException {
+        writeString(out, a.getId());
+        out.writeLong(a.getSeq());
+        writeString(out, a.getTicker());
+        writeString(out, a.getExchange());
+        writeString(out, a.getInterval());
+        out.writeLong(a.getTimestampMillis());
+        // written after the timestamp so a derived time collapses back to null on read
+        writeString(out, a.getTime());
+        out.writeByte(a.getAlertAction() != null ? a.getAlertAction().ordinal() : -1);
+        out.writeInt(a.getQuantity());
+        out.writeByte(a.getAlertStatus() != null ? a.getAlertStatus().ordinal() : -1);
+        writeBytes(out, a.orderResultBytes());
+        writeString(out, a.getErrorMessage());
+        writeBytes(out, a.rawPayloadBytes());
+        writeString(out, a.getSymboltoken());
+    }
+
+    private static TradingViewAlert readAlert(DataInputStream in) throws IOException {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setId(readString(in));
+        a.setSeq(in.readLong());
+        a.setTicker(readString(in));
+        a.setExchange(readString(in));
+        a.setInterval(readString(in));
+        long ts = in.readLong();
+        if (ts != Long.MIN_VALUE) a.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(ts, 1000L),
+                (int) Math.floorMod(ts, 1000L) * 1_000_000, ZoneOffset.UTC));
+        a.setTime(readString(in));
+        a.setAlertAction(readEnum(in, ACTIONS));
+        a.setQuantity(in.readInt());
+        a.setAlertStatus(readEnum(in, STATUSES));
+        a.orderResultBytes(readBytes(in));
+        a.setErrorMessage(readString(in));
+        a.rawPayloadBytes(readBytes(in));
+        a.setSymboltoken(readString(in));
+        return a;
+    }
+
+    private static <E> E readEnum(DataInputStream in, E[] values) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0) return null;
+        if (ordinal >= values.length) throw new IOException("Unknown enum ordinal " + ordinal);
+        return values[ordinal];
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s != null ? s.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] b = readBytes(in);
+        return b != null ? new String(b, StandardCharsets.UTF_8) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+        if (b == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+}
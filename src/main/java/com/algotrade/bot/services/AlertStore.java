@@ -0,0 +1,239 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * In-memory alert store partitioned by trading day.
+ * <p>
+ * Each day keeps its alerts in timestamp order plus secondary indexes by ticker, status and
+ * action, so reads like "today, newest first" or "today, status NEW" return a view in O(1)
+ * and iterate in O(result). Every alert also gets a sequence number the first time it is
+ * stored, and {@link #afterSeq(long)} reads the alerts after a given one from a seq-ordered map.
+ * Writes are serialized on the store; reads never lock.
+ */
+public class AlertStore {
+
+    /** Partition for alerts that have no timestamp. */
+    static final LocalDate UNDATED = LocalDate.EPOCH;
+
+    private record IndexKey(LocalDate day, String ticker, String status, String action) {
+        static IndexKey of(TradingViewAlert a) {
+            return new IndexKey(dayOf(a), key(a.getTicker()), key(a.getStatus()), key(a.getAction()));
+        }
+    }
+
+    private static final class DayPartition {
+        final AlertTimeline all = new AlertTimeline();
+        final Map<String, AlertTimeline> byTicker = new ConcurrentHashMap<>();
+        final Map<String, AlertTimeline> byStatus = new ConcurrentHashMap<>();
+        final Map<String, AlertTimeline> byAction = new ConcurrentHashMap<>();
+
+        void add(TradingViewAlert a, IndexKey k) {
+            all.add(a);
+            byTicker.computeIfAbsent(k.ticker(), t -> new AlertTimeline()).add(a);
+            byStatus.computeIfAbsent(k.status(), t -> new AlertTimeline()).add(a);
+            byAction.computeIfAbsent(k.action(), t -> new AlertTimeline()).add(a);
+        }
+
+        void remove(TradingViewAlert a, IndexKey k) {
+            all.remove(a);
+            removeFrom(byTicker, k.ticker(), a);
+            removeFrom(byStatus, k.status(), a);
+            removeFrom(byAction, k.action(), a);
+        }
+
+        private static void removeFrom(Map<String, AlertTimeline> index, String key, TradingViewAlert a) {
+            AlertTimeline t = index.get(key);
+            if (t != null && t.remove(a) && t.size() == 0) index.remove(key);
+        }
+    }
+
+    private final Map<String, TradingViewAlert> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, DayPartition> days = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, TradingViewAlert> bySeq = new ConcurrentSkipListMap<>();
+    private volatile long lastSeq;
+    // what each alert is currently indexed under, so a status change can move it; guarded by this
+    private final Map<String, IndexKey> indexed = new HashMap<>();
+
+    static LocalDate dayOf(TradingViewAlert a) {
+        long ts = a.getTimestampMillis();
+        return ts != Long.MIN_VALUE ? LocalDate.ofEpochDay(Math.floorDiv(ts, 86_400_000L)) : UNDATED;
+    }
+
+    private static String key(String s) {
+        return s == null ? "" : s.toUpperCase();
+    }
+
+    /**
+     * Insert or re-index an alert, assigning the next sequence number if it has none.
+     * Call again after mutating status/action/ticker.
+     */
+    public synchronized void put(TradingViewAlert alert) {
+        TradingViewAlert prev = byId.put(alert.getId(), alert);
+        if (alert.getSeq() == 0 && prev != null) alert.setSeq(prev.getSeq());
+        // seqs are handed out and published under the store lock, so a reader that sees
+        // seq N also sees every seq below it
+        if (alert.getSeq() == 0) alert.setSeq(lastSeq + 1);
+        if (alert.getSeq() > lastSeq) lastSeq = alert.getSeq();
+        if (prev != null && prev.getSeq() != alert.getSeq()) bySeq.remove(prev.getSeq(), prev);
+        bySeq.put(alert.getSeq(), alert);
+
+        IndexKey now = IndexKey.of(alert);
+        IndexKey old = indexed.put(alert.getId(), now);
+
+        if (prev == alert && now.equals(old)) return;
+        if (prev != null && old != null) {
+            DayPartition p = days.get(old.day());
+            if (p != null) p.remove(prev, old);
+        }
+        days.computeIfAbsent(now.day(), d -> new DayPartition()).add(alert, now);
+    }
+
+    /**
+     * Replace the whole store, sorting each partition once.
+     */
+    public synchronized void load(Collection<TradingViewAlert> alerts) {
+        byId.clear();
+        indexed.clear();
+        days.clear();
+        bySeq.clear();
+        lastSeq = 0;
+        merge(alerts);
+    }
+
+    /**
+     * Bulk-add alerts whose ids are not in the store yet; ids already present keep their current
+     * (newer) state. Days that have no partition yet are built with one sort. Alerts without a
+     * seq are numbered in timestamp order after everything stored so far.
+     */
+    public synchronized void merge(Collection<TradingViewAlert> alerts) {
+        List<TradingViewAlert> added = new ArrayList<>(alerts.size());
+        for (TradingViewAlert a : alerts) {
+            if (a == null || a.getId() == null) continue;
+            if (byId.putIfAbsent(a.getId(), a) == null) added.add(a);
+        }
+        // alerts stored before sequence numbers existed get them in timestamp order
+        added.sort(AlertTimeline.ORDER);
+        for (TradingViewAlert a : added) if (a.getSeq() > lastSeq) lastSeq = a.getSeq();
+        for (TradingViewAlert a : added) {
+            if (a.getSeq() == 0) a.setSeq(++lastSeq);
+            bySeq.put(a.getSeq(), a);
+        }
+
+        Map<LocalDate, List<TradingViewAlert>> grouped = new HashMap<>();
+        for (TradingViewAlert a : added) {
+            IndexKey k = IndexKey.of(a);
+            indexed.put(a.getId(), k);
+            grouped.computeIfAbsent(k.day(), d -> new ArrayList<>()).add(a);
+        }
+        grouped.forEach((day, list) -> {
+            DayPartition existing = days.get(day);
+            if (existing != null) {
+                for (TradingViewAlert a : list) existing.add(a, indexed.get(a.getId()));
+                return;
+            }
+            DayPartition p = new DayPartition();
+            p.all.reset(list);
+            Map<String, List<TradingViewAlert>> t = new HashMap<>(), s = new HashMap<>(), ac = new HashMap<>();
+            for (TradingViewAlert a : list) {
+                IndexKey k = indexed.get(a.getId());
+                t.computeIfAbsent(k.ticker(), x -> new ArrayList<>()).add(a);
+                s.computeIfAbsent(k.status(), x -> new ArrayList<>()).add(a);
+                ac.computeIfAbsent(k.action(), x -> new ArrayList<>()).add(a);
+            }
+            resetIndex(p.byTicker, t);
+            resetIndex(p.byStatus, s);
+            resetIndex(p.byAction, ac);
+            days.put(day, p);
+        });
+    }
+
+    private static void resetIndex(Map<String, AlertTimeline> index, Map<String, List<TradingViewAlert>> groups) {
+        groups.forEach((k, list) -> {
+            AlertTimeline t = new AlertTimeline();
+            t.reset(list);
+            index.put(k, t);
+        });
+    }
+
+    /**
+     * Make sure new alerts are numbered after {@code seq}, e.g. when older history is still to be loaded.
+     */
+    public synchronized void reserveSeq(long seq) {
+        if (seq > lastSeq) lastSeq = seq;
+    }
+
+    /**
+     * Visit each day's alerts, oldest day first; each list is newest first.
+     */
+    public void forEachDay(BiConsumer<LocalDate, List<TradingViewAlert>> visitor) {
+        days.forEach((day, p) -> visitor.accept(day, p.all.newestFirst()));
+    }
+
+    public Optional<TradingViewAlert> get(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /** Highest sequence number handed out so far (0 when empty). */
+    public long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Alerts with a sequence number greater than {@code seq}, oldest first. O(result).
+     */
+    public Collection<TradingViewAlert> afterSeq(long seq) {
+        return Collections.unmodifiableCollection(bySeq.tailMap(seq, false).values());
+    }
+
+    /** All alerts of one day, newest first. */
+    public List<TradingViewAlert> day(LocalDate day) {
+        DayPartition p = days.get(day);
+        return p == null ? List.of() : p.all.newestFirst();
+    }
+
+    public List<TradingViewAlert> dayByStatus(LocalDate day, String status) {
+        return indexed(day, status, p -> p.byStatus);
+    }
+
+    public List<TradingViewAlert> dayByTicker(LocalDate day, String ticker) {
+        return indexed(day, ticker, p -> p.byTicker);
+    }
+
+    public List<TradingViewAlert> dayByAction(LocalDate day, String action) {
+        return indexed(day, action, p -> p.byAction);
+    }
+
+    private List<TradingViewAlert> indexed(LocalDate day, String value,
+                                           Function<DayPartition, Map<String, AlertTimeline>> index) {
+        DayPartition p = days.get(day);
+        if (p == null) return List.of();
+        AlertTimeline t = index.apply(p).get(key(value));
+        return t == null ? List.of() : t.newestFirst();
+    }
+
+    /**
+     * Alerts from {@code from} (inclusive) onwards, newest first. Copies O(result).
+     */
+    public List<TradingViewAlert> since(LocalDate from) {
+        List<TradingViewAlert> out = new ArrayList<>();
+        for (DayPartition p : days.tailMap(from, true).descendingMap().values()) out.addAll(p.all.newestFirst());
+        return out;
+    }
+
+    /** Every alert, newest first. Copies O(n). */
+    public List<TradingViewAlert> all() {
+        return since(LocalDate.MIN);
+    }
+}
@@ -0,0 +1,111 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+
+import java.util.*;
+
+/**
+ * Alerts kept in timestamp order in an array that is published as an immutable snapshot.
+ * <p>
+ * Readers take the current snapshot without locking and get an O(1) newest-first view of it.
+ * Writers must be serialized by the caller. In-order appends write into spare capacity past the
+ * published size (invisible to existing snapshots), so they are amortized O(1); out-of-order
+ * inserts and removals copy the array.
+ */
+final class AlertTimeline {
+
+    static final Comparator<TradingViewAlert> ORDER = Comparator
+            // no timestamp is Long.MIN_VALUE, so those sort first
+            .comparingLong(TradingViewAlert::getTimestampMillis)
+            .thenComparing(TradingViewAlert::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private record Snapshot(TradingViewAlert[] items, int size) {}
+
+    private volatile Snapshot snapshot = new Snapshot(new TradingViewAlert[8], 0);
+
+    void add(TradingViewAlert alert) {
+        Snapshot s = snapshot;
+        TradingViewAlert[] items = s.items();
+        int n = s.size();
+
+        if (n == 0 || ORDER.compare(items[n - 1], alert) <= 0) {
+            if (n == items.length) items = Arrays.copyOf(items, n * 2);
+            items[n] = alert;
+            snapshot = new Snapshot(items, n + 1);
+            return;
+        }
+
+        int pos = Arrays.binarySearch(items, 0, n, alert, ORDER);
+        if (pos < 0) pos = -pos - 1;
+        TradingViewAlert[] copy = new TradingViewAlert[n == items.length ? n * 2 : items.length];
+        System.arraycopy(items, 0, copy, 0, pos);
+        copy[pos] = alert;
+        System.arraycopy(items, pos, copy, pos + 1, n - pos);
+        snapshot = new Snapshot(copy, n + 1);
+    }
+
+    boolean remove(TradingViewAlert alert) {
+        Snapshot s = snapshot;
+        TradingViewAlert[] items = s.items();
+        int n = s.size();
+        int idx = indexOf(items, n, alert);
+        if (idx < 0) return false;
+
+        TradingViewAlert[] copy = new TradingViewAlert[items.length];
+        System.arraycopy(items, 0, copy, 0, idx);
+        System.arraycopy(items, idx + 1, copy, idx, n - idx - 1);
+        snapshot = new Snapshot(copy, n - 1);
+        return true;
+    }
+
+    private static int indexOf(TradingViewAlert[] items, int n, TradingViewAlert alert) {
+        int pos = Arrays.binarySearch(items, 0, n, alert, ORDER);
+        if (pos >= 0 && items[pos] == alert) return pos;
+        // equal keys or a mutated sort key: fall back to an identity scan
+        for (int i = n - 1; i >= 0; i--) if (items[i] == alert) return i;
+        return -1;
+    }
+
+    /**
+     * Replace the contents with {@code alerts}, sorting once. Used for bulk loads.
+     */
+    void reset(List<TradingViewAlert> alerts) {
+        TradingViewAlert[] items = alerts.toArray(new TradingViewAlert[Math.max(8, alerts.size())]);
+        Arrays.sort(items, 0, alerts.size(), ORDER);
+        snapshot = new Snapshot(items, alerts.size());
+    }
+
+    int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Read-only newest-first view of the current snapshot. O(1); later writes are not visible.
+     */
+    List<TradingViewAlert> newestFirst() {
+        Snapshot s = snapshot;
+        if (s.size() == 0) return List.of();
+        return new NewestFirst(s.items(), s.size());
+    }
+
+    private static final class NewestFirst extends AbstractList<TradingViewAlert> implements RandomAccess {
+        private final TradingViewAlert[] items;
+        private final int size;
+
+        NewestFirst(TradingViewAlert[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        public TradingViewAlert get(int index) {
+            Objects.checkIndex(index, size);
+            return items[size - 1 - index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.algotrade.bot.services;
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -21,9 +21,18 @@ public class AliceBlueService {
     @Value("${aliceblue.api-key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final BrokerHttpTransport transport;
     private String sessionId; // cached session
 
+    public AliceBlueService(BrokerHttpTransport transport) {
+        this.transport = transport;
+    }
+
+    @PostConstruct
+    void registerWarmup() {
+        transport.addWarmupTarget(baseUrl);
+    }
+
     // Step 1: Get Encryption Key
     public String getEncryptionKey(String userId) {
         String url = baseUrl + "/customer/getAPIEncpkey";
@@ -33,7 +42,7 @@ public class AliceBlueService {
                 new HttpEntity<>(req, getJsonHeaders());
 
         ResponseEntity<Map> response =
-                restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
+                transport.queries().exchange(url, HttpMethod.POST, entity, Map.class);
 
         if ("Ok".equals(response.getBody().get("stat"))) {
             return (String) response.getBody().get("encKey");
@@ -68,7 +77,7 @@ public class AliceBlueService {
                 new HttpEntity<>(req, getJsonHeaders());
 
         ResponseEntity<Map> response =
-                restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
+                transport.queries().exchange(url, HttpMethod.POST, entity, Map.class);
 
         if ("Ok".equals(response.getBody().get("stat"))) {
             sessionId = (String) response.getBody().get("sessionID");
@@ -116,7 +125,7 @@ public class AliceBlueService {
         HttpEntity<List<Map<String, Object>>> entity = new HttpEntity<>(payload, headers);
 
         ResponseEntity<List> response =
-                restTemplate.exchange(url, HttpMethod.POST, entity, List.class);
+                transport.orders().exchange(url, HttpMethod.POST, entity, List.class);
 
         return response.getBody();
     }
@@ -0,0 +1,71 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.angelone.*;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.CoercionAction;
+import com.fasterxml.jackson.databind.cfg.CoercionInputShape;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoding of AngelOne response bodies.
+ * <p>
+ * One mapper with the Blackbird module, which binds records through generated lambdas instead of
+ * reflection, and one prebuilt reader per response type, so nothing is looked up per call. Unknown
+ * fields are skipped and an empty string reads as 0, because the broker adds fields freely and
+ * sends some numbers as {@code ""}.
+ */
+final class AngelOneJson {
+
+    private static final JsonMapper MAPPER;
+
+    static {
+        MAPPER = JsonMapper.builder()
+                .addModule(new BlackbirdModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        MAPPER.coercionConfigDefaults().setCoercion(CoercionInputShape.EmptyString, CoercionAction.AsEmpty);
+    }
+
+    /** The whole body as maps and lists, for callers that hand it on untyped. */
+    static final ObjectReader MAP = MAPPER.readerFor(Map.class);
+    static final ObjectReader TOKENS = envelope(SessionTokens.class);
+    static final ObjectReader ORDER = envelope(OrderAck.class);
+    static final ObjectReader ORDER_BOOK = envelopeOfList(OrderBookEntry.class);
+    static final ObjectReader TRADE_BOOK = envelopeOfList(TradeBookEntry.class);
+    static final ObjectReader HOLDINGS = envelope(Holdings.class);
+    static final ObjectReader SEARCH = envelopeOfList(ScripMatch.class);
+
+    private AngelOneJson() {
+    }
+
+    private static ObjectReader envelope(Class<?> data) {
+        return MAPPER.readerFor(TypeFactory.defaultInstance().constructParametricType(AngelResponse.class, data));
+    }
+
+    private static ObjectReader envelopeOfList(Class<?> element) {
+        TypeFactory types = TypeFactory.defaultInstance();
+        JavaType list = types.constructCollectionType(List.class, element);
+        return MAPPER.readerFor(types.constructParametricType(AngelResponse.class, list));
+    }
+
+    /**
+     * @return null for an empty body
+     */
+    static <T> T read(ObjectReader reader, byte[] body) {
+        if (body == null || body.length == 0) return null;
+        try {
+            return reader.readValue(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable AngelOne response: " + e.getMessage(), e);
+        }
+    }
+}
@@ -9,7 +9,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import com.algotrade.bot.model.*;
+import com.algotrade.bot.model.angelone.*;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 
 
 @Service
@@ -34,7 +40,35 @@ public class AngelOneService {
     private String macAddress;
 
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final BrokerHttpTransport transport;
+    private final LatencyMetrics metrics;
+    // one virtual thread per async call: they spend their life blocked on the broker
+    private final ExecutorService async = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("angelone-async-", 0).factory());
+
+    private final BrokerRateLimiter rateLimiter;
+    private final TokenVault tokenVault;
+    private final BrokerReadCache readCache = new BrokerReadCache();
+    private final long bookTtlMs;
+    private final long accountTtlMs;
+
+    public AngelOneService(BrokerHttpTransport transport, LatencyMetrics metrics, TokenVault tokenVault,
+                           @Value("${angel.ratelimit.limits:}") String limits,
+                           @Value("${angel.ratelimit.default:5}") double defaultRate,
+                           @Value("${angel.ratelimit.global:20}") double globalRate,
+                           @Value("${angel.ratelimit.max-wait-ms:10000}") long maxWaitMs,
+                           @Value("${angel.cache.book-ttl-ms:5000}") long bookTtlMs,
+                           @Value("${angel.cache.account-ttl-ms:300000}") long accountTtlMs) {
+        this.transport = transport;
+        this.metrics = metrics;
+        this.tokenVault = tokenVault;
+        tokenVault.setRefresher(this::generateTokens);
+        this.bookTtlMs = bookTtlMs;
+        this.accountTtlMs = accountTtlMs;
+        this.rateLimiter = new BrokerRateLimiter("angelone", BrokerRateLimiter.parseRates(limits),
+                defaultRate, globalRate, maxWaitMs, metrics);
+        transport.addWarmupTarget(BASE_URL);
+    }
 
     // Endpoints
     private static final String LOGIN_URL = BASE_URL + "/auth/angelbroking/user/v1/loginByPassword";
@@ -50,7 +84,13 @@ public class AngelOneService {
     private static final String GET_ORDER_DETAILS_URL_TEMPLATE = BASE_URL + "/secure/angelbroking/order/v1/details/%s";
     private static final String LOGOUT_URL = BASE_URL + "/secure/angelbroking/user/v1/logout";
     private static final String GET_ALL_HOLDING_URL = BASE_URL + "/secure/angelbroking/portfolio/v1/getAllHolding";
+    private static final String MARKET_QUOTE_URL = BASE_URL + "/secure/angelbroking/market/v1/quote/";
+
 
+    // order writes get the shorter read timeout
+    private static final Set<String> ORDER_URLS = Set.of(PLACE_ORDER_URL, MODIFY_ORDER_URL, CANCEL_ORDER_URL);
+    // share the order class with order writes: an order may be waiting on them
+    private static final Set<String> AUTH_URLS = Set.of(LOGIN_URL, GENERATE_TOKENS_URL);
 
     private static final String SEARCH_SCRIP_URL = BASE_URL + "/secure/angelbroking/order/v1/searchScrip";
     private static final String INTRADAY_NSE_URL = BASE_URL + "/secure/angelbroking/marketData/v1/nseIntraday";
@@ -62,8 +102,7 @@ public class AngelOneService {
      * Login using clientCode (client code = userId) and totp.
      * Stores jwtToken, refreshToken, feedToken, clientCode into session.
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> login(String clientCode, String totp, HttpSession session) {
+    public SessionTokens login(String clientCode, String totp, HttpSession session) {
         Map<String, String> body = new HashMap<>();
         body.put("clientcode", clientCode);
         body.put("password", password);
@@ -72,22 +111,22 @@ public class AngelOneService {
 
         HttpEntity<Map<String, String>> request = new HttpEntity<>(body, baseHeaders());
         try {
-            ResponseEntity<Map> respEntity = restTemplate.exchange(LOGIN_URL, HttpMethod.POST, request, Map.class);
-            Map<String, Object> resp = respEntity.getBody();
-            Boolean ok = resp != null ? (Boolean) resp.get("status") : Boolean.FALSE;
-            if (Boolean.TRUE.equals(ok)) {
-                Map<String, Object> data = (Map<String, Object>) resp.get("data");
+            AngelResponse<SessionTokens> resp = exchange(LOGIN_URL, HttpMethod.POST, request, AngelOneJson.TOKENS);
+            if (resp != null && resp.status()) {
+                SessionTokens data = resp.data();
                 if (data == null) throw new RuntimeException("Login succeeded but no token data returned.");
 
-                session.setAttribute("jwtToken", data.get("jwtToken"));
-                session.setAttribute("refreshToken", data.get("refreshToken"));
-                session.setAttribute("feedToken", data.get("feedToken"));
+                session.setAttribute("jwtToken", data.jwtToken());
+                session.setAttribute("refreshToken", data.refreshToken());
+                session.setAttribute("feedToken", data.feedToken());
                 session.setAttribute("clientCode", clientCode);
+                tokenVault.put(clientCode, data.jwtToken(), data.refreshToken(), data.feedToken());
+                readCache.invalidate(clientCode);
 
                 log.info("login: success for clientCode={}", clientCode);
                 return data;
             } else {
-                throw new RuntimeException("Login failed: " + (resp != null ? resp.get("message") : "unknown"));
+                throw new RuntimeException("Login failed: " + (resp != null ? resp.message() : "unknown"));
             }
         } catch (HttpClientErrorException e) {
             throw new RuntimeException("Login HTTP error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
@@ -95,44 +134,80 @@ public class AngelOneService {
     }
 
     /**
-     * Refresh JWT using refreshToken stored in session. Updates session tokens and returns token data.
+     * Refresh the JWT for the session's client through the token vault. Updates session tokens and
+     * returns token data.
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> refreshTokens(HttpSession session) {
-        String refreshToken = (String) session.getAttribute("refreshToken");
-        if (refreshToken == null) throw new RuntimeException("No refresh token in session.");
+        if (tokens(session) == null) throw new RuntimeException("No refresh token in session.");
+        TokenVault.Tokens t = tokenVault.refresh(clientCode(session), null);
+        mirror(session, t);
+        Map<String, Object> data = new HashMap<>();
+        data.put("jwtToken", t.jwt());
+        data.put("refreshToken", t.refreshToken());
+        data.put("feedToken", t.feedToken());
+        return data;
+    }
+
+    // the vault's refresher: one generateTokens round trip
+    private TokenVault.Tokens generateTokens(TokenVault.Tokens current) {
+        if (current.refreshToken() == null) throw new RuntimeException("No refresh token for clientCode=" + current.clientCode());
 
         Map<String, String> body = new HashMap<>();
-        body.put("refreshToken", refreshToken);
+        body.put("refreshToken", current.refreshToken());
 
         HttpHeaders headers = baseHeaders();
-        String jwt = (String) session.getAttribute("jwtToken");
-        if (jwt != null) headers.set("Authorization", "Bearer " + jwt);
+        if (current.jwt() != null) headers.set("Authorization", "Bearer " + current.jwt());
 
         HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
 
         try {
-            ResponseEntity<Map> respEntity = restTemplate.exchange(GENERATE_TOKENS_URL, HttpMethod.POST, request, Map.class);
-            Map<String, Object> resp = respEntity.getBody();
-            Boolean ok = resp != null ? (Boolean) resp.get("status") : Boolean.FALSE;
-            if (Boolean.TRUE.equals(ok)) {
-                Map<String, Object> data = (Map<String, Object>) resp.get("data");
+            AngelResponse<SessionTokens> resp = exchange(GENERATE_TOKENS_URL, HttpMethod.POST, request, AngelOneJson.TOKENS);
+            if (resp != null && resp.status()) {
+                SessionTokens data = resp.data();
                 if (data == null) throw new RuntimeException("refreshTokens returned no data");
 
-                session.setAttribute("jwtToken", data.get("jwtToken"));
-                session.setAttribute("refreshToken", data.get("refreshToken"));
-                session.setAttribute("feedToken", data.get("feedToken"));
-
-                log.info("refreshTokens: updated tokens for clientCode={}", session.getAttribute("clientCode"));
-                return data;
+                log.info("refreshTokens: updated tokens for clientCode={}", current.clientCode());
+                return new TokenVault.Tokens(current.clientCode(), data.jwtToken(), data.refreshToken(),
+                        data.feedToken(), TokenVault.expiryOf(data.jwtToken()));
             } else {
-                throw new RuntimeException("refreshTokens failed: " + (resp != null ? resp.get("message") : "unknown"));
+                throw new RuntimeException("refreshTokens failed: " + (resp != null ? resp.message() : "unknown"));
             }
         } catch (HttpClientErrorException e) {
             throw new RuntimeException("refreshTokens HTTP error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
         }
     }
 
+    /**
+     * Whether the vault holds tokens for {@code clientCode}, so the clientCode overloads used by
+     * background engines can call the broker for it.
+     */
+    public boolean isLoggedIn(String clientCode) {
+        return tokenVault.get(clientCode) != null;
+    }
+
+    // the vault is the source of truth; tokens a session already holds are adopted on first use,
+    // but not after a logout from another session, whose tokens this session then drops
+    private TokenVault.Tokens tokens(HttpSession session) {
+        String clientCode = clientCode(session);
+        TokenVault.Tokens t = tokenVault.get(clientCode);
+        if (t == null && clientCode != null && session.getAttribute("jwtToken") != null) {
+            t = tokenVault.adopt(clientCode, (String) session.getAttribute("jwtToken"),
+                    (String) session.getAttribute("refreshToken"), (String) session.getAttribute("feedToken"));
+            if (t == null) {
+                session.removeAttribute("jwtToken");
+                session.removeAttribute("refreshToken");
+                session.removeAttribute("feedToken");
+            }
+        }
+        return t;
+    }
+
+    private static void mirror(HttpSession session, TokenVault.Tokens t) {
+        session.setAttribute("jwtToken", t.jwt());
+        session.setAttribute("refreshToken", t.refreshToken());
+        session.setAttribute("feedToken", t.feedToken());
+    }
+
     // -----------------------
     // Helpers (headers & retry)
     // -----------------------
@@ -151,29 +226,67 @@ public class AngelOneService {
     }
 
     private HttpHeaders authHeaders(HttpSession session) {
+        tokens(session);
+        return authHeaders(clientCode(session));
+    }
+
+    private HttpHeaders authHeaders(String clientCode) {
         HttpHeaders headers = baseHeaders();
-        String jwt = (String) session.getAttribute("jwtToken");
-        if (jwt != null) headers.setBearerAuth(jwt);
-        String clientCode = (String) session.getAttribute("clientCode");
+        TokenVault.Tokens t = tokenVault.get(clientCode);
+        if (t != null && t.jwt() != null) headers.setBearerAuth(t.jwt());
         if (clientCode != null) headers.set("X-ClientCode", clientCode);
         return headers;
     }
 
-    @SuppressWarnings("unchecked")
-    private ResponseEntity<Map> exchangeWithRetry(String url, HttpMethod method, HttpEntity<?> entity, HttpSession session) {
+    // every broker round trip goes through here so it is rate limited and timed per endpoint
+    // and the body is decoded with the given reader from AngelOneJson
+    private <T> T exchange(String url, HttpMethod method, HttpEntity<?> entity, ObjectReader reader) {
+        String endpoint = endpointName(url);
+        boolean order = ORDER_URLS.contains(url);
+        rateLimiter.acquire(endpoint, order || AUTH_URLS.contains(url)
+                ? BrokerRateLimiter.Priority.ORDER : BrokerRateLimiter.Priority.QUERY);
+        long start = System.nanoTime();
         try {
-            return restTemplate.exchange(url, method, entity, Map.class);
+            RestTemplate client = order ? transport.orders() : transport.queries();
+            return AngelOneJson.read(reader, client.exchange(url, method, entity, byte[].class).getBody());
+        } finally {
+            metrics.broker("angelone", endpoint, start);
+        }
+    }
+
+    private static String endpointName(String url) {
+        if (url.startsWith(GET_ORDER_DETAILS_URL_TEMPLATE.substring(0, GET_ORDER_DETAILS_URL_TEMPLATE.length() - 2)))
+            return "orderDetails";
+        int end = url.endsWith("/") ? url.length() - 1 : url.length();
+        return url.substring(url.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    private <T> T exchangeWithRetry(String url, HttpMethod method, HttpEntity<?> entity, HttpSession session, ObjectReader reader) {
+        return exchangeWithRetry(url, method, entity, clientCode(session), session, reader);
+    }
+
+    // session is null for background callers; otherwise it gets the refreshed tokens too
+    private <T> T exchangeWithRetry(String url, HttpMethod method, HttpEntity<?> entity, String clientCode,
+                                    HttpSession session, ObjectReader reader) {
+        try {
+            return exchange(url, method, entity, reader);
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
                 log.info("exchangeWithRetry: 401 for {}, attempting refresh and retry", url);
-                refreshTokens(session); // refresh then retry once
-
-                HttpHeaders retryHeaders = authHeaders(session);
+                // parallel calls can all get a 401 for the same expired token: the vault refreshes it once
+                String auth = entity != null ? entity.getHeaders().getFirst(HttpHeaders.AUTHORIZATION) : null;
+                String failedJwt = auth != null && auth.startsWith("Bearer ") ? auth.substring(7) : null;
+                if (session != null ? tokens(session) == null : tokenVault.get(clientCode) == null)
+                    throw new RuntimeException("Not authenticated. Please login.");
+                TokenVault.Tokens refreshed = tokenVault.refresh(clientCode, failedJwt); // refresh then retry once
+                if (session != null) mirror(session, refreshed);
+
+                HttpHeaders retryHeaders = authHeaders(clientCode);
                 HttpEntity<?> retryEntity = (entity != null && entity.getBody() != null)
                         ? new HttpEntity<>(entity.getBody(), retryHeaders)
                         : new HttpEntity<>(retryHeaders);
 
-                return restTemplate.exchange(url, method, retryEntity, Map.class);
+                return exchange(url, method, retryEntity, reader);
             }
             throw e;
         }
@@ -186,16 +299,20 @@ public class AngelOneService {
     /**
      * Fetch profile and store it in session (key: "profile") and update clientCode if present.
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getProfile(HttpSession session) {
         ensureJwt(session);
+        Map<String, Object> data = readCache.get(clientCode(session), "profile", accountTtlMs, () -> fetchProfile(session));
+        session.setAttribute("profile", data);
+        return data;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fetchProfile(HttpSession session) {
         HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_PROFILE_URL, HttpMethod.GET, entity, session);
-        Map<String, Object> body = resp.getBody();
+        Map<String, Object> body = exchangeWithRetry(GET_PROFILE_URL, HttpMethod.GET, entity, session, AngelOneJson.MAP);
         Boolean ok = body != null ? (Boolean) body.get("status") : Boolean.FALSE;
         if (Boolean.TRUE.equals(ok)) {
             Map<String, Object> data = (Map<String, Object>) body.get("data");
-            session.setAttribute("profile", data);
             if (data != null && data.get("clientcode") != null) session.setAttribute("clientCode", data.get("clientcode").toString());
             return data != null ? data : new HashMap<>();
         } else {
@@ -205,9 +322,10 @@ public class AngelOneService {
 
     public Map<String, Object> getRms(HttpSession session) {
         ensureJwt(session);
-        HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_RMS_URL, HttpMethod.GET, entity, session);
-        return resp.getBody();
+        return readCache.get(clientCode(session), "rms", bookTtlMs, () -> {
+            HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
+            return exchangeWithRetry(GET_RMS_URL, HttpMethod.GET, entity, session, AngelOneJson.MAP);
+        });
     }
 
     // -----------------------
@@ -218,18 +336,20 @@ public class AngelOneService {
      * Generic placeOrder - pass payload according to AngelOne docs.
      * Returns data map containing orderid/uniqueorderid on success.
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> placeOrder(HttpSession session, Map<String, Object> payload) {
         ensureJwt(session);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(PLACE_ORDER_URL, HttpMethod.POST, entity, session);
-        Map<String, Object> body = resp.getBody();
-        Boolean ok = body != null ? (Boolean) body.get("status") : Boolean.FALSE;
-        if (Boolean.TRUE.equals(ok)) {
-            return (Map<String, Object>) body.get("data");
-        } else {
-            throw new RuntimeException("placeOrder failed: " + (body != null ? body.get("message") : "unknown"));
-        }
+        return orderCall(PLACE_ORDER_URL, "placeOrder", clientCode(session), session, payload);
+    }
+
+    /**
+     * {@link #placeOrder(HttpSession, Map)} for a background engine, with {@code clientCode}'s
+     * tokens from the vault.
+     *
+     * @throws LoggedOutException if the client has logged out
+     */
+    public Map<String, Object> placeOrder(String clientCode, Map<String, Object> payload) {
+        ensureTokens(clientCode);
+        return orderCall(PLACE_ORDER_URL, "placeOrder", clientCode, null, payload);
     }
 
     /**
@@ -252,52 +372,50 @@ public class AngelOneService {
         return placeOrder(session, payload);
     }
 
-    @SuppressWarnings("unchecked")
     public Map<String, Object> modifyOrder(HttpSession session, Map<String, Object> payload) {
         ensureJwt(session);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(MODIFY_ORDER_URL, HttpMethod.POST, entity, session);
-        Map<String, Object> body = resp.getBody();
-        if (body != null && Boolean.TRUE.equals(body.get("status"))) {
-            return (Map<String, Object>) body.get("data");
-        } else {
-            throw new RuntimeException("modifyOrder failed: " + (body != null ? body.get("message") : "unknown"));
-        }
+        return orderCall(MODIFY_ORDER_URL, "modifyOrder", clientCode(session), session, payload);
     }
 
-    @SuppressWarnings("unchecked")
     public Map<String, Object> cancelOrder(HttpSession session, Map<String, Object> payload) {
         ensureJwt(session);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(CANCEL_ORDER_URL, HttpMethod.POST, entity, session);
-        Map<String, Object> body = resp.getBody();
-        if (body != null && Boolean.TRUE.equals(body.get("status"))) {
-            return (Map<String, Object>) body.get("data");
+        return orderCall(CANCEL_ORDER_URL, "cancelOrder", clientCode(session), session, payload);
+    }
+
+    // the acknowledgement is decoded typed and handed back in the map shape order results are stored in
+    private Map<String, Object> orderCall(String url, String name, String clientCode, HttpSession session,
+                                          Map<String, Object> payload) {
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(clientCode));
+        AngelResponse<OrderAck> body = exchangeWithRetry(url, HttpMethod.POST, entity, clientCode, session, AngelOneJson.ORDER);
+        if (body != null && body.status()) {
+            invalidateAfterOrder(clientCode);
+            return body.data() != null ? body.data().toMap() : null;
         } else {
-            throw new RuntimeException("cancelOrder failed: " + (body != null ? body.get("message") : "unknown"));
+            throw new RuntimeException(name + " failed: " + (body != null ? body.message() : "unknown"));
         }
     }
 
     public Map<String, Object> getOrderBook(HttpSession session) {
         ensureJwt(session);
-        HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_ORDER_BOOK_URL, HttpMethod.GET, entity, session);
-        return resp.getBody();
+        return readCache.get(clientCode(session), "orderBook", bookTtlMs, () -> {
+            HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
+            return exchangeWithRetry(GET_ORDER_BOOK_URL, HttpMethod.GET, entity, session, AngelOneJson.MAP);
+        });
     }
 
     public Map<String, Object> getTradeBook(HttpSession session) {
         ensureJwt(session);
-        HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_TRADE_BOOK_URL, HttpMethod.GET, entity, session);
-        return resp.getBody();
+        return readCache.get(clientCode(session), "tradeBook", bookTtlMs, () -> {
+            HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
+            return exchangeWithRetry(GET_TRADE_BOOK_URL, HttpMethod.GET, entity, session, AngelOneJson.MAP);
+        });
     }
 
     public Map<String, Object> getOrderDetails(HttpSession session, String uniqueOrderId) {
         ensureJwt(session);
         String url = String.format(GET_ORDER_DETAILS_URL_TEMPLATE, uniqueOrderId);
         HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(url, HttpMethod.GET, entity, session);
-        return resp.getBody();
+        return exchangeWithRetry(url, HttpMethod.GET, entity, session, AngelOneJson.MAP);
     }
 
     @SuppressWarnings("unchecked")
@@ -309,23 +427,47 @@ public class AngelOneService {
         if (symboltoken != null) payload.put("symboltoken", symboltoken);
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_LTP_URL, HttpMethod.POST, entity, session);
-        return resp.getBody();
+        return exchangeWithRetry(GET_LTP_URL, HttpMethod.POST, entity, session, AngelOneJson.MAP);
+    }
+
+    /**
+     * Quotes for up to 50 instruments in one call.
+     *
+     * @param mode           LTP, OHLC or FULL
+     * @param exchangeTokens symbol tokens by exchange, e.g. {@code {"NSE": ["3045", "2885"]}}
+     * @return the data map: {@code fetched} (one map per instrument) and {@code unfetched}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getMarketQuote(HttpSession session, String mode, Map<String, List<String>> exchangeTokens) {
+        ensureJwt(session);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("mode", mode);
+        payload.put("exchangeTokens", exchangeTokens);
+
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, authHeaders(session));
+        Map<String, Object> body = exchangeWithRetry(MARKET_QUOTE_URL, HttpMethod.POST, entity, session, AngelOneJson.MAP);
+        if (body != null && Boolean.TRUE.equals(body.get("status"))) {
+            Map<String, Object> data = (Map<String, Object>) body.get("data");
+            return data != null ? data : new HashMap<>();
+        } else {
+            throw new RuntimeException("getMarketQuote failed: " + (body != null ? body.get("message") : "unknown"));
+        }
     }
-    // add near other endpoint constants
+
 
     /**
      * Fetch all holdings (portfolio summary + holdings list) and return the raw response map.
      * Stores nothing in session (read-only).
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getAllHoldings(HttpSession session) {
         ensureJwt(session); // throws if not logged in
+        return readCache.get(clientCode(session), "holdings", bookTtlMs, () -> fetchAllHoldings(session));
+    }
 
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fetchAllHoldings(HttpSession session) {
         HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
-        ResponseEntity<Map> resp = exchangeWithRetry(GET_ALL_HOLDING_URL, HttpMethod.GET, entity, session);
-
-        Map<String, Object> body = resp.getBody();
+        Map<String, Object> body = exchangeWithRetry(GET_ALL_HOLDING_URL, HttpMethod.GET, entity, session, AngelOneJson.MAP);
         if (body == null) {
             throw new RuntimeException("Empty response from getAllHoldings");
         }
@@ -335,19 +477,26 @@ public class AngelOneService {
     /**
      * Search for a single scrip by ticker (equity only)
      */
-    @SuppressWarnings("unchecked")
     public List<Map<String, Object>> searchScrip(HttpSession session, String searchTicker) {
         ensureJwt(session);
+        return searchEquities(authHeaders(session), searchTicker);
+    }
 
+    public List<Map<String, Object>> searchScrip(String clientCode, String searchTicker) {
+        ensureTokens(clientCode);
+        return searchEquities(authHeaders(clientCode), searchTicker);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> searchEquities(HttpHeaders headers, String searchTicker) {
         Map<String, String> payload = new HashMap<>();
         payload.put("exchange", "NSE");
         payload.put("searchscrip", searchTicker.toUpperCase());
 
-        HttpEntity<Map<String, String>> entity = new HttpEntity<>(payload, authHeaders(session));
+        HttpEntity<Map<String, String>> entity = new HttpEntity<>(payload, headers);
 
         try {
-            ResponseEntity<Map> resp = restTemplate.exchange(SEARCH_SCRIP_URL, HttpMethod.POST, entity, Map.class);
-            Map<String, Object> body = resp.getBody();
+            Map<String, Object> body = exchange(SEARCH_SCRIP_URL, HttpMethod.POST, entity, AngelOneJson.MAP);
             if (body != null && Boolean.TRUE.equals(body.get("status"))) {
                 List<Map<String, Object>> data = (List<Map<String, Object>>) body.get("data");
                 if (data == null) return Collections.emptyList();
@@ -377,8 +526,7 @@ public class AngelOneService {
 
         HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
         try {
-            ResponseEntity<Map> resp = restTemplate.exchange(INTRADAY_NSE_URL, HttpMethod.GET, entity, Map.class);
-            Map<String, Object> body = resp.getBody();
+            Map<String, Object> body = exchange(INTRADAY_NSE_URL, HttpMethod.GET, entity, AngelOneJson.MAP);
             if (body != null && Boolean.TRUE.equals(body.get("status"))) {
                 return (List<Map<String, Object>>) body.get("data");
             } else {
@@ -396,28 +544,32 @@ public class AngelOneService {
      */
     public Scrip searchScrip(HttpSession session, String exchange, String ticker) {
         ensureJwt(session);
+        return findEquity(authHeaders(session), exchange, ticker);
+    }
+
+    public Scrip searchScrip(String clientCode, String exchange, String ticker) {
+        ensureTokens(clientCode);
+        return findEquity(authHeaders(clientCode), exchange, ticker);
+    }
 
+    private Scrip findEquity(HttpHeaders headers, String exchange, String ticker) {
         Map<String, String> payload = Map.of(
                 "exchange", exchange,
                 "searchscrip", ticker.toUpperCase()
         );
 
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(payload, authHeaders(session));
-        ResponseEntity<Map> response = restTemplate.exchange(SEARCH_SCRIP_URL, HttpMethod.POST, request, Map.class);
-        Map<String, Object> body = response.getBody();
-
-        if (body != null && Boolean.TRUE.equals(body.get("status"))) {
-            List<Map<String, Object>> data = (List<Map<String, Object>>) body.get("data");
-            if (data != null && !data.isEmpty()) {
-                for (Map<String, Object> item : data) {
-                    String sym = (String) item.get("tradingsymbol");
-                    if (sym != null && sym.endsWith("-EQ")) {
-                        Scrip scrip = new Scrip();
-                        scrip.setExchange(exchange);
-                        scrip.setTradingsymbol(sym);
-                        scrip.setSymboltoken(String.valueOf(item.get("symboltoken")));
-                        return scrip;
-                    }
+        HttpEntity<Map<String, String>> request = new HttpEntity<>(payload, headers);
+        AngelResponse<List<ScripMatch>> body = exchange(SEARCH_SCRIP_URL, HttpMethod.POST, request, AngelOneJson.SEARCH);
+
+        if (body != null && body.status() && body.data() != null) {
+            for (ScripMatch item : body.data()) {
+                String sym = item.tradingsymbol();
+                if (sym != null && sym.endsWith("-EQ")) {
+                    Scrip scrip = new Scrip();
+                    scrip.setExchange(exchange);
+                    scrip.setTradingsymbol(sym);
+                    scrip.setSymboltoken(item.symboltoken());
+                    return scrip;
                 }
             }
         }
@@ -426,6 +578,7 @@ public class AngelOneService {
 
     public void logout(HttpSession session) {
         String clientCode = (String) session.getAttribute("clientCode");
+        readCache.invalidate(clientCode);
         if (clientCode == null) {
             session.invalidate();
             return;
@@ -435,20 +588,153 @@ public class AngelOneService {
 
         HttpEntity<Map<String, String>> request = new HttpEntity<>(body, authHeaders(session));
         try {
-            restTemplate.exchange(LOGOUT_URL, HttpMethod.POST, request, Map.class);
+            exchange(LOGOUT_URL, HttpMethod.POST, request, AngelOneJson.MAP);
         } catch (Exception ignored) {
         } finally {
+            // ends background trading for this client too
+            tokenVault.remove(clientCode);
             session.invalidate();
         }
     }
 
+    // -----------------------
+    // TYPED READS
+    // -----------------------
+
+    // Decoded straight into records, without the intermediate maps; the order, trade book and
+    // portfolio pages render these. The map-returning reads above stay for the JSON views and the
+    // dashboard, which pass the broker's body through as is.
+
+    public List<OrderBookEntry> orders(HttpSession session) {
+        ensureJwt(session);
+        return readCache.get(clientCode(session), "orders", bookTtlMs,
+                () -> data(GET_ORDER_BOOK_URL, session, AngelOneJson.ORDER_BOOK, List.<OrderBookEntry>of()));
+    }
+
+    public List<TradeBookEntry> trades(HttpSession session) {
+        ensureJwt(session);
+        return readCache.get(clientCode(session), "trades", bookTtlMs,
+                () -> data(GET_TRADE_BOOK_URL, session, AngelOneJson.TRADE_BOOK, List.<TradeBookEntry>of()));
+    }
+
+    public Holdings holdings(HttpSession session) {
+        ensureJwt(session);
+        return readCache.get(clientCode(session), "holdingList", bookTtlMs,
+                () -> data(GET_ALL_HOLDING_URL, session, AngelOneJson.HOLDINGS, new Holdings(List.of(), null)));
+    }
+
+    // GET whose data is returned as is; a missing data field (an empty book) reads as empty
+    private <T> T data(String url, HttpSession session, ObjectReader reader, T empty) {
+        HttpEntity<Void> entity = new HttpEntity<>(authHeaders(session));
+        AngelResponse<T> body = exchangeWithRetry(url, HttpMethod.GET, entity, session, reader);
+        if (body == null || !body.status())
+            throw new RuntimeException(endpointName(url) + " failed: " + (body != null ? body.message() : "unknown"));
+        return body.data() != null ? body.data() : empty;
+    }
+
+    // -----------------------
+    // ASYNC
+    // -----------------------
+
+    // The blocking calls above, run on virtual threads. The session must stay valid until the
+    // futures complete; a failure completes the future exceptionally with the same exception.
+
+    public CompletableFuture<Map<String, Object>> getProfileAsync(HttpSession session) {
+        return CompletableFuture.supplyAsync(() -> getProfile(session), async);
+    }
+
+    public CompletableFuture<Map<String, Object>> getRmsAsync(HttpSession session) {
+        return CompletableFuture.supplyAsync(() -> getRms(session), async);
+    }
+
+    public CompletableFuture<Map<String, Object>> getOrderBookAsync(HttpSession session) {
+        return CompletableFuture.supplyAsync(() -> getOrderBook(session), async);
+    }
+
+    public CompletableFuture<Map<String, Object>> getTradeBookAsync(HttpSession session) {
+        return CompletableFuture.supplyAsync(() -> getTradeBook(session), async);
+    }
+
+    public CompletableFuture<Map<String, Object>> getAllHoldingsAsync(HttpSession session) {
+        return CompletableFuture.supplyAsync(() -> getAllHoldings(session), async);
+    }
+
+    public CompletableFuture<Map<String, Object>> getLtpDataAsync(HttpSession session, String exchange, String tradingsymbol, String symboltoken) {
+        return CompletableFuture.supplyAsync(() -> getLtpData(session, exchange, tradingsymbol, symboltoken), async);
+    }
+
+    /**
+     * Profile, RMS, order book, trade book and holdings fetched in parallel, so the wait is the
+     * slowest call rather than the sum. A section that fails or misses the timeout is returned as
+     * {@code {"error": ...}} instead of failing the rest.
+     */
+    public Map<String, Object> getDashboard(HttpSession session, Duration timeout) {
+        ensureJwt(session);
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Map<String, Object>>> calls = new LinkedHashMap<>();
+        calls.put("profile", getProfileAsync(session));
+        calls.put("rms", getRmsAsync(session));
+        calls.put("orderBook", getOrderBookAsync(session));
+        calls.put("tradeBook", getTradeBookAsync(session));
+        calls.put("holdings", getAllHoldingsAsync(session));
+
+        long deadline = start + timeout.toNanos();
+        Map<String, Object> out = new LinkedHashMap<>();
+        calls.forEach((name, call) -> {
+            try {
+                out.put(name, call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                out.put(name, Map.of("error", String.valueOf(e.getCause().getMessage())));
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                out.put(name, Map.of("error", "timed out after " + timeout.toMillis() + " ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                out.put(name, Map.of("error", "interrupted"));
+            }
+        });
+        out.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        async.shutdownNow();
+    }
+
     // -----------------------
     // Utilities
     // -----------------------
 
+    private static String clientCode(HttpSession session) {
+        return (String) session.getAttribute("clientCode");
+    }
+
+    // a fill can follow any accepted write, so books, holdings and margin all go
+    private void invalidateAfterOrder(String clientCode) {
+        readCache.invalidate(clientCode, "orderBook", "tradeBook", "holdings", "rms",
+                "orders", "trades", "holdingList");
+    }
+
+    /**
+     * Hits and misses of the per-account read cache.
+     */
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hits", readCache.hits());
+        m.put("misses", readCache.misses());
+        return m;
+    }
+
     private void ensureJwt(HttpSession session) {
-        if (session.getAttribute("jwtToken") == null) {
+        if (tokens(session) == null) {
             throw new RuntimeException("Not authenticated. Please login.");
         }
     }
+
+    // a background engine outlives the login: report it as unusable, not as a failed call
+    private void ensureTokens(String clientCode) {
+        if (tokenVault.get(clientCode) == null)
+            throw new LoggedOutException("Logged out: no tokens for clientCode=" + clientCode);
+    }
 }
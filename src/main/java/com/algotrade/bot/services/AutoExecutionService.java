@@ -0,0 +1,211 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertStatus;
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Places orders for new alerts without a manual accept.
+ * <p>
+ * Off unless {@code alerts.auto.enabled=true}, and even then only while armed from a logged-in
+ * session ({@code POST /alerts/auto/arm}); the broker calls run with that client's tokens from the
+ * token vault until logout. Alerts
+ * are sharded by ticker onto single-thread executors, so orders for one symbol go out in the order
+ * the alerts arrived while different symbols proceed in parallel. Every stage is written to the
+ * alert's status: QUEUED, RESOLVING, PLACING, then ACCEPTED or FAILED.
+ */
+@Service
+public class AutoExecutionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutoExecutionService.class);
+
+    private final AlertService alertService;
+    private final AlertOrderService orderService;
+    private final LatencyMetrics metrics;
+    private final boolean enabled;
+    private final ExecutorService[] shards;
+    // the armed account; orders use its tokens from the vault
+    private volatile String clientCode;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public AutoExecutionService(AlertService alertService,
+                                AlertOrderService orderService,
+                                LatencyMetrics metrics,
+                                @Value("${alerts.auto.enabled:false}") boolean enabled,
+                                @Value("${alerts.auto.shards:0}") int shardCount) {
+        this.alertService = alertService;
+        this.orderService = orderService;
+        this.metrics = metrics;
+        this.enabled = enabled;
+
+        int n = enabled ? (shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors()) : 0;
+        this.shards = new ExecutorService[n];
+        for (int i = 0; i < n; i++) {
+            String name = "alert-exec-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (enabled) {
+            alertService.addAlertListener(this::onAlert);
+            log.info("Auto-execution available on {} shards; arm it from a logged-in session", n);
+        }
+    }
+
+    /**
+     * Start placing orders for new alerts with this session's login. Orders are placed with the
+     * client's tokens from the token vault, so they continue after the browser session expires.
+     *
+     * @throws IllegalStateException if auto-execution is disabled or the session is not logged in
+     */
+    public void arm(HttpSession session) {
+        if (!enabled) throw new IllegalStateException("Auto-execution is disabled (alerts.auto.enabled=false)");
+        String client = (String) session.getAttribute("clientCode");
+        if (session.getAttribute("jwtToken") == null || client == null || !orderService.isLoggedIn(client))
+            throw new IllegalStateException("Not logged in.");
+        // not the browser session: orders keep going after it times out, until logout
+        this.clientCode = client;
+        log.warn("Auto-execution ARMED for clientCode={}", client);
+    }
+
+    public void disarm() {
+        if (clientCode != null) log.warn("Auto-execution disarmed");
+        clientCode = null;
+    }
+
+    public boolean isArmed() {
+        return clientCode != null;
+    }
+
+    private void onAlert(TradingViewAlert alert) {
+        String client = clientCode;
+        if (client == null) return;
+        // taken by hand already, or not new
+        if (alertService.claim(alert.getId(), AlertStatus.NEW, AlertStatus.QUEUED).isEmpty()) return;
+
+        queued.incrementAndGet();
+        pending.incrementAndGet();
+        shardFor(alert.getTicker()).execute(() -> {
+            try {
+                execute(alert, client);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private ExecutorService shardFor(String ticker) {
+        String key = ticker != null ? ticker.toUpperCase() : "";
+        return shards[Math.floorMod(key.hashCode(), shards.length)];
+    }
+
+    private void execute(TradingViewAlert alert, String client) {
+        // disarmed, or armed for another account, while it waited: hand it back
+        if (!client.equals(clientCode)) {
+            alertService.claim(alert.getId(), AlertStatus.QUEUED, AlertStatus.NEW);
+            skipped.incrementAndGet();
+            return;
+        }
+        // no one checks an automatic order, so never guess its side
+        if (alert.getAlertAction() == null) {
+            if (alertService.claim(alert.getId(), AlertStatus.QUEUED, AlertStatus.FAILED).isPresent())
+                fail(alert, "Unknown action, no order placed");
+            else skipped.incrementAndGet();
+            return;
+        }
+        // rejected by hand while it waited
+        if (alertService.claim(alert.getId(), AlertStatus.QUEUED, AlertStatus.RESOLVING).isEmpty()) {
+            skipped.incrementAndGet();
+            return;
+        }
+        Map<String, Object> result;
+        try {
+            Scrip scrip = orderService.resolveSymbol(client, alert);
+            if (scrip == null) throw new RuntimeException("Symbol not found for ticker: " + alert.getTicker());
+
+            stage(alert, AlertStatus.PLACING);
+            result = orderService.placeOrder(client, orderService.buildOrder(alert, scrip, client));
+        } catch (LoggedOutException e) {
+            // nothing further can be placed for this account
+            if (client.equals(clientCode)) clientCode = null;
+            fail(alert, "Logged out, auto-execution disarmed");
+            return;
+        } catch (Exception e) {
+            fail(alert, e.getMessage());
+            return;
+        }
+
+        // the broker has the order: from here on it must not read as failed, or a re-accept would place it twice
+        placed.incrementAndGet();
+        alert.setOrderResult(result);
+        try {
+            stage(alert, AlertStatus.ACCEPTED);
+        } catch (RuntimeException e) {
+            log.error("[AUTO] {} {} placed but its status was not saved: {}", alert.getAction(), alert.getTicker(), e.getMessage(), e);
+        }
+        // wall clock from receipt; timestamps are local time at millisecond resolution
+        if (alert.getTimestamp() != null)
+            metrics.stageMillis(LatencyMetrics.END_TO_END,
+                    LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli() - alert.getTimestampMillis());
+        log.info("[AUTO] {} {} x{} placed", alert.getAction(), alert.getTicker(), alert.getQuantity());
+    }
+
+    private void stage(TradingViewAlert alert, AlertStatus status) {
+        alert.setAlertStatus(status);
+        alertService.update(alert);
+    }
+
+    private void fail(TradingViewAlert alert, String message) {
+        failed.incrementAndGet();
+        alert.setErrorMessage(message);
+        stage(alert, AlertStatus.FAILED);
+        log.error("[AUTO] {} {} failed: {}", alert.getAction(), alert.getTicker(), message);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("armed", isArmed());
+        m.put("shards", shards.length);
+        m.put("pending", pending.get());
+        m.put("queued", queued.get());
+        m.put("placed", placed.get());
+        m.put("failed", failed.get());
+        m.put("skipped", skipped.get());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clientCode = null;
+        for (ExecutorService shard : shards) shard.shutdown();
+        try {
+            for (ExecutorService shard : shards) shard.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Replays stored alerts, or a {@link Strategy} over stored bars, against the bar history in the
+ * {@link MarketDataStore} and reports what the orders would have made.
+ * <p>
+ * Orders come from the live path: alerts are resolved with
+ * {@link AlertOrderService#resolveOffline} and turned into the same market intraday order the
+ * accept button places. Strategy signals go through the same webhook payload and alert parsing as
+ * the {@link StrategyEngine}'s first. Fills are simulated: a market order fills at the open of the
+ * first bar starting at or after the time it could have been sent (see {@link #alertMillis}) plus
+ * {@code backtest.latency-ms}, moved against the order by {@code backtest.slippage-bps}, and each
+ * fill costs {@code backtest.cost-per-order} rupees. Orders that find no bar the same day are
+ * counted as unfilled, so orders = fills + unfilled. Positions are squared off at the last close
+ * of each day, as the broker does for intraday orders; those fills are counted apart.
+ * <p>
+ * Each symbol is replayed independently on a fork-join pool of {@code backtest.parallelism}
+ * workers (0 for one per CPU). Drawdown is reported per symbol on bar closes and for the whole
+ * run on end-of-day equity.
+ */
+@Service
+public class Backtester {
+
+    private static final Logger log = LoggerFactory.getLogger(Backtester.class);
+    private static final String CLIENT = "BACKTEST";
+    private static final long DAY = 86_400_000L;
+
+    /**
+     * Money in rupees; drawdown as a positive amount.
+     */
+    public record SymbolResult(String symbol, int orders, int fills, int unfilled, int squareOffs, int trades,
+                               int wins, double pnl, double costs, double maxDrawdown, long bars) {}
+
+    public record Report(String source, Instant from, Instant to, int symbols, int unresolved, int orders,
+                         int fills, int unfilled, int squareOffs, int trades, int wins, double winRate, double grossPnl,
+                         double costs, double netPnl, double maxDrawdown, long bars, long elapsedMs,
+                         List<SymbolResult> bySymbol) {}
+
+    private record Order(long timeMillis, boolean buy, long qty) {}
+
+    private final AlertService alertService;
+    private final AlertOrderService orderService;
+    private final MarketDataStore store;
+    private final InstrumentMasterService instruments;
+    private final int fillInterval;
+    private final double slippage;
+    private final double costPerOrder;
+    private final long latencyMillis;
+    private final ForkJoinPool pool;
+
+    public Backtester(AlertService alertService, AlertOrderService orderService, MarketDataStore store,
+                      InstrumentMasterService instruments,
+                      @Value("${backtest.fill-interval:1}") int fillInterval,
+                      @Value("${backtest.slippage-bps:2}") double slippageBps,
+                      @Value("${backtest.cost-per-order:20}") double costPerOrder,
+                      @Value("${backtest.latency-ms:0}") long latencyMillis,
+                      @Value("${backtest.parallelism:0}") int parallelism) {
+        this.alertService = alertService;
+        this.orderService = orderService;
+        this.store = store;
+        this.instruments = instruments;
+        this.fillInterval = fillInterval;
+        this.slippage = slippageBps / 10_000;
+        this.costPerOrder = costPerOrder * 100; // paise, like the prices
+        this.latencyMillis = latencyMillis;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Replay every stored alert timed in {@code [fromMillis, toMillis)} as if each had been
+     * accepted, filling on {@code backtest.fill-interval} bars.
+     */
+    public Report replayAlerts(long fromMillis, long toMillis) {
+        long started = System.nanoTime();
+        int days = (int) Math.max(1, (System.currentTimeMillis() - fromMillis) / DAY + 1);
+        Map<String, Replay> bySymbol = new LinkedHashMap<>();
+        int unresolved = 0;
+        for (TradingViewAlert alert : alertService.getRecentAlerts(days)) {
+            long time = alertMillis(alert);
+            if (time < fromMillis || time >= toMillis || alert.getAlertAction() == null) continue;
+            Scrip scrip = orderService.resolveOffline(alert);
+            if (scrip == null) {
+                unresolved++;
+                continue;
+            }
+            Replay r = bySymbol.computeIfAbsent(scrip.getExchange() + ":" + scrip.getTradingsymbol(),
+                    k -> new Replay(scrip, fillInterval, null, 0));
+            r.add(time, AlertOrderService.orderPayload(alert, scrip, CLIENT));
+        }
+        for (Replay r : bySymbol.values()) r.pending.sort(Comparator.comparingLong(Order::timeMillis));
+        return run("alerts", new ArrayList<>(bySymbol.values()), unresolved, fromMillis, toMillis, started);
+    }
+
+    /**
+     * Run {@code strategy} over the stored bars of its interval for each symbol.
+     *
+     * @throws IllegalArgumentException for a tick strategy, or if no symbol resolves
+     */
+    public Report replayStrategy(Strategy strategy, String exchange, List<String> symbols, int qty,
+                                 long fromMillis, long toMillis) {
+        if (strategy.intervalMinutes() <= 0) throw new IllegalArgumentException("Only bar strategies can be replayed");
+        long started = System.nanoTime();
+        List<Replay> replays = new ArrayList<>();
+        int unresolved = 0;
+        for (String symbol : symbols) {
+            Scrip scrip = instruments.resolve(exchange, symbol);
+            if (scrip == null) unresolved++;
+            else replays.add(new Replay(scrip, strategy.intervalMinutes(), strategy, Math.max(1, qty)));
+        }
+        if (replays.isEmpty()) throw new IllegalArgumentException("No symbols resolved for " + strategy.name());
+        return run(strategy.name(), replays, unresolved, fromMillis, toMillis, started);
+    }
+
+    private Report run(String source, List<Replay> replays, int unresolved, long fromMillis, long toMillis, long started) {
+        long firstDay = store.epochDay(fromMillis);
+        int days = (int) (store.epochDay(toMillis - 1) - firstDay + 1);
+        List<SymbolResult> results = pool.submit(() -> replays.parallelStream()
+                .map(r -> r.run(fromMillis, toMillis, firstDay, days)).toList()).join();
+
+        // end-of-day equity of the whole book, carried over days a symbol did not trade
+        double[] book = new double[days];
+        for (Replay r : replays) {
+            double carry = 0;
+            for (int d = 0; d < days; d++) {
+                if (!Double.isNaN(r.dayEquity[d])) carry = r.dayEquity[d];
+                book[d] += carry;
+            }
+        }
+        double peak = 0, drawdown = 0;
+        for (double equity : book) {
+            peak = Math.max(peak, equity);
+            drawdown = Math.max(drawdown, peak - equity);
+        }
+
+        int orders = 0, fills = 0, unfilled = 0, squareOffs = 0, trades = 0, wins = 0;
+        double net = 0, costs = 0;
+        long bars = 0;
+        for (SymbolResult s : results) {
+            orders += s.orders();
+            fills += s.fills();
+            unfilled += s.unfilled();
+            squareOffs += s.squareOffs();
+            trades += s.trades();
+            wins += s.wins();
+            net += s.pnl();
+            costs += s.costs();
+            bars += s.bars();
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Backtest {}: {} symbols, {} bars, {} fills, net {} in {} ms", source, results.size(), bars, fills,
+                Math.round(net), elapsedMs);
+        return new Report(source, Instant.ofEpochMilli(fromMillis), Instant.ofEpochMilli(toMillis), results.size(),
+                unresolved, orders, fills, unfilled, squareOffs, trades, wins, trades == 0 ? 0 : (double) wins / trades,
+                net + costs, costs, net, drawdown / 100, bars, elapsedMs, results);
+    }
+
+    /**
+     * The earliest time the alert's order could have been sent: when the alert was received, or,
+     * for one with no receive time, the close of the bar it was raised on (the payload's bar time,
+     * an ISO instant or epoch millis, plus the interval). The bar time alone would fill the order
+     * at the open of the very bar whose close produced the signal.
+     */
+    static long alertMillis(TradingViewAlert alert) {
+        LocalDateTime received = alert.getTimestamp();
+        if (received != null) return received.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String time = alert.getTime();
+        if (time == null || time.isEmpty()) return Long.MIN_VALUE;
+        long barMillis;
+        try {
+            barMillis = Instant.parse(time).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            if (!time.chars().allMatch(Character::isDigit)) return Long.MIN_VALUE;
+            barMillis = Long.parseLong(time);
+        }
+        return barMillis + intervalMillis(alert.getInterval());
+    }
+
+    /**
+     * A TradingView interval: minutes as a bare number, or a count of seconds, days, weeks or
+     * months ("15S", "D", "2W"). Anything else, such as "tick", has no bar and counts as zero.
+     */
+    static long intervalMillis(String interval) {
+        if (interval == null || interval.isEmpty()) return 0;
+        char unit = Character.toUpperCase(interval.charAt(interval.length() - 1));
+        String count = Character.isDigit(unit) ? interval : interval.substring(0, interval.length() - 1);
+        long n;
+        try {
+            n = count.isEmpty() ? 1 : Long.parseLong(count);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        return switch (unit) {
+            case 'S' -> n * 1_000L;
+            case 'D' -> n * DAY;
+            case 'W' -> n * 7 * DAY;
+            case 'M' -> n * 30 * DAY;
+            default -> Character.isDigit(unit) ? n * 60_000L : 0;
+        };
+    }
+
+    // one symbol's orders, position and equity; run on one pool thread
+    private final class Replay implements MarketDataStore.BarVisitor {
+        final Scrip scrip;
+        final int exchangeType;
+        final long token;
+        final int interval;
+        final Strategy strategy;
+        final Strategy.Evaluator evaluator;
+        final int qty;
+        final List<Order> pending = new ArrayList<>();
+        int next;
+        double[] dayEquity;
+        long firstDay;
+
+        long day = Long.MIN_VALUE;
+        long lastClose;
+        long position;
+        double avgPrice, realized, costs, peak, drawdown;
+        int fills, unfilled, squareOffs, trades, wins;
+        long bars;
+
+        Replay(Scrip scrip, int interval, Strategy strategy, int qty) {
+            this.scrip = scrip;
+            this.exchangeType = SmartStreamClient.exchangeType(scrip.getExchange());
+            this.token = Long.parseLong(scrip.getSymboltoken());
+            this.interval = interval;
+            this.strategy = strategy;
+            this.evaluator = strategy != null ? strategy.newEvaluator() : null;
+            this.qty = qty;
+        }
+
+        void add(long timeMillis, Map<String, Object> order) {
+            pending.add(new Order(timeMillis, "BUY".equals(order.get("transactiontype")),
+                    Long.parseLong(order.get("quantity").toString())));
+        }
+
+        SymbolResult run(long fromMillis, long toMillis, long firstDay, int days) {
+            this.firstDay = firstDay;
+            this.dayEquity = new double[days];
+            Arrays.fill(dayEquity, Double.NaN);
+            store.scanBars(exchangeType, token, interval, fromMillis, toMillis, this);
+            if (day != Long.MIN_VALUE) endOfDay();
+            unfilled += pending.size() - next;
+            return new SymbolResult(scrip.getExchange() + ":" + scrip.getTradingsymbol(), pending.size(), fills,
+                    unfilled, squareOffs, trades, wins, (realized - costs) / 100, costs / 100, drawdown / 100, bars);
+        }
+
+        @Override
+        public void bar(long start, long open, long high, long low, long close, long volume, long ticks) {
+            long d = store.epochDay(start);
+            if (d != day) {
+                if (day != Long.MIN_VALUE) endOfDay();
+                day = d;
+            }
+            while (next < pending.size()) {
+                Order o = pending.get(next);
+                long due = o.timeMillis() + latencyMillis;
+                if (due > start) break;
+                // an intraday market order sent after the last bar of its day is never filled
+                if (store.epochDay(due) < d) unfilled++;
+                else {
+                    fills++;
+                    fill(o.buy(), o.qty(), open);
+                }
+                next++;
+            }
+            lastClose = close;
+            bars++;
+            if (evaluator != null) {
+                Bar bar = new Bar(exchangeType, token, interval, start, open, high, low, close, volume, (int) ticks);
+                AlertAction action = evaluator.onBar(bar);
+                if (action != null) signal(action, bar.endMillis());
+            }
+            mark(close);
+        }
+
+        private void signal(AlertAction action, long timeMillis) {
+            Map<String, Object> payload = StrategyEngine.payload(strategy, scrip.getTradingsymbol(), scrip.getExchange(),
+                    scrip.getSymboltoken(), action, qty, interval, timeMillis);
+            TradingViewAlert alert = alertService.buildFromPayload(CLIENT, payload,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()));
+            add(timeMillis, AlertOrderService.orderPayload(alert, scrip, CLIENT));
+        }
+
+        private void fill(boolean buy, long quantity, long price) {
+            double px = price * (buy ? 1 + slippage : 1 - slippage);
+            costs += costPerOrder;
+            long signed = buy ? quantity : -quantity;
+            if (position == 0 || (position > 0) == buy) {
+                avgPrice = (avgPrice * Math.abs(position) + px * quantity) / (Math.abs(position) + quantity);
+            } else {
+                long closing = Math.min(quantity, Math.abs(position));
+                double pnl = (px - avgPrice) * closing * (position > 0 ? 1 : -1);
+                realized += pnl;
+                trades++;
+                if (pnl > 0) wins++;
+                if (quantity > closing) avgPrice = px;
+            }
+            position += signed;
+            if (position == 0) avgPrice = 0;
+        }
+
+        private void mark(long close) {
+            double equity = realized - costs + position * (close - avgPrice);
+            peak = Math.max(peak, equity);
+            drawdown = Math.max(drawdown, peak - equity);
+        }
+
+        private void endOfDay() {
+            if (position != 0) {
+                squareOffs++;
+                fill(position < 0, Math.abs(position), lastClose);
+                mark(lastClose);
+            }
+            int i = (int) (day - firstDay);
+            if (i >= 0 && i < dayEquity.length) dayEquity[i] = realized - costs;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,290 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Bar;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds OHLCV bars for every streamed instrument at several intervals at once (by default 1, 3,
+ * 5, 15 and 60 minutes), aligned to the session open, so hourly bars run 09:15-10:15 and so on.
+ * <p>
+ * State lives in primitive arrays indexed by symbol slot times interval, so a tick costs one hash
+ * probe plus a constant amount of work per interval, and allocates nothing. A bar closes when a
+ * tick for a later bar arrives, or when the clock passes its end by {@code bars.close-grace-ms},
+ * whichever is first; each closed bar goes to every {@link BarListener}. Ticks older than the
+ * current bar are counted as late and ignored.
+ * <p>
+ * It consumes the {@link TickBus} as a critical consumer. Ticks and the close sweep share a lock,
+ * and listeners are called under it: they must be quick.
+ */
+@Component
+public class BarAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(BarAggregator.class);
+
+    public interface BarListener {
+        void onBar(Bar bar);
+    }
+
+    private static final byte EMPTY = 0, OPEN = 1, CLOSED = 2;
+
+    private final int[] intervals;
+    private final int k;
+    private final long offsetMillis;
+    private final long sessionOpenMinutes;
+    private final long graceMillis;
+    private final List<BarListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sweeper;
+    private AutoCloseable subscription;
+
+    // symbol slot by Tick.key
+    private final LongIntMap slots;
+    private int symbols;
+    // per symbol
+    private long[] symbolKey;
+    private long[] lastCumVolume;
+    private long[] lastDay;
+    // per symbol * interval
+    private long[] bucket;
+    private byte[] state;
+    private long[] open, high, low, close, startCumVolume, volume;
+    private int[] ticks;
+    private Bar[] lastClosed;
+
+    private long late;
+    private long closedBars;
+
+    @Autowired
+    public BarAggregator(TickBus bus,
+                         @Value("${bars.intervals:1,3,5,15,60}") String intervals,
+                         @Value("${bars.session-open:09:15}") String sessionOpen,
+                         @Value("${bars.zone:Asia/Kolkata}") String zone,
+                         @Value("${bars.close-grace-ms:2000}") long graceMillis,
+                         @Value("${bars.initial-symbols:1024}") int initialSymbols) {
+        this(intervals, sessionOpen, zone, graceMillis, initialSymbols);
+        this.subscription = bus.subscribe("bars", this::onTick, true);
+    }
+
+    BarAggregator(String intervals, String sessionOpen, String zone, long graceMillis, int initialSymbols) {
+        this.intervals = Arrays.stream(intervals.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                .mapToInt(Integer::parseInt).sorted().distinct().toArray();
+        if (this.intervals.length == 0 || this.intervals[0] <= 0) throw new IllegalArgumentException("bars.intervals must be positive minutes");
+        this.k = this.intervals.length;
+        this.offsetMillis = offsetMillis(zone);
+        this.sessionOpenMinutes = LocalTime.parse(sessionOpen).toSecondOfDay() / 60;
+        this.graceMillis = graceMillis;
+        this.slots = new LongIntMap(initialSymbols);
+        allocate(Integer.highestOneBit(Math.max(16, initialSymbols) - 1) << 1);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bar-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.currentTimeMillis()), 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void allocate(int capacity) {
+        symbolKey = new long[capacity];
+        lastCumVolume = new long[capacity];
+        lastDay = new long[capacity];
+        int n = capacity * k;
+        bucket = new long[n];
+        state = new byte[n];
+        open = new long[n];
+        high = new long[n];
+        low = new long[n];
+        close = new long[n];
+        startCumVolume = new long[n];
+        volume = new long[n];
+        ticks = new int[n];
+        lastClosed = new Bar[n];
+    }
+
+    public void addListener(BarListener listener) {
+        listeners.add(listener);
+    }
+
+    public int[] intervals() {
+        return intervals.clone();
+    }
+
+    /**
+     * The zone's offset from UTC. India has no DST, so one offset serves for local days and bar
+     * boundaries; the market data store uses the same.
+     */
+    static long offsetMillis(String zone) {
+        return ZoneId.of(zone).getRules().getOffset(Instant.now()).getTotalSeconds() * 1000L;
+    }
+
+    // bar number of a time, counted in this interval from the session open
+    private long bucketOf(long epochMillis, int minutes) {
+        long localMinutes = Math.floorDiv(epochMillis + offsetMillis, 60_000L);
+        return Math.floorDiv(localMinutes - sessionOpenMinutes, minutes);
+    }
+
+    private long startOf(long bucket, int minutes) {
+        return (bucket * minutes + sessionOpenMinutes) * 60_000L - offsetMillis;
+    }
+
+    private int slot(long key) {
+        int s = slots.get(key);
+        if (s >= 0) return s;
+        if (symbols == symbolKey.length) grow();
+        s = symbols++;
+        symbolKey[s] = key;
+        slots.put(key, s);
+        return s;
+    }
+
+    private void grow() {
+        int capacity = symbolKey.length * 2;
+        int n = capacity * k;
+        symbolKey = Arrays.copyOf(symbolKey, capacity);
+        lastCumVolume = Arrays.copyOf(lastCumVolume, capacity);
+        lastDay = Arrays.copyOf(lastDay, capacity);
+        bucket = Arrays.copyOf(bucket, n);
+        state = Arrays.copyOf(state, n);
+        open = Arrays.copyOf(open, n);
+        high = Arrays.copyOf(high, n);
+        low = Arrays.copyOf(low, n);
+        close = Arrays.copyOf(close, n);
+        startCumVolume = Arrays.copyOf(startCumVolume, n);
+        volume = Arrays.copyOf(volume, n);
+        ticks = Arrays.copyOf(ticks, n);
+        lastClosed = Arrays.copyOf(lastClosed, n);
+        log.info("Bar aggregator grown to {} symbols", capacity);
+    }
+
+    /**
+     * Fold one tick into every interval's current bar.
+     */
+    public synchronized void onTick(Tick t) {
+        long time = t.exchangeTimeMillis > 0 ? t.exchangeTimeMillis : System.currentTimeMillis();
+        int s = slot(Tick.key(t.exchangeType, t.token));
+        long price = t.ltp;
+        long cum = t.volume;
+        // the feed's volume is cumulative for the session and starts again from zero each day
+        long day = Math.floorDiv(time + offsetMillis, 86_400_000L);
+        if (day != lastDay[s]) {
+            lastDay[s] = day;
+            lastCumVolume[s] = 0;
+        }
+        long prevCum = lastCumVolume[s];
+        boolean restarted = cum > 0 && cum < prevCum;
+        if (restarted) prevCum = 0;
+        if (cum > 0) lastCumVolume[s] = cum;
+        int base = s * k;
+        for (int j = 0; j < k; j++) {
+            int i = base + j;
+            long b = bucketOf(time, intervals[j]);
+            if (state[i] == EMPTY || b > bucket[i]) {
+                if (state[i] == OPEN) closeBar(i, j);
+                bucket[i] = b;
+                state[i] = OPEN;
+                open[i] = high[i] = low[i] = close[i] = price;
+                // the first tick's own trade belongs to this bar
+                startCumVolume[i] = cum > 0 ? (prevCum > 0 ? prevCum : cum - t.lastTradedQty) : 0;
+                volume[i] = cum > 0 ? cum - startCumVolume[i] : 0;
+                ticks[i] = 1;
+            } else if (b == bucket[i] && state[i] == OPEN) {
+                if (price > high[i]) high[i] = price;
+                if (price < low[i]) low[i] = price;
+                close[i] = price;
+                // a restart mid-bar: keep what the bar had and count on from this trade
+                if (restarted) startCumVolume[i] = cum - t.lastTradedQty - volume[i];
+                if (cum > 0) volume[i] = cum - startCumVolume[i];
+                ticks[i]++;
+            } else {
+                late++;
+            }
+        }
+    }
+
+    private void closeBar(int i, int j) {
+        state[i] = CLOSED;
+        long key = symbolKey[i / k];
+        Bar bar = new Bar(Tick.exchangeType(key), Tick.token(key), intervals[j], startOf(bucket[i], intervals[j]),
+                open[i], high[i], low[i], close[i], volume[i], ticks[i]);
+        lastClosed[i] = bar;
+        closedBars++;
+        for (BarListener l : listeners) {
+            try {
+                l.onBar(bar);
+            } catch (RuntimeException e) {
+                log.warn("Bar listener failed: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Close every open bar that ended at least the grace period before {@code nowMillis}.
+     */
+    synchronized void sweep(long nowMillis) {
+        long cutoff = nowMillis - graceMillis;
+        for (int j = 0; j < k; j++) {
+            long current = bucketOf(cutoff, intervals[j]);
+            for (int s = 0; s < symbols; s++) {
+                int i = s * k + j;
+                if (state[i] == OPEN && bucket[i] < current) closeBar(i, j);
+            }
+        }
+    }
+
+    private int index(int exchangeType, long token, int intervalMinutes) {
+        int j = Arrays.binarySearch(intervals, intervalMinutes);
+        if (j < 0) throw new IllegalArgumentException("Not an aggregated interval: " + intervalMinutes);
+        int s = slots.get(Tick.key(exchangeType, token));
+        return s < 0 ? -1 : s * k + j;
+    }
+
+    /**
+     * The bar still forming, or null if none.
+     */
+    public synchronized Bar current(int exchangeType, long token, int intervalMinutes) {
+        int i = index(exchangeType, token, intervalMinutes);
+        if (i < 0 || state[i] != OPEN) return null;
+        return new Bar(exchangeType, token, intervalMinutes, startOf(bucket[i], intervalMinutes),
+                open[i], high[i], low[i], close[i], volume[i], ticks[i]);
+    }
+
+    /**
+     * The most recently closed bar, or null if none.
+     */
+    public synchronized Bar lastClosed(int exchangeType, long token, int intervalMinutes) {
+        int i = index(exchangeType, token, intervalMinutes);
+        return i < 0 ? null : lastClosed[i];
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("intervals", intervals);
+        m.put("symbols", symbols);
+        m.put("closedBars", closedBars);
+        m.put("lateTicks", late);
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        if (subscription != null) {
+            try {
+                subscription.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
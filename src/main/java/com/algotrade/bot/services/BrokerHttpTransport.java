@@ -0,0 +1,141 @@
+package com.algotrade.bot.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTTP transport for the broker clients.
+ * <p>
+ * One JDK {@link HttpClient} (HTTP/2 where the server negotiates it, HTTP/1.1 keep-alive
+ * otherwise) backs two RestTemplates that differ only in read timeout: {@link #orders()} for
+ * place/modify/cancel and {@link #queries()} for everything else. Connections are pooled by the
+ * client, so only the first request to a host pays for TCP and TLS. During the configured IST
+ * window a HEAD request is sent to each registered broker base URL every few seconds, so the pool
+ * is already warm when the first order of the day goes out and stays warm between orders.
+ */
+@Component
+public class BrokerHttpTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerHttpTransport.class);
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final HttpClient httpClient;
+    private final RestTemplate orders;
+    private final RestTemplate queries;
+    private final Duration warmupTimeout;
+    private final LocalTime warmupStart;
+    private final LocalTime warmupEnd;
+    private final Set<URI> warmupTargets = new CopyOnWriteArraySet<>();
+    private final ScheduledExecutorService warmer;
+
+    public BrokerHttpTransport(@Value("${broker.http.http2:true}") boolean http2,
+                               @Value("${broker.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+                               @Value("${broker.http.order-read-timeout-ms:5000}") long orderReadTimeoutMs,
+                               @Value("${broker.http.query-read-timeout-ms:10000}") long queryReadTimeoutMs,
+                               @Value("${broker.http.warmup.enabled:true}") boolean warmupEnabled,
+                               @Value("${broker.http.warmup.start:08:55}") String warmupStart,
+                               @Value("${broker.http.warmup.end:15:35}") String warmupEnd,
+                               @Value("${broker.http.warmup.interval-seconds:20}") long warmupIntervalSeconds) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.orders = restTemplate(orderReadTimeoutMs);
+        this.queries = restTemplate(queryReadTimeoutMs);
+        this.warmupTimeout = Duration.ofMillis(connectTimeoutMs + orderReadTimeoutMs);
+        this.warmupStart = LocalTime.parse(warmupStart);
+        this.warmupEnd = LocalTime.parse(warmupEnd);
+
+        if (warmupEnabled) {
+            this.warmer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "broker-http-warmup");
+                t.setDaemon(true);
+                return t;
+            });
+            warmer.scheduleWithFixedDelay(this::warmUp, 1, Math.max(1, warmupIntervalSeconds), TimeUnit.SECONDS);
+        } else {
+            this.warmer = null;
+        }
+    }
+
+    private RestTemplate restTemplate(long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+
+    /**
+     * For order placement, modification and cancellation.
+     */
+    public RestTemplate orders() {
+        return orders;
+    }
+
+    /**
+     * For logins, books, quotes, searches and other reads.
+     */
+    public RestTemplate queries() {
+        return queries;
+    }
+
+    /**
+     * The underlying client, for requests that do not go through a RestTemplate (e.g. file downloads).
+     */
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Keep connections to this broker warm during the trading window. Blank URLs are ignored.
+     */
+    public void addWarmupTarget(String baseUrl) {
+        if (baseUrl == null || baseUrl.isBlank()) return;
+        warmupTargets.add(URI.create(baseUrl));
+    }
+
+    boolean inWarmupWindow(ZonedDateTime now) {
+        LocalTime t = now.withZoneSameInstant(IST).toLocalTime();
+        return !t.isBefore(warmupStart) && t.isBefore(warmupEnd);
+    }
+
+    private void warmUp() {
+        if (!inWarmupWindow(ZonedDateTime.now(IST))) return;
+        for (URI target : warmupTargets) {
+            HttpRequest request = HttpRequest.newBuilder(target)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(warmupTimeout)
+                    .build();
+            // any status will do; the point is the pooled connection
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resp, err) -> {
+                        if (err != null) log.debug("Warm-up of {} failed: {}", target, err.getMessage());
+                        else log.trace("Warm-up of {}: {} over {}", target, resp.statusCode(), resp.version());
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (warmer != null) warmer.shutdownNow();
+    }
+}
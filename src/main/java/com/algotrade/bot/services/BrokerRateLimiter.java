@@ -0,0 +1,183 @@
+package com.algotrade.bot.services;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side token buckets for one broker: one per endpoint plus a global one, so we stay under
+ * the broker's request-per-second limits instead of being throttled by them.
+ * <p>
+ * A call that finds no token waits in line rather than failing. Waiters are served by priority,
+ * then arrival: when a global token frees up it goes to the first waiter in that order whose
+ * endpoint bucket also has a token, so order calls overtake queued queries but a query for an
+ * idle endpoint is not held up by orders stuck on their own endpoint limit. A call that cannot be
+ * served within the maximum wait is rejected with a RuntimeException. Waits and rejections are
+ * recorded in {@link LatencyMetrics}.
+ */
+final class BrokerRateLimiter {
+
+    /**
+     * In precedence order.
+     */
+    enum Priority { ORDER, QUERY }
+
+    private final String broker;
+    private final Map<String, Double> rates;
+    private final double defaultRate;
+    private final Bucket global;
+    private final long maxWaitNanos;
+    private final LatencyMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private final TreeSet<Waiter> waiting = new TreeSet<>(
+            Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.seq));
+    private long seq;
+
+    /**
+     * @param rates       requests per second by endpoint name; 0 or less means unlimited
+     * @param defaultRate for endpoints not in {@code rates}
+     * @param globalRate  across all endpoints; 0 or less means unlimited
+     */
+    BrokerRateLimiter(String broker, Map<String, Double> rates, double defaultRate, double globalRate,
+                      long maxWaitMillis, LatencyMetrics metrics) {
+        this.broker = broker;
+        this.rates = Map.copyOf(rates);
+        this.defaultRate = defaultRate;
+        this.global = new Bucket(globalRate, System.nanoTime());
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parse {@code name:rate,name:rate,...}, e.g. {@code placeOrder:20,getOrderBook:1}.
+     */
+    static Map<String, Double> parseRates(String spec) {
+        Map<String, Double> out = new HashMap<>();
+        if (spec == null) return out;
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            int i = part.indexOf(':');
+            if (i < 0) throw new IllegalArgumentException("Expected endpoint:rate, got '" + part.trim() + "'");
+            out.put(part.substring(0, i).trim(), Double.parseDouble(part.substring(i + 1).trim()));
+        }
+        return out;
+    }
+
+    /**
+     * Block until {@code endpoint} may be called.
+     *
+     * @throws RuntimeException if no token could be had within the maximum wait
+     */
+    void acquire(String endpoint, Priority priority) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Waiter w = new Waiter(priority, seq++, buckets.computeIfAbsent(endpoint,
+                    e -> new Bucket(rates.getOrDefault(e, defaultRate), start)));
+            waiting.add(w);
+            while (true) {
+                long now = System.nanoTime();
+                grant(now);
+                if (w.granted) break;
+                long left = maxWaitNanos - (now - start);
+                if (left <= 0) {
+                    waiting.remove(w);
+                    metrics.rateLimitRejected(broker, endpoint, priority.name());
+                    throw new RuntimeException("Rate limit: " + broker + " " + endpoint + " not available within "
+                            + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                }
+                long next = Math.max(w.bucket.nanosUntilToken(now), global.nanosUntilToken(now));
+                changed.awaitNanos(Math.max(TimeUnit.MICROSECONDS.toNanos(100), Math.min(next, left)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for rate limit on " + broker + " " + endpoint, e);
+        } finally {
+            lock.unlock();
+        }
+        metrics.rateLimitWait(broker, endpoint, priority.name(), start);
+    }
+
+    private void grant(long now) {
+        global.refill(now);
+        boolean any = false;
+        for (Iterator<Waiter> it = waiting.iterator(); it.hasNext() && global.hasToken(); ) {
+            Waiter w = it.next();
+            w.bucket.refill(now);
+            if (!w.bucket.hasToken()) continue;
+            w.bucket.take();
+            global.take();
+            w.granted = true;
+            it.remove();
+            any = true;
+        }
+        if (any) changed.signalAll();
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        final long seq;
+        final Bucket bucket;
+        boolean granted;
+
+        Waiter(Priority priority, long seq, Bucket bucket) {
+            this.priority = priority;
+            this.seq = seq;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Holds up to one second's worth of tokens. Guarded by the limiter's lock.
+     */
+    private static final class Bucket {
+        final double ratePerNano;
+        final double capacity;
+        double tokens;
+        long last;
+
+        Bucket(double perSecond, long now) {
+            this.ratePerNano = perSecond > 0 ? perSecond / 1e9 : 0;
+            this.capacity = Math.max(1, perSecond);
+            this.tokens = capacity;
+            this.last = now;
+        }
+
+        boolean unlimited() {
+            return ratePerNano == 0;
+        }
+
+        void refill(long now) {
+            if (unlimited()) return;
+            tokens = Math.min(capacity, tokens + (now - last) * ratePerNano);
+            last = now;
+        }
+
+        boolean hasToken() {
+            return unlimited() || tokens >= 1;
+        }
+
+        void take() {
+            if (!unlimited()) tokens -= 1;
+        }
+
+        long nanosUntilToken(long now) {
+            if (unlimited()) return 0;
+            double t = tokens + (now - last) * ratePerNano;
+            return t >= 1 ? 0 : (long) Math.ceil((1 - t) / ratePerNano);
+        }
+    }
+}
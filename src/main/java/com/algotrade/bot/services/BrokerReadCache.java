@@ -0,0 +1,73 @@
+package com.algotrade.bot.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for per-account broker reads (books, holdings, profile), keyed by client code
+ * and read kind, with a TTL per read.
+ * <p>
+ * Each client has a generation counter that {@link #invalidate} bumps. A load that started before
+ * an invalidation is returned to its caller but not cached, so a book fetched while an order was
+ * being placed cannot outlive the order.
+ */
+final class BrokerReadCache {
+
+    private record Entry(Object value, long expiresNanos) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The cached value if younger than {@code ttlMillis}, else {@code loader}'s. A null client
+     * code or a TTL of 0 or less bypasses the cache.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String clientCode, String kind, long ttlMillis, Supplier<T> loader) {
+        if (clientCode == null || ttlMillis <= 0) return loader.get();
+        String key = clientCode + '/' + kind;
+        Entry e = entries.get(key);
+        long now = System.nanoTime();
+        if (e != null && now - e.expiresNanos() < 0) {
+            hits.incrementAndGet();
+            return (T) e.value();
+        }
+        misses.incrementAndGet();
+        AtomicLong gen = generation(clientCode);
+        long before = gen.get();
+        T value = loader.get();
+        if (cacheable(value) && gen.get() == before) entries.put(key, new Entry(value, now + ttlMillis * 1_000_000));
+        return value;
+    }
+
+    // AngelOne reports some failures as a 200 with status=false; those are not kept
+    private static boolean cacheable(Object value) {
+        return value != null && !(value instanceof Map<?, ?> m && Boolean.FALSE.equals(m.get("status")));
+    }
+
+    /**
+     * Drop {@code kinds} for this client, or everything for it if none are given.
+     */
+    void invalidate(String clientCode, String... kinds) {
+        if (clientCode == null) return;
+        generation(clientCode).incrementAndGet();
+        if (kinds.length == 0) entries.keySet().removeIf(k -> k.startsWith(clientCode + '/'));
+        else for (String kind : kinds) entries.remove(clientCode + '/' + kind);
+    }
+
+    private AtomicLong generation(String clientCode) {
+        return generations.computeIfAbsent(clientCode, c -> new AtomicLong());
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,175 @@
+package com.algotrade.bot.services;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One day of one series for one symbol, as a memory-mapped file of fixed-capacity long columns.
+ * <pre>
+ * header  : magic(int) version(int) columns(int) capacity(int) epochDay(long) rows(int) pad(int)
+ * columns : column c at HEADER_BYTES + c * capacity * 8, capacity little-endian longs each
+ * </pre>
+ * Rows are append-only. A row's values are written first and the row count last, with release
+ * semantics, so a reader mapping the same file never sees a partly written row, even after a
+ * crash. A full segment is copied to a file of twice the capacity and swapped in with an atomic
+ * move; mappings taken before the swap keep the old rows.
+ * <p>
+ * One writer per segment; any number of readers.
+ */
+final class ColumnSegment {
+
+    private static final int MAGIC = 0x4D445331; // "MDS1"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int OFF_ROWS = 24;
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final int columns;
+    private final long epochDay;
+    private final boolean writable;
+    private MappedByteBuffer buf;
+    private int capacity;
+    private int rows; // writer's copy
+
+    private ColumnSegment(Path file, MappedByteBuffer buf, boolean writable) throws IOException {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw new IOException("Not a column segment: " + file);
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported column segment version " + version);
+        this.file = file;
+        this.buf = buf;
+        this.writable = writable;
+        this.columns = buf.getInt(8);
+        this.capacity = buf.getInt(12);
+        this.epochDay = buf.getLong(16);
+        this.rows = (int) INT.getAcquire(buf, OFF_ROWS);
+        if ((long) HEADER_BYTES + (long) columns * capacity * 8 != buf.limit())
+            throw new IOException("Truncated column segment: " + file);
+    }
+
+    /**
+     * Open {@code file} for appending, creating it with {@code capacity} rows if it does not exist.
+     */
+    static ColumnSegment openForAppend(Path file, int columns, int capacity, long epochDay) throws IOException {
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            write(tmp, columns, capacity, epochDay, null, 0);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        ColumnSegment s = new ColumnSegment(file, map(file, true), true);
+        if (s.columns != columns) throw new IOException("Segment " + file + " has " + s.columns + " columns, expected " + columns);
+        return s;
+    }
+
+    static ColumnSegment openReadOnly(Path file) throws IOException {
+        return new ColumnSegment(file, map(file, false), false);
+    }
+
+    private static MappedByteBuffer map(Path file, boolean writable) throws IOException {
+        try (FileChannel ch = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            return ch.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private static void write(Path tmp, int columns, int capacity, long epochDay, ColumnSegment from, int rows) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(columns).putInt(capacity).putLong(epochDay).putInt(rows).putInt(0).flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) ch.write(header);
+            if (from != null) {
+                for (int c = 0; c < columns; c++) {
+                    ByteBuffer col = from.buf.slice(from.offset(c, 0), rows * 8);
+                    long pos = HEADER_BYTES + (long) c * capacity * 8;
+                    while (col.hasRemaining()) pos += ch.write(col, pos);
+                }
+            }
+            // extend to full size; the unwritten space reads as zeros
+            ch.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) columns * capacity * 8 - 1);
+            ch.force(true);
+        }
+    }
+
+    private int offset(int column, int row) {
+        return HEADER_BYTES + (column * capacity + row) * 8;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long epochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Rows committed so far, as a reader sees them.
+     */
+    int rows() {
+        return (int) INT.getAcquire(buf, OFF_ROWS);
+    }
+
+    long get(int column, int row) {
+        return buf.getLong(offset(column, row));
+    }
+
+    /**
+     * A read-only view over the committed rows of one column, sharing the mapped memory.
+     */
+    LongBuffer column(int column) {
+        return buf.slice(offset(column, 0), rows() * 8).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * Make room for the next row, growing the file if it is full. Fill the row with {@link #set},
+     * then publish it with {@link #commit}.
+     */
+    void reserve() throws IOException {
+        if (!writable) throw new IllegalStateException("Segment is read-only: " + file);
+        if (rows == capacity) grow();
+    }
+
+    void set(int column, long value) {
+        buf.putLong(offset(column, rows), value);
+    }
+
+    void commit() {
+        INT.setRelease(buf, OFF_ROWS, ++rows);
+    }
+
+    private void grow() throws IOException {
+        int bigger = capacity * 2;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        write(tmp, columns, bigger, epochDay, this, rows);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        buf = map(file, true);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = bigger;
+    }
+
+    void force() {
+        if (writable) buf.force();
+    }
+}
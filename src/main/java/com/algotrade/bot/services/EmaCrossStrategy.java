@@ -0,0 +1,59 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+
+/**
+ * Buys when the fast EMA of bar closes crosses above the slow one and sells on the cross back
+ * down. An RSI filter skips buys into an overbought market and sells into an oversold one.
+ */
+public class EmaCrossStrategy implements Strategy {
+
+    private final int interval;
+    private final int fast;
+    private final int slow;
+    private final int rsiPeriod;
+
+    public EmaCrossStrategy(int intervalMinutes, int fast, int slow, int rsiPeriod) {
+        if (fast >= slow) throw new IllegalArgumentException("fast period must be below slow: " + fast + " >= " + slow);
+        this.interval = intervalMinutes;
+        this.fast = fast;
+        this.slow = slow;
+        this.rsiPeriod = rsiPeriod;
+    }
+
+    @Override
+    public String name() {
+        return "ema-cross-" + fast + "-" + slow;
+    }
+
+    @Override
+    public int intervalMinutes() {
+        return interval;
+    }
+
+    @Override
+    public Evaluator newEvaluator() {
+        Indicators.Ema fastEma = new Indicators.Ema(fast);
+        Indicators.Ema slowEma = new Indicators.Ema(slow);
+        Indicators.Rsi rsi = new Indicators.Rsi(rsiPeriod);
+        return new Evaluator() {
+            private int side; // sign of fast - slow at the last bar, 0 until both are ready
+
+            @Override
+            public AlertAction onBar(Bar bar) {
+                double close = bar.close();
+                double f = fastEma.update(close);
+                double s = slowEma.update(close);
+                double r = rsi.update(close);
+                if (!slowEma.ready()) return null;
+                int now = Double.compare(f, s);
+                int before = side;
+                if (now != 0) side = now;
+                if (before == 0 || now == 0 || now == before) return null;
+                if (now > 0) return rsi.ready() && r >= 70 ? null : AlertAction.BUY;
+                return rsi.ready() && r <= 30 ? null : AlertAction.SELL;
+            }
+        };
+    }
+}
@@ -0,0 +1,279 @@
+package com.algotrade.bot.services;
+
+/**
+ * Streaming technical indicators for in-process strategies.
+ * <p>
+ * Each indicator keeps its window in a primitive ring buffer (or in a few running values) and
+ * does a constant amount of work per update, however long the period, allocating nothing after
+ * construction. {@code value()} is meaningful once {@code ready()}; before that it reflects the
+ * samples seen so far. Not thread-safe: one instance per symbol, updated from one thread.
+ */
+public final class Indicators {
+
+    private Indicators() {}
+
+    /**
+     * Fixed-size window of doubles with a running sum and sum of squares. The sums are rebuilt
+     * from the window each time it wraps, so floating-point drift cannot accumulate.
+     */
+    static final class Window {
+        private final double[] values;
+        private int next;
+        private int count;
+        private double sum;
+        private double sumSquares;
+
+        Window(int period) {
+            if (period <= 0) throw new IllegalArgumentException("period must be positive: " + period);
+            values = new double[period];
+        }
+
+        void add(double v) {
+            if (count == values.length) {
+                double old = values[next];
+                sum -= old;
+                sumSquares -= old * old;
+            } else {
+                count++;
+            }
+            values[next] = v;
+            sum += v;
+            sumSquares += v * v;
+            if (++next == values.length) {
+                next = 0;
+                resum();
+            }
+        }
+
+        private void resum() {
+            double s = 0, sq = 0;
+            for (int i = 0; i < count; i++) {
+                s += values[i];
+                sq += values[i] * values[i];
+            }
+            sum = s;
+            sumSquares = sq;
+        }
+
+        boolean full() {
+            return count == values.length;
+        }
+
+        double mean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        /** Population standard deviation of the window. */
+        double stdDev() {
+            if (count == 0) return Double.NaN;
+            double mean = sum / count;
+            return Math.sqrt(Math.max(0, sumSquares / count - mean * mean));
+        }
+    }
+
+    public static final class Sma {
+        private final Window window;
+
+        public Sma(int period) {
+            window = new Window(period);
+        }
+
+        public double update(double price) {
+            window.add(price);
+            return value();
+        }
+
+        public double value() {
+            return window.mean();
+        }
+
+        public boolean ready() {
+            return window.full();
+        }
+    }
+
+    /**
+     * Exponential moving average with {@code alpha = 2 / (period + 1)}, seeded with the simple
+     * average of the first {@code period} prices.
+     */
+    public static final class Ema {
+        private final int period;
+        private final double alpha;
+        private int count;
+        private double value;
+
+        public Ema(int period) {
+            if (period <= 0) throw new IllegalArgumentException("period must be positive: " + period);
+            this.period = period;
+            this.alpha = 2.0 / (period + 1);
+        }
+
+        public double update(double price) {
+            if (count < period) {
+                value = (value * count + price) / ++count;
+            } else {
+                value += alpha * (price - value);
+            }
+            return value;
+        }
+
+        public double value() {
+            return count == 0 ? Double.NaN : value;
+        }
+
+        public boolean ready() {
+            return count >= period;
+        }
+    }
+
+    /**
+     * Wilder's RSI, 0 to 100. Needs {@code period + 1} prices.
+     */
+    public static final class Rsi {
+        private final int period;
+        private int count;
+        private double previous;
+        private double avgGain;
+        private double avgLoss;
+
+        public Rsi(int period) {
+            if (period <= 0) throw new IllegalArgumentException("period must be positive: " + period);
+            this.period = period;
+        }
+
+        public double update(double price) {
+            if (count++ == 0) {
+                previous = price;
+                return value();
+            }
+            double change = price - previous;
+            previous = price;
+            double gain = change > 0 ? change : 0;
+            double loss = change < 0 ? -change : 0;
+            if (count <= period + 1) {
+                // seed with the simple average of the first period changes
+                int n = count - 1;
+                avgGain += (gain - avgGain) / n;
+                avgLoss += (loss - avgLoss) / n;
+            } else {
+                avgGain = (avgGain * (period - 1) + gain) / period;
+                avgLoss = (avgLoss * (period - 1) + loss) / period;
+            }
+            return value();
+        }
+
+        public double value() {
+            if (count < 2) return Double.NaN;
+            if (avgLoss == 0) return avgGain == 0 ? 50 : 100;
+            return 100 - 100 / (1 + avgGain / avgLoss);
+        }
+
+        public boolean ready() {
+            return count > period;
+        }
+    }
+
+    /**
+     * Volume-weighted average price since the last {@link #reset()}, normally the session open.
+     */
+    public static final class Vwap {
+        private double priceVolume;
+        private double volume;
+
+        public double update(double price, double qty) {
+            if (qty > 0) {
+                priceVolume += price * qty;
+                volume += qty;
+            }
+            return value();
+        }
+
+        public double value() {
+            return volume == 0 ? Double.NaN : priceVolume / volume;
+        }
+
+        public boolean ready() {
+            return volume > 0;
+        }
+
+        public void reset() {
+            priceVolume = 0;
+            volume = 0;
+        }
+    }
+
+    /**
+     * Wilder's average true range over bars.
+     */
+    public static final class Atr {
+        private final int period;
+        private int count;
+        private double previousClose;
+        private double value;
+
+        public Atr(int period) {
+            if (period <= 0) throw new IllegalArgumentException("period must be positive: " + period);
+            this.period = period;
+        }
+
+        public double update(double high, double low, double close) {
+            double range = high - low;
+            if (count > 0) range = Math.max(range, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+            previousClose = close;
+            if (count < period) {
+                value = (value * count + range) / ++count;
+            } else {
+                value = (value * (period - 1) + range) / period;
+            }
+            return value;
+        }
+
+        public double value() {
+            return count == 0 ? Double.NaN : value;
+        }
+
+        public boolean ready() {
+            return count >= period;
+        }
+    }
+
+    /**
+     * Bollinger bands: the simple average of the window plus and minus {@code width} population
+     * standard deviations.
+     */
+    public static final class Bollinger {
+        private final Window window;
+        private final double width;
+
+        public Bollinger(int period, double width) {
+            window = new Window(period);
+            this.width = width;
+        }
+
+        public void update(double price) {
+            window.add(price);
+        }
+
+        public double middle() {
+            return window.mean();
+        }
+
+        public double upper() {
+            return window.mean() + width * window.stdDev();
+        }
+
+        public double lower() {
+            return window.mean() - width * window.stdDev();
+        }
+
+        /** Where the price sits in the bands: 0 at the lower band, 1 at the upper. */
+        public double percentB(double price) {
+            double lo = lower(), hi = upper();
+            return hi == lo ? 0.5 : (price - lo) / (hi - lo);
+        }
+
+        public boolean ready() {
+            return window.full();
+        }
+    }
+}
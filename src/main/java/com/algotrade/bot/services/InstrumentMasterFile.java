@@ -0,0 +1,347 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Instrument;
+import com.algotrade.bot.model.Scrip;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * The instrument master as a memory-mapped file of fixed-width records, so it lives off-heap and
+ * is ready as soon as it is mapped.
+ * <pre>
+ * header  : magic(int) version(int) createdMillis(long) recordCount(int) aliasCount(int)
+ * records : sorted by (exchange, upper-case tradingsymbol)
+ *           exchange[8] tradingsymbol[40] token[16] name[32] type[12] lotSize(int) tickSize(double)
+ * aliases : sorted the same way; exchange[8] alias[40] record(int)
+ * </pre>
+ * Text fields are ASCII, zero-padded. Lookups binary-search the mapped bytes directly and return a
+ * record number, so they allocate nothing; a {@link Cursor} then reads single fields in place.
+ */
+final class InstrumentMasterFile {
+
+    private static final int MAGIC = 0x494D4631; // "IMF1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    private static final int EXCH = 8, SYMBOL = 40, TOKEN = 16, NAME = 32, TYPE = 12;
+    private static final int KEY = EXCH + SYMBOL;
+    private static final int OFF_TOKEN = KEY, OFF_NAME = OFF_TOKEN + TOKEN, OFF_TYPE = OFF_NAME + NAME;
+    private static final int OFF_LOT = OFF_TYPE + TYPE, OFF_TICK = OFF_LOT + 4;
+    static final int RECORD_BYTES = OFF_TICK + 8;
+    static final int ALIAS_BYTES = KEY + 4;
+
+    static final InstrumentMasterFile EMPTY = new InstrumentMasterFile(
+            ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN), 0, 0, 0);
+
+    // query key scratch, reused per thread so lookups do not allocate
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[KEY]);
+
+    private final ByteBuffer buf;
+    private final long createdMillis;
+    private final int recordCount;
+    private final int aliasCount;
+    private final int aliasBase;
+
+    private InstrumentMasterFile(ByteBuffer buf, long createdMillis, int recordCount, int aliasCount) {
+        this.buf = buf;
+        this.createdMillis = createdMillis;
+        this.recordCount = recordCount;
+        this.aliasCount = aliasCount;
+        this.aliasBase = HEADER_BYTES + recordCount * RECORD_BYTES;
+    }
+
+    int size() {
+        return recordCount;
+    }
+
+    Instant created() {
+        return Instant.ofEpochMilli(createdMillis);
+    }
+
+    /**
+     * Map the file read-only. The mapping stays valid after the file is replaced on disk.
+     */
+    static InstrumentMasterFile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw new IOException("Not an instrument master: " + file);
+            int version = buf.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported instrument master version " + version);
+            int records = buf.getInt(16), aliases = buf.getInt(20);
+            if ((long) HEADER_BYTES + (long) records * RECORD_BYTES + (long) aliases * ALIAS_BYTES != buf.limit())
+                throw new IOException("Truncated instrument master: " + file);
+            return new InstrumentMasterFile(buf, buf.getLong(8), records, aliases);
+        }
+    }
+
+    /**
+     * Record number for the exact tradingsymbol, else for the ticker alias; -1 if neither is known.
+     * Case-insensitive; does not allocate.
+     */
+    int indexOf(String exchange, String symbol) {
+        byte[] key = SCRATCH.get();
+        if (!encodeKey(exchange, symbol, key)) return -1;
+        int i = search(HEADER_BYTES, RECORD_BYTES, recordCount, key);
+        if (i >= 0) return i;
+        int a = search(aliasBase, ALIAS_BYTES, aliasCount, key);
+        return a >= 0 ? buf.getInt(aliasBase + a * ALIAS_BYTES + KEY) : -1;
+    }
+
+    private int search(int base, int width, int count, byte[] key) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareKey(base + mid * width, key);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int compareKey(int offset, byte[] key) {
+        for (int i = 0; i < KEY; i++) {
+            int a = upper(buf.get(offset + i)), b = key[i];
+            if (a != b) return a - b;
+        }
+        return 0;
+    }
+
+    private static int upper(byte b) {
+        return b >= 'a' && b <= 'z' ? b - 32 : b;
+    }
+
+    /**
+     * Upper-cased, trimmed, zero-padded; false if it cannot be a key in this file.
+     */
+    private static boolean encodeKey(String exchange, String symbol, byte[] key) {
+        if (exchange == null || symbol == null) return false;
+        return encodeUpper(exchange, key, 0, EXCH) && encodeUpper(symbol, key, EXCH, SYMBOL);
+    }
+
+    private static boolean encodeUpper(String s, byte[] dst, int offset, int width) {
+        int start = 0, end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        if (end - start > width) return false;
+        for (int i = 0; i < width; i++) {
+            int c = start + i < end ? s.charAt(start + i) : 0;
+            if (c > 0x7f) return false;
+            dst[offset + i] = (byte) upper((byte) c);
+        }
+        return true;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Flyweight over one record. Numeric fields are read in place; text fields are decoded only when
+     * asked for. Not thread-safe; keep one per thread or per call.
+     */
+    final class Cursor {
+        private int offset = -1;
+
+        Cursor at(int record) {
+            if (record < 0 || record >= recordCount) throw new IndexOutOfBoundsException(record);
+            offset = HEADER_BYTES + record * RECORD_BYTES;
+            return this;
+        }
+
+        String exchange() {
+            return text(offset, EXCH);
+        }
+
+        String tradingsymbol() {
+            return text(offset + EXCH, SYMBOL);
+        }
+
+        String symboltoken() {
+            return text(offset + OFF_TOKEN, TOKEN);
+        }
+
+        String name() {
+            return text(offset + OFF_NAME, NAME);
+        }
+
+        String instrumentType() {
+            return text(offset + OFF_TYPE, TYPE);
+        }
+
+        int lotSize() {
+            return buf.getInt(offset + OFF_LOT);
+        }
+
+        double tickSize() {
+            return buf.getDouble(offset + OFF_TICK);
+        }
+
+        Scrip toScrip() {
+            return new Scrip(exchange(), tradingsymbol(), symboltoken());
+        }
+
+        Instrument toInstrument() {
+            return new Instrument(exchange(), tradingsymbol(), symboltoken(), name(), instrumentType(), lotSize(), tickSize());
+        }
+    }
+
+    private String text(int offset, int width) {
+        int len = 0;
+        while (len < width && buf.get(offset + len) != 0) len++;
+        byte[] b = new byte[len];
+        buf.get(offset, b);
+        return new String(b, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Stream-parse the broker's master JSON array, keeping only rows for {@code exchanges} (all if
+     * empty), and write the binary file atomically. Rows whose fields do not fit are skipped.
+     *
+     * @return the number of instruments written
+     */
+    static int convert(InputStream json, Set<String> exchanges, Path out) throws IOException {
+        List<Instrument> rows = new ArrayList<>(1 << 16);
+        try (JsonParser p = new JsonFactory().createParser(json)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) throw new JsonParseException(p, "Expected an array of instruments");
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                String token = null, symbol = null, name = null, type = null, exch = null, lot = null, tick = null;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    switch (field) {
+                        case "token" -> token = p.getValueAsString();
+                        case "symbol" -> symbol = p.getValueAsString();
+                        case "name" -> name = p.getValueAsString();
+                        case "instrumenttype" -> type = p.getValueAsString();
+                        case "exch_seg" -> exch = p.getValueAsString();
+                        case "lotsize" -> lot = p.getValueAsString();
+                        case "tick_size" -> tick = p.getValueAsString();
+                        default -> p.skipChildren();
+                    }
+                }
+                if (token == null || symbol == null || exch == null) continue;
+                exch = exch.trim().toUpperCase();
+                if (!exchanges.isEmpty() && !exchanges.contains(exch)) continue;
+                symbol = symbol.trim();
+                if (!fits(exch, EXCH) || !fits(symbol, SYMBOL) || !fits(token, TOKEN)) continue;
+                rows.add(new Instrument(exch, symbol, token, clip(name, NAME), clip(type, TYPE), parseInt(lot), parseDouble(tick)));
+            }
+        }
+        write(out, rows);
+        return rows.size();
+    }
+
+    /**
+     * Write {@code instruments} (in any order) to {@code out} via a temp file and atomic move.
+     */
+    static void write(Path out, Collection<Instrument> instruments) throws IOException {
+        // later rows win on duplicate keys, as in the source file
+        TreeMap<String, Instrument> sorted = new TreeMap<>();
+        for (Instrument i : instruments) sorted.put(sortKey(i.exchange(), i.tradingsymbol()), i);
+
+        // bare ticker for equities first, then names, never shadowing an exact symbol
+        Map<String, String> aliases = new HashMap<>();
+        for (Instrument i : sorted.values()) {
+            String s = i.tradingsymbol();
+            if (s.toUpperCase().endsWith("-EQ")) aliases.put(sortKey(i.exchange(), s.substring(0, s.length() - 3)), sortKey(i.exchange(), s));
+        }
+        for (Instrument i : sorted.values()) {
+            String s = i.tradingsymbol();
+            if (s.toUpperCase().endsWith("-EQ") && i.name() != null && !i.name().isBlank() && fits(i.name().trim(), SYMBOL))
+                aliases.putIfAbsent(sortKey(i.exchange(), i.name().trim()), sortKey(i.exchange(), s));
+        }
+        aliases.keySet().removeAll(sorted.keySet());
+
+        Map<String, Integer> recordNo = new HashMap<>(sorted.size() * 2);
+        int n = 0;
+        for (String k : sorted.keySet()) recordNo.put(k, n++);
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            b.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(sorted.size()).putInt(aliases.size());
+            for (Instrument i : sorted.values()) {
+                if (b.remaining() < RECORD_BYTES) drain(ch, b);
+                putText(b, i.exchange(), EXCH);
+                putText(b, i.tradingsymbol(), SYMBOL);
+                putText(b, i.symboltoken(), TOKEN);
+                putText(b, i.name(), NAME);
+                putText(b, i.instrumentType(), TYPE);
+                b.putInt(i.lotSize()).putDouble(i.tickSize());
+            }
+            for (Map.Entry<String, String> a : new TreeMap<>(aliases).entrySet()) {
+                if (b.remaining() < ALIAS_BYTES) drain(ch, b);
+                String key = a.getKey();
+                int sep = key.indexOf('\0');
+                putText(b, key.substring(0, sep), EXCH);
+                putText(b, key.substring(sep + 1), SYMBOL);
+                b.putInt(recordNo.get(a.getValue()));
+            }
+            drain(ch, b);
+            ch.force(true);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // same order as compareKey: exchange, then upper-case symbol, zero padding sorting first
+    private static String sortKey(String exchange, String symbol) {
+        return exchange.toUpperCase() + '\0' + symbol.trim().toUpperCase();
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining()) ch.write(b);
+        b.clear();
+    }
+
+    private static void putText(ByteBuffer b, String s, int width) {
+        int len = s == null ? 0 : Math.min(s.length(), width);
+        for (int i = 0; i < width; i++) b.put(i < len ? (byte) s.charAt(i) : 0);
+    }
+
+    private static boolean fits(String s, int width) {
+        if (s.isEmpty() || s.length() > width) return false;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) < 0x20 || s.charAt(i) > 0x7f) return false;
+        return true;
+    }
+
+    private static String clip(String s, int width) {
+        if (s == null) return null;
+        StringBuilder sb = new StringBuilder(Math.min(s.length(), width));
+        for (int i = 0; i < s.length() && sb.length() < width; i++) if (s.charAt(i) <= 0x7f) sb.append(s.charAt(i));
+        return sb.toString().trim();
+    }
+
+    private static int parseInt(String s) {
+        try {
+            return s == null || s.isBlank() ? 0 : (int) Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String s) {
+        try {
+            return s == null || s.isBlank() ? 0 : Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Instrument;
+import com.algotrade.bot.model.Scrip;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of AngelOne's instrument master, so resolving a symbol token on the order path is a
+ * lookup instead of a searchScrip round trip.
+ * <p>
+ * The master JSON is downloaded once a day (at {@code instruments.refresh-time} IST) into
+ * {@code instruments.file}, converted to the fixed-width {@link InstrumentMasterFile} at
+ * {@code instruments.index-file}, memory-mapped and swapped in. The records stay off-heap, and on
+ * restart the existing index file is just mapped again, so resolution is ready in milliseconds
+ * without a download or a parse. An index from an earlier day triggers a refresh in the
+ * background; until the first index is mapped, lookups miss and callers fall back to searchScrip.
+ */
+@Service
+public class InstrumentMasterService {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentMasterService.class);
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final BrokerHttpTransport transport;
+    private final URI masterUrl;
+    private final Path file;
+    private final Path indexFile;
+    private final Set<String> exchanges;
+    private final LocalTime refreshTime;
+    private final ScheduledExecutorService scheduler;
+    private volatile InstrumentMasterFile index = InstrumentMasterFile.EMPTY;
+    private volatile Instant loadedAt;
+
+    public InstrumentMasterService(BrokerHttpTransport transport,
+                                   @Value("${instruments.enabled:true}") boolean enabled,
+                                   @Value("${instruments.url:https://margincalculator.angelbroking.com/OpenAPI_File/files/OpenAPIScripMaster.json}") String masterUrl,
+                                   @Value("${instruments.file:instrument_master.json}") String file,
+                                   @Value("${instruments.index-file:instrument_master.bin}") String indexFile,
+                                   @Value("${instruments.exchanges:NSE,BSE,NFO}") String exchanges,
+                                   @Value("${instruments.refresh-time:08:30}") String refreshTime) {
+        this.transport = transport;
+        this.masterUrl = URI.create(masterUrl);
+        this.file = Path.of(file);
+        this.indexFile = Path.of(indexFile);
+        this.exchanges = new HashSet<>();
+        for (String e : exchanges.split(",")) if (!e.isBlank()) this.exchanges.add(e.trim().toUpperCase());
+        this.refreshTime = LocalTime.parse(refreshTime);
+
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "instrument-master");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.execute(this::loadOnStartup);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Look up by exact tradingsymbol, or by bare ticker for equities. Never calls the network.
+     */
+    public Optional<Instrument> find(String exchange, String symbol) {
+        InstrumentMasterFile idx = index;
+        int i = idx.indexOf(exchange, symbol);
+        return i < 0 ? Optional.empty() : Optional.of(idx.cursor().at(i).toInstrument());
+    }
+
+    /**
+     * The order-path variant of {@link #find}: only the three fields an order needs are decoded.
+     *
+     * @return the scrip, or null if the symbol is not in the index
+     */
+    public Scrip resolve(String exchange, String symbol) {
+        InstrumentMasterFile idx = index;
+        int i = idx.indexOf(exchange, symbol);
+        return i < 0 ? null : idx.cursor().at(i).toScrip();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("instruments", index.size());
+        m.put("exchanges", exchanges);
+        m.put("indexBytes", (long) index.size() * InstrumentMasterFile.RECORD_BYTES);
+        m.put("builtAt", index.size() > 0 ? index.created().toString() : null);
+        m.put("loadedAt", loadedAt != null ? loadedAt.toString() : null);
+        return m;
+    }
+
+    private void loadOnStartup() {
+        try {
+            if (Files.exists(indexFile)) {
+                mapIndex();
+            } else if (Files.exists(file)) {
+                convert();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load instrument master from {}: {}", indexFile, e.getMessage(), e);
+        }
+        boolean fresh = index.size() > 0
+                && !LocalDate.ofInstant(index.created(), IST).isBefore(LocalDate.now(IST));
+        if (!fresh) refresh();
+        scheduleNextRefresh();
+    }
+
+    private void scheduleNextRefresh() {
+        ZonedDateTime now = ZonedDateTime.now(IST);
+        ZonedDateTime next = now.with(refreshTime);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        scheduler.schedule(() -> {
+            try {
+                refresh();
+            } finally {
+                scheduleNextRefresh();
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Download the master and swap in the new index. The current index stays if anything fails.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path tmp = Files.createTempFile(parent, "instrument_master", ".json.tmp");
+            try {
+                HttpRequest request = HttpRequest.newBuilder(masterUrl).timeout(Duration.ofMinutes(2)).GET().build();
+                HttpResponse<Path> resp = transport.httpClient().send(request, HttpResponse.BodyHandlers.ofFile(tmp));
+                if (resp.statusCode() != 200) throw new IOException("HTTP " + resp.statusCode() + " from " + masterUrl);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            convert();
+            log.info("Instrument master refreshed: {} instruments in {} ms", index.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.error("Instrument master refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void convert() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            InstrumentMasterFile.convert(in, exchanges, indexFile);
+        }
+        mapIndex();
+    }
+
+    private void mapIndex() throws IOException {
+        long start = System.nanoTime();
+        index = InstrumentMasterFile.open(indexFile);
+        loadedAt = Instant.now();
+        log.info("Mapped {} instruments from {} in {} us", index.size(), indexFile,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
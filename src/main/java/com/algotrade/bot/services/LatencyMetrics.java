@@ -0,0 +1,156 @@
+package com.algotrade.bot.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency timers for the alert-to-order path.
+ * <p>
+ * Each alert stage is a {@code alert.stage} timer tagged {@code stage=...}; each broker call is a
+ * {@code broker.http} timer tagged with broker and endpoint. Both keep a percentile histogram with
+ * p50/p99/p999 over Micrometer's rolling window, so the numbers reflect the live session rather
+ * than the whole uptime. Timers are cached, so recording is a map lookup plus the histogram update.
+ */
+@Component
+public class LatencyMetrics {
+
+    public static final String STAGE_TIMER = "alert.stage";
+    public static final String BROKER_TIMER = "broker.http";
+    public static final String RATE_LIMIT_WAIT_TIMER = "broker.ratelimit.wait";
+    public static final String RATE_LIMIT_REJECTED = "broker.ratelimit.rejected";
+
+    // alert stages, in path order
+    public static final String RECEIVE = "receive";
+    public static final String VALIDATE = "validate";
+    public static final String PARSE = "parse";
+    public static final String DEDUPE = "dedupe";
+    public static final String QUEUE = "queue";
+    public static final String PERSIST = "persist";
+    public static final String RESOLVE = "resolve";
+    public static final String BUILD = "build";
+    public static final String PLACE = "place";
+    public static final String UPDATE = "update";
+    public static final String END_TO_END = "end_to_end";
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stages = new ConcurrentHashMap<>();
+    private final Map<String, Timer> broker = new ConcurrentHashMap<>();
+    private final Map<String, Timer> rateLimitWaits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rateLimitRejections = new ConcurrentHashMap<>();
+
+    public LatencyMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    /**
+     * Record {@code System.nanoTime() - startNanos} against an alert stage.
+     */
+    public void stage(String stage, long startNanos) {
+        stages.computeIfAbsent(stage, s -> timer(STAGE_TIMER, "stage", s))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stageMillis(String stage, long millis) {
+        stages.computeIfAbsent(stage, s -> timer(STAGE_TIMER, "stage", s))
+                .record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public <T> T stage(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            stage(stage, start);
+        }
+    }
+
+    /**
+     * Record a broker HTTP round trip, including failed ones.
+     */
+    public void broker(String brokerName, String endpoint, long startNanos) {
+        broker.computeIfAbsent(brokerName + '/' + endpoint, k -> timer(BROKER_TIMER, "broker", brokerName, "endpoint", endpoint))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record how long a broker call waited for the client-side rate limiter.
+     */
+    public void rateLimitWait(String brokerName, String endpoint, String priority, long startNanos) {
+        rateLimitWaits.computeIfAbsent(brokerName + '/' + endpoint + '/' + priority,
+                        k -> timer(RATE_LIMIT_WAIT_TIMER, "broker", brokerName, "endpoint", endpoint, "priority", priority))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rateLimitRejected(String brokerName, String endpoint, String priority) {
+        rateLimitRejections.computeIfAbsent(brokerName + '/' + endpoint + '/' + priority,
+                        k -> Counter.builder(RATE_LIMIT_REJECTED)
+                                .tags("broker", brokerName, "endpoint", endpoint, "priority", priority)
+                                .register(registry))
+                .increment();
+    }
+
+    /**
+     * Per stage and per broker endpoint: count, mean, max and percentiles in milliseconds; plus
+     * rate-limiter waits and rejections.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("stages", summarize(stages));
+        out.put("broker", summarize(broker));
+        out.put("rateLimitWait", summarize(rateLimitWaits));
+        Map<String, Object> rejected = new TreeMap<>();
+        rateLimitRejections.forEach((k, c) -> rejected.put(k, (long) c.count()));
+        out.put("rateLimitRejected", rejected);
+        return out;
+    }
+
+    private static Map<String, Object> summarize(Map<String, Timer> timers) {
+        Map<String, Object> out = new TreeMap<>();
+        timers.forEach((name, t) -> {
+            HistogramSnapshot s = t.takeSnapshot();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", s.count());
+            m.put("meanMs", round(s.mean(TimeUnit.MILLISECONDS)));
+            m.put("maxMs", round(s.max(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile p : s.percentileValues()) {
+                m.put(label(p.percentile()), round(p.value(TimeUnit.MILLISECONDS)));
+            }
+            out.put(name, m);
+        });
+        return out;
+    }
+
+    private static String label(double percentile) {
+        if (percentile == 0.5) return "p50Ms";
+        if (percentile == 0.99) return "p99Ms";
+        if (percentile == 0.999) return "p999Ms";
+        return "p" + percentile + "Ms";
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000.0) / 1000.0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.algotrade.bot.services;
+
+/**
+ * The client has no tokens in the {@link TokenVault}: it logged out, or never logged in. Thrown by
+ * the broker calls that run on a client code rather than a browser session, so a background engine
+ * can tell a lost login from a failed call.
+ */
+public class LoggedOutException extends RuntimeException {
+
+    public LoggedOutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package com.algotrade.bot.services;
+
+/**
+ * Open-addressing map from long keys to non-negative ints, for per-tick lookups that must not box
+ * or allocate. Key 0 is reserved as the empty marker. Not thread-safe.
+ */
+final class LongIntMap {
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return the value, or -1 if absent
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == 0) return -1;
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == 0) throw new IllegalArgumentException("Key 0 is reserved");
+        if ((size + 1) * 2 > keys.length) resize();
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == 0) size++;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int index(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+    }
+}
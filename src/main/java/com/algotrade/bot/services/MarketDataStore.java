@@ -0,0 +1,299 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Bar;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only history of streamed ticks and closed bars, in columnar segments: one
+ * {@link ColumnSegment} per symbol per day per series, under
+ * {@code marketdata.dir/yyyy-MM-dd/<exchangeType>-<token>.<series>}.
+ * <pre>
+ * ticks    : time, ltp, lastTradedQty, cumulative volume
+ * bars-&lt;n&gt;m : start, open, high, low, close, volume, ticks
+ * </pre>
+ * Prices are in paise, times in epoch millis; the day is the local date in {@code marketdata.zone}.
+ * Writes go straight into the mapped files and leave flushing to the OS, except at shutdown and
+ * when a segment is rolled at the end of the day.
+ * <p>
+ * Scans map each segment in the range read-only and walk its columns in place, handing rows to a
+ * primitive visitor, so no row is decoded into an object unless the caller wants one. Ticks are
+ * written from a critical {@link TickBus} consumer and bars from the {@link BarAggregator}'s
+ * listener, each series by one thread.
+ */
+@Service
+public class MarketDataStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataStore.class);
+
+    static final String TICKS = "ticks";
+    private static final int TICK_COLUMNS = 4, BAR_COLUMNS = 7;
+
+    public interface TickVisitor {
+        void tick(long timeMillis, long ltp, long qty, long volume);
+    }
+
+    public interface BarVisitor {
+        void bar(long startMillis, long open, long high, long low, long close, long volume, long ticks);
+    }
+
+    // the open segment of one series for each symbol, touched by that series' writer thread only
+    private final class Writer {
+        final String series;
+        final int columns;
+        final int capacity;
+        final LongIntMap index = new LongIntMap(256);
+        ColumnSegment[] segments = new ColumnSegment[256];
+        int count;
+
+        Writer(String series, int columns, int capacity) {
+            this.series = series;
+            this.columns = columns;
+            this.capacity = capacity;
+        }
+
+        ColumnSegment segment(int exchangeType, long token, long epochDay) throws IOException {
+            long key = Tick.key(exchangeType, token);
+            int i = index.get(key);
+            if (i >= 0 && segments[i].epochDay() == epochDay) return segments[i];
+            ColumnSegment s = ColumnSegment.openForAppend(path(exchangeType, token, series, epochDay), columns, capacity, epochDay);
+            segmentsOpened.incrementAndGet();
+            if (i >= 0) {
+                segments[i].force(); // yesterday's segment is complete
+                segments[i] = s;
+            } else {
+                if (count == segments.length) segments = Arrays.copyOf(segments, count * 2);
+                segments[count] = s;
+                index.put(key, count++);
+            }
+            return s;
+        }
+
+        void force() {
+            for (int i = 0; i < count; i++) segments[i].force();
+        }
+    }
+
+    private final Path dir;
+    private final long offsetMillis;
+    private final int tickCapacity;
+    private final Writer ticks;
+    private final Map<Integer, Writer> bars = new HashMap<>();
+    private final List<AutoCloseable> subscriptions = new ArrayList<>();
+
+    private final AtomicLong ticksWritten = new AtomicLong();
+    private final AtomicLong barsWritten = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong segmentsOpened = new AtomicLong();
+    private final AtomicLong rowsScanned = new AtomicLong();
+
+    @Autowired
+    public MarketDataStore(TickBus bus, BarAggregator aggregator,
+                           @Value("${marketdata.dir:marketdata}") String dir,
+                           @Value("${marketdata.zone:Asia/Kolkata}") String zone,
+                           @Value("${marketdata.ticks.enabled:true}") boolean recordTicks,
+                           @Value("${marketdata.bars.enabled:true}") boolean recordBars,
+                           @Value("${marketdata.ticks.initial-rows:65536}") int tickCapacity) {
+        this(Paths.get(dir), zone, tickCapacity, aggregator.intervals());
+        if (recordTicks) subscriptions.add(bus.subscribe("marketdata", this::append, true));
+        if (recordBars) aggregator.addListener(this::append);
+    }
+
+    MarketDataStore(Path dir, String zone, int tickCapacity, int[] intervals) {
+        this.dir = dir;
+        this.offsetMillis = BarAggregator.offsetMillis(zone);
+        this.tickCapacity = Math.max(16, tickCapacity);
+        this.ticks = new Writer(TICKS, TICK_COLUMNS, this.tickCapacity);
+        // a day's worth of bars always fits
+        for (int m : intervals) bars.put(m, new Writer(barSeries(m), BAR_COLUMNS, 1440 / m + 1));
+    }
+
+    static String barSeries(int intervalMinutes) {
+        return "bars-" + intervalMinutes + "m";
+    }
+
+    long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis + offsetMillis, 86_400_000L);
+    }
+
+    private Path path(int exchangeType, long token, String series, long epochDay) {
+        return dir.resolve(LocalDate.ofEpochDay(epochDay).toString()).resolve(exchangeType + "-" + token + "." + series);
+    }
+
+    /**
+     * Record one tick. Called on the tick consumer thread.
+     */
+    void append(Tick t) {
+        long time = t.exchangeTimeMillis > 0 ? t.exchangeTimeMillis : System.currentTimeMillis();
+        try {
+            ColumnSegment s = ticks.segment(t.exchangeType, t.token, epochDay(time));
+            s.reserve();
+            s.set(0, time);
+            s.set(1, t.ltp);
+            s.set(2, t.lastTradedQty);
+            s.set(3, t.volume);
+            s.commit();
+            ticksWritten.incrementAndGet();
+        } catch (IOException e) {
+            writeError(e);
+        }
+    }
+
+    /**
+     * Record one closed bar. Called from the bar aggregator's listener.
+     */
+    void append(Bar b) {
+        Writer w = bars.get(b.intervalMinutes());
+        if (w == null) return;
+        try {
+            ColumnSegment s = w.segment(b.exchangeType(), b.token(), epochDay(b.startMillis()));
+            s.reserve();
+            s.set(0, b.startMillis());
+            s.set(1, b.open());
+            s.set(2, b.high());
+            s.set(3, b.low());
+            s.set(4, b.close());
+            s.set(5, b.volume());
+            s.set(6, b.ticks());
+            s.commit();
+            barsWritten.incrementAndGet();
+        } catch (IOException e) {
+            writeError(e);
+        }
+    }
+
+    private void writeError(IOException e) {
+        // log the first and then every thousandth, not one line per tick
+        if (writeErrors.getAndIncrement() % 1000 == 0) log.error("Market data write failed: {}", e.getMessage(), e);
+    }
+
+    /**
+     * Visit the ticks of one symbol with {@code fromMillis <= time < toMillis}, in the order they
+     * arrived.
+     *
+     * @return ticks visited
+     */
+    public long scanTicks(int exchangeType, long token, long fromMillis, long toMillis, TickVisitor visitor) {
+        long visited = 0;
+        for (long day = epochDay(fromMillis), last = epochDay(toMillis - 1); day <= last; day++) {
+            ColumnSegment s = open(exchangeType, token, TICKS, day);
+            if (s == null) continue;
+            LongBuffer time = s.column(0), ltp = s.column(1), qty = s.column(2), volume = s.column(3);
+            int n = time.limit();
+            for (int r = 0; r < n; r++) {
+                long t = time.get(r);
+                if (t < fromMillis || t >= toMillis) continue;
+                visitor.tick(t, ltp.get(r), qty.get(r), volume.get(r));
+                visited++;
+            }
+            rowsScanned.addAndGet(n);
+        }
+        return visited;
+    }
+
+    /**
+     * Visit the stored bars of one symbol and interval starting in {@code [fromMillis, toMillis)},
+     * oldest first.
+     *
+     * @return bars visited
+     */
+    public long scanBars(int exchangeType, long token, int intervalMinutes, long fromMillis, long toMillis, BarVisitor visitor) {
+        if (!bars.containsKey(intervalMinutes)) throw new IllegalArgumentException("Not a stored interval: " + intervalMinutes);
+        String series = barSeries(intervalMinutes);
+        long visited = 0;
+        for (long day = epochDay(fromMillis), last = epochDay(toMillis - 1); day <= last; day++) {
+            ColumnSegment s = open(exchangeType, token, series, day);
+            if (s == null) continue;
+            LongBuffer start = s.column(0), open = s.column(1), high = s.column(2), low = s.column(3),
+                    close = s.column(4), volume = s.column(5), count = s.column(6);
+            int n = start.limit();
+            for (int r = 0; r < n; r++) {
+                long t = start.get(r);
+                if (t < fromMillis || t >= toMillis) continue;
+                visitor.bar(t, open.get(r), high.get(r), low.get(r), close.get(r), volume.get(r), count.get(r));
+                visited++;
+            }
+            rowsScanned.addAndGet(n);
+        }
+        return visited;
+    }
+
+    /**
+     * {@link #scanBars} collected into records, for callers that want objects.
+     */
+    public List<Bar> bars(int exchangeType, long token, int intervalMinutes, long fromMillis, long toMillis) {
+        List<Bar> out = new ArrayList<>();
+        scanBars(exchangeType, token, intervalMinutes, fromMillis, toMillis, (start, o, h, l, c, v, n) ->
+                out.add(new Bar(exchangeType, token, intervalMinutes, start, o, h, l, c, v, (int) n)));
+        return out;
+    }
+
+    /**
+     * Symbols with a stored segment of {@code series} on any day in the range, as
+     * {@link Tick#key} keys.
+     */
+    public long[] symbols(String series, long fromMillis, long toMillis) {
+        TreeSet<Long> keys = new TreeSet<>();
+        String suffix = "." + series;
+        for (long day = epochDay(fromMillis), last = epochDay(toMillis - 1); day <= last; day++) {
+            Path d = dir.resolve(LocalDate.ofEpochDay(day).toString());
+            if (!Files.isDirectory(d)) continue;
+            try (var files = Files.list(d)) {
+                files.map(p -> p.getFileName().toString()).filter(f -> f.endsWith(suffix)).forEach(f -> {
+                    String[] parts = f.substring(0, f.length() - suffix.length()).split("-");
+                    keys.add(Tick.key(Integer.parseInt(parts[0]), Long.parseLong(parts[1])));
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return keys.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private ColumnSegment open(int exchangeType, long token, String series, long epochDay) {
+        Path p = path(exchangeType, token, series, epochDay);
+        if (!Files.exists(p)) return null;
+        try {
+            return ColumnSegment.openReadOnly(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("dir", dir.toAbsolutePath().toString());
+        m.put("ticksWritten", ticksWritten.get());
+        m.put("barsWritten", barsWritten.get());
+        m.put("segmentsOpened", segmentsOpened.get());
+        m.put("writeErrors", writeErrors.get());
+        m.put("rowsScanned", rowsScanned.get());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (AutoCloseable s : subscriptions) {
+            try {
+                s.close();
+            } catch (Exception ignored) {
+            }
+        }
+        ticks.force();
+        bars.values().forEach(Writer::force);
+    }
+}
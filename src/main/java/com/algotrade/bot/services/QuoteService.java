@@ -0,0 +1,225 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Instrument;
+import com.algotrade.bot.model.Quote;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last traded prices with as few broker calls as possible.
+ * <p>
+ * A fresh price ({@code quotes.ttl-ms}) is served from cache. Otherwise concurrent requests for the
+ * same instrument share one in-flight future, and instruments requested within
+ * {@code quotes.batch-window-ms} of each other (per client) go out together in one call to the
+ * multi-instrument quote endpoint, up to 50 per call.
+ */
+@Service
+public class QuoteService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteService.class);
+    static final int MAX_BATCH = 50;
+
+    private final AngelOneService angelOneService;
+    private final InstrumentMasterService instruments;
+    private final long ttlNanos;
+    private final long windowMillis;
+    private final Duration timeout;
+
+    private record Cached(Quote quote, long atNanos) {}
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Quote>> inFlight = new ConcurrentHashMap<>();
+    // guarded by itself
+    private final Map<String, Batch> open = new HashMap<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService fetchers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("quote-fetch-", 0).factory());
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong brokerCalls = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+
+    public QuoteService(AngelOneService angelOneService,
+                        InstrumentMasterService instruments,
+                        @Value("${quotes.ttl-ms:1000}") long ttlMs,
+                        @Value("${quotes.batch-window-ms:20}") long windowMs,
+                        @Value("${quotes.timeout-ms:5000}") long timeoutMs) {
+        this.angelOneService = angelOneService;
+        this.instruments = instruments;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.windowMillis = windowMs;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "quote-batcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static final class Batch {
+        final HttpSession session;
+        final Set<String> keys = new LinkedHashSet<>();
+
+        Batch(HttpSession session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * LTP for one instrument by exchange and symbol token.
+     */
+    public CompletableFuture<Quote> ltp(HttpSession session, String exchange, String symboltoken) {
+        requests.incrementAndGet();
+        String key = exchange.toUpperCase() + ':' + symboltoken;
+        Cached c = cache.get(key);
+        if (c != null && System.nanoTime() - c.atNanos() < ttlNanos) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(c.quote());
+        }
+        CompletableFuture<Quote> mine = new CompletableFuture<>();
+        CompletableFuture<Quote> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        enqueue(session, key);
+        return mine;
+    }
+
+    /**
+     * LTPs for several symbols on one exchange, resolved through the instrument master (a numeric
+     * symbol is taken as the token). Unknown or failed symbols map to {@code {"error": ...}}.
+     */
+    public Map<String, Object> ltp(HttpSession session, String exchange, List<String> symbols) {
+        Map<String, CompletableFuture<Quote>> calls = new LinkedHashMap<>();
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            String token = symbol.chars().allMatch(Character::isDigit) ? symbol
+                    : instruments.find(exchange, symbol).map(Instrument::symboltoken).orElse(null);
+            if (token == null) out.put(symbol, Map.of("error", "Unknown symbol"));
+            else calls.put(symbol, ltp(session, exchange, token));
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        calls.forEach((symbol, call) -> {
+            try {
+                out.put(symbol, call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                out.put(symbol, Map.of("error", String.valueOf(e.getCause().getMessage())));
+            } catch (TimeoutException e) {
+                out.put(symbol, Map.of("error", "timed out after " + timeout.toMillis() + " ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                out.put(symbol, Map.of("error", "interrupted"));
+            }
+        });
+        return out;
+    }
+
+    private void enqueue(HttpSession session, String key) {
+        String client = String.valueOf(session.getAttribute("clientCode"));
+        Batch full = null;
+        synchronized (open) {
+            Batch b = open.get(client);
+            if (b == null) {
+                Batch created = new Batch(session);
+                open.put(client, created);
+                timer.schedule(() -> flush(client, created), windowMillis, TimeUnit.MILLISECONDS);
+                b = created;
+            }
+            b.keys.add(key);
+            if (b.keys.size() >= MAX_BATCH) {
+                open.remove(client);
+                full = b;
+            }
+        }
+        if (full != null) {
+            Batch send = full;
+            fetchers.execute(() -> fetch(send));
+        }
+    }
+
+    private void flush(String client, Batch batch) {
+        synchronized (open) {
+            // already sent because it filled up
+            if (open.get(client) != batch) return;
+            open.remove(client);
+        }
+        fetchers.execute(() -> fetch(batch));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fetch(Batch batch) {
+        Map<String, List<String>> byExchange = new HashMap<>();
+        for (String key : batch.keys) {
+            int i = key.indexOf(':');
+            byExchange.computeIfAbsent(key.substring(0, i), e -> new ArrayList<>()).add(key.substring(i + 1));
+        }
+        Set<String> remaining = new HashSet<>(batch.keys);
+        try {
+            brokerCalls.incrementAndGet();
+            Map<String, Object> data = angelOneService.getMarketQuote(batch.session, "LTP", byExchange);
+            long now = System.nanoTime();
+            Object rows = data.get("fetched");
+            if (rows instanceof List<?> list) {
+                for (Object row : list) {
+                    if (!(row instanceof Map<?, ?> m)) continue;
+                    Quote q = toQuote((Map<String, Object>) m);
+                    String key = q.exchange() + ':' + q.symboltoken();
+                    if (!remaining.remove(key)) continue;
+                    // cache first, so a caller arriving after the in-flight entry is gone sees it
+                    cache.put(key, new Cached(q, now));
+                    CompletableFuture<Quote> f = inFlight.remove(key);
+                    if (f != null) f.complete(q);
+                    fetched.incrementAndGet();
+                }
+            }
+            for (String key : remaining) fail(key, new RuntimeException("No quote returned for " + key));
+        } catch (Exception e) {
+            log.warn("Quote batch of {} failed: {}", batch.keys.size(), e.getMessage());
+            for (String key : remaining) fail(key, e);
+        }
+    }
+
+    private void fail(String key, Exception e) {
+        CompletableFuture<Quote> f = inFlight.remove(key);
+        if (f != null) f.completeExceptionally(e);
+    }
+
+    private static Quote toQuote(Map<String, Object> m) {
+        Object ltp = m.get("ltp");
+        return new Quote(String.valueOf(m.get("exchange")).toUpperCase(),
+                (String) m.get("tradingSymbol"),
+                String.valueOf(m.get("symbolToken")),
+                ltp instanceof Number n ? n.doubleValue() : Double.parseDouble(String.valueOf(ltp)),
+                System.currentTimeMillis());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("requests", requests.get());
+        m.put("cacheHits", cacheHits.get());
+        m.put("coalesced", coalesced.get());
+        m.put("brokerCalls", brokerCalls.get());
+        m.put("fetched", fetched.get());
+        m.put("inFlight", inFlight.size());
+        m.put("cached", cache.size());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        fetchers.shutdownNow();
+    }
+}
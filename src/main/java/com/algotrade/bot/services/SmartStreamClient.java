@@ -0,0 +1,373 @@
+package com.algotrade.bot.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client for AngelOne's SmartStream WebSocket feed, authenticated with the feed token the
+ * {@link TokenVault} keeps from login.
+ * <p>
+ * The client owns the subscription set: tokens subscribed while disconnected are sent on connect,
+ * and the whole set is re-sent after every reconnect. A dropped connection is retried with
+ * exponential backoff up to {@code stream.reconnect-max-ms}. A ping goes out every
+ * {@code stream.ping-seconds}, and a connection that has been silent for two intervals is dropped
+ * and reopened. Binary frames are decoded into a reused {@link Tick} on the socket's thread and
+ * handed to each {@link TickHandler} in turn.
+ */
+@Component
+public class SmartStreamClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SmartStreamClient.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int SUBSCRIBE = 1, UNSUBSCRIBE = 0;
+
+    /**
+     * Receives every decoded tick on the socket's thread. The tick is reused after the call returns,
+     * and a slow handler delays the ones after it.
+     */
+    public interface TickHandler {
+        void onTick(Tick tick);
+    }
+
+    private final HttpClient http;
+    private final TokenVault vault;
+    private final String apiKey;
+    private final URI url;
+    private final int mode;
+    private final long pingMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+
+    // exchange type -> tokens
+    private final Map<Integer, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final List<TickHandler> handlers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean reconnectPending = new AtomicBoolean();
+
+    private volatile String clientCode;
+    private volatile boolean running;
+    private volatile Connection current;
+    private volatile int failures;
+    private ScheduledFuture<?> pinger;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+
+    public SmartStreamClient(BrokerHttpTransport transport, TokenVault vault,
+                             @Value("${angel.apikey:}") String apiKey,
+                             @Value("${stream.url:wss://smartapisocket.angelone.in/smart-stream}") String url,
+                             @Value("${stream.mode:1}") int mode,
+                             @Value("${stream.ping-seconds:30}") long pingSeconds,
+                             @Value("${stream.reconnect-max-ms:30000}") long maxBackoffMillis) {
+        if (mode < Tick.LTP || mode > Tick.SNAP_QUOTE) throw new IllegalArgumentException("stream.mode must be 1, 2 or 3, got " + mode);
+        this.http = transport.httpClient();
+        this.vault = vault;
+        this.apiKey = apiKey;
+        this.url = URI.create(url);
+        this.mode = mode;
+        this.pingMillis = TimeUnit.SECONDS.toMillis(pingSeconds);
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "smart-stream");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * SmartStream's exchange type code for an exchange name.
+     *
+     * @throws IllegalArgumentException for an exchange the feed does not carry
+     */
+    public static int exchangeType(String exchange) {
+        return switch (exchange.toUpperCase()) {
+            case "NSE" -> 1;
+            case "NFO" -> 2;
+            case "BSE" -> 3;
+            case "BFO" -> 4;
+            case "MCX" -> 5;
+            case "NCDEX" -> 7;
+            case "CDS" -> 13;
+            default -> throw new IllegalArgumentException("No stream for exchange " + exchange);
+        };
+    }
+
+    public void addHandler(TickHandler handler) {
+        handlers.add(handler);
+    }
+
+    public void removeHandler(TickHandler handler) {
+        handlers.remove(handler);
+    }
+
+    /**
+     * Open the feed for {@code clientCode}, whose tokens must be in the vault. Restarts the
+     * connection if it is already open for another client.
+     *
+     * @throws IllegalStateException if the client has not logged in
+     */
+    public synchronized void start(String clientCode) {
+        if (vault.get(clientCode) == null) throw new IllegalStateException("Not logged in.");
+        if (running && clientCode.equals(this.clientCode)) return;
+        stop();
+        this.clientCode = clientCode;
+        running = true;
+        failures = 0;
+        pinger = scheduler.scheduleAtFixedRate(this::ping, pingMillis, pingMillis, TimeUnit.MILLISECONDS);
+        scheduler.execute(this::connect);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (pinger != null) pinger.cancel(false);
+        Connection c = current;
+        current = null;
+        if (c != null) c.close();
+    }
+
+    public boolean isConnected() {
+        return current != null && current.open;
+    }
+
+    public void subscribe(String exchange, Collection<String> tokens) {
+        int type = exchangeType(exchange);
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> set = subscriptions.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet());
+        for (String token : tokens) if (set.add(token)) added.add(token);
+        Connection c = current;
+        if (c != null && c.open && !added.isEmpty()) c.send(request(SUBSCRIBE, Map.of(type, added)));
+    }
+
+    public void unsubscribe(String exchange, Collection<String> tokens) {
+        int type = exchangeType(exchange);
+        Set<String> set = subscriptions.get(type);
+        if (set == null) return;
+        Set<String> removed = new LinkedHashSet<>();
+        for (String token : tokens) if (set.remove(token)) removed.add(token);
+        Connection c = current;
+        if (c != null && c.open && !removed.isEmpty()) c.send(request(UNSUBSCRIBE, Map.of(type, removed)));
+    }
+
+    /**
+     * Subscribed tokens by exchange type.
+     */
+    public Map<Integer, Set<String>> subscriptions() {
+        Map<Integer, Set<String>> m = new TreeMap<>();
+        subscriptions.forEach((type, tokens) -> {
+            if (!tokens.isEmpty()) m.put(type, new TreeSet<>(tokens));
+        });
+        return m;
+    }
+
+    private String request(int action, Map<Integer, ? extends Collection<String>> byType) {
+        List<Map<String, Object>> tokenList = new ArrayList<>();
+        byType.forEach((type, tokens) -> tokenList.add(Map.of("exchangeType", type, "tokens", List.copyOf(tokens))));
+        try {
+            return JSON.writeValueAsString(Map.of(
+                    "correlationID", "algobot" + action,
+                    "action", action,
+                    "params", Map.of("mode", mode, "tokenList", tokenList)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void connect() {
+        reconnectPending.set(false);
+        if (!running) return;
+        String client = clientCode;
+        TokenVault.Tokens t = vault.get(client);
+        if (t == null || t.feedToken() == null) {
+            log.warn("SmartStream: no feed token for clientCode={}, stopping", client);
+            running = false;
+            return;
+        }
+        Connection c = new Connection();
+        http.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .header("Authorization", "Bearer " + t.jwt())
+                .header("x-api-key", apiKey)
+                .header("x-client-code", client)
+                .header("x-feed-token", t.feedToken())
+                .buildAsync(url, c)
+                .whenComplete((ws, err) -> {
+                    if (err != null) {
+                        log.warn("SmartStream: connect failed: {}", err.getMessage());
+                        reconnect();
+                    }
+                });
+    }
+
+    private void reconnect() {
+        if (!running || !reconnectPending.compareAndSet(false, true)) return;
+        long backoff = Math.min(maxBackoffMillis, 500L << Math.min(failures++, 10));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        log.info("SmartStream: reconnecting in {} ms", delay);
+        scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void ping() {
+        Connection c = current;
+        if (c == null || !c.open) return;
+        if (System.nanoTime() - c.lastMessageNanos > TimeUnit.MILLISECONDS.toNanos(2 * pingMillis)) {
+            log.warn("SmartStream: no data for {} ms, reconnecting", 2 * pingMillis);
+            c.drop();
+            return;
+        }
+        c.send("ping");
+    }
+
+    /**
+     * One WebSocket connection. The JDK calls a listener's methods one at a time, so the tick and
+     * frame buffer need no locking.
+     */
+    private final class Connection implements WebSocket.Listener {
+
+        private final Tick tick = new Tick();
+        private ByteBuffer frame = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        private final Object sendLock = new Object();
+        private CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+        private volatile WebSocket ws;
+        private volatile boolean open;
+        volatile long lastMessageNanos = System.nanoTime();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            ws = webSocket;
+            if (!running) {
+                // stopped during the handshake
+                close();
+                return;
+            }
+            open = true;
+            current = this;
+            failures = 0;
+            connects.incrementAndGet();
+            log.info("SmartStream: connected for clientCode={}", clientCode);
+            Map<Integer, Set<String>> all = subscriptions();
+            if (!all.isEmpty()) send(request(SUBSCRIBE, all));
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            lastMessageNanos = System.nanoTime();
+            if (frame.remaining() < data.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(frame.capacity() * 2, frame.position() + data.remaining()))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                frame.flip();
+                frame = bigger.put(frame);
+            }
+            frame.put(data);
+            if (last) {
+                frame.flip();
+                if (tick.decode(frame)) {
+                    ticks.incrementAndGet();
+                    for (TickHandler h : handlers) {
+                        try {
+                            h.onTick(tick);
+                        } catch (RuntimeException e) {
+                            log.warn("SmartStream: tick handler failed: {}", e.toString());
+                        }
+                    }
+                } else {
+                    malformed.incrementAndGet();
+                }
+                frame.clear();
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            lastMessageNanos = System.nanoTime();
+            // "pong", or a JSON error for a bad subscription
+            if (!"pong".contentEquals(data)) log.warn("SmartStream: {}", data);
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            log.info("SmartStream: closed {} {}", statusCode, reason);
+            lost();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            log.warn("SmartStream: connection error: {}", error.toString());
+            lost();
+        }
+
+        private void lost() {
+            boolean wasOpen = open;
+            open = false;
+            if (current == this) {
+                current = null;
+                if (wasOpen) drops.incrementAndGet();
+                reconnect();
+            }
+        }
+
+        // sends must not overlap on a JDK WebSocket, so each waits for the previous one
+        void send(String text) {
+            synchronized (sendLock) {
+                WebSocket socket = ws;
+                lastSend = lastSend.handle((r, e) -> null).thenCompose(x -> socket.sendText(text, true));
+            }
+        }
+
+        void drop() {
+            WebSocket socket = ws;
+            if (socket != null) socket.abort();
+            lost();
+        }
+
+        void close() {
+            open = false;
+            WebSocket socket = ws;
+            if (socket != null) socket.sendClose(WebSocket.NORMAL_CLOSURE, "bye").exceptionally(e -> {
+                socket.abort();
+                return null;
+            });
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("running", running);
+        m.put("connected", isConnected());
+        m.put("clientCode", clientCode);
+        m.put("subscribed", subscriptions.values().stream().mapToInt(Set::size).sum());
+        m.put("ticks", ticks.get());
+        m.put("malformed", malformed.get());
+        m.put("connects", connects.get());
+        m.put("drops", drops.get());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+}
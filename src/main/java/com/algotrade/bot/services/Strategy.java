@@ -0,0 +1,38 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+
+/**
+ * A trading rule run in-process by the {@link StrategyEngine}.
+ * <p>
+ * The engine asks for one {@link Evaluator} per registered symbol and feeds it either the closed
+ * bars of {@link #intervalMinutes()} or, when that is 0, every tick. A non-null action becomes an
+ * alert, exactly as if TradingView had sent it.
+ */
+public interface Strategy {
+
+    String name();
+
+    /**
+     * Bar interval to evaluate on, one of {@code bars.intervals}; 0 to evaluate every tick.
+     */
+    int intervalMinutes();
+
+    Evaluator newEvaluator();
+
+    /**
+     * Per-symbol state, typically a few {@link Indicators}. Called from one thread at a time and
+     * on the market-data path, so it must be quick and should not allocate.
+     */
+    interface Evaluator {
+
+        default AlertAction onBar(Bar bar) {
+            return null;
+        }
+
+        default AlertAction onTick(Tick tick) {
+            return null;
+        }
+    }
+}
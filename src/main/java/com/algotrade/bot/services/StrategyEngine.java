@@ -0,0 +1,256 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+import com.algotrade.bot.model.Scrip;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link Strategy} instances against the live feed and turns their signals into alerts.
+ * <p>
+ * Bar strategies are evaluated as the {@link BarAggregator} closes each bar, tick strategies on a
+ * critical {@link TickBus} consumer; either way the lookup is one primitive hash probe and the
+ * evaluators update their indicators in constant time. A signal is handed to a single
+ * "strategy-signals" thread, which builds a webhook-shaped payload and passes it to
+ * {@link AlertIngestionService#ingest}, so strategy alerts are deduplicated, stored, shown on the
+ * alerts page and auto-executed exactly like TradingView's. The payload carries
+ * {@code source=strategy} and the strategy name.
+ * <p>
+ * The built-in {@link EmaCrossStrategy} runs when {@code strategies.ema-cross.symbols} is set.
+ */
+@Service
+public class StrategyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(StrategyEngine.class);
+
+    // immutable once published to the registration list
+    private static final class Registration {
+        final Strategy strategy;
+        final String exchange;
+        final int qty;
+        final LongIntMap index;
+        final Strategy.Evaluator[] evaluators;
+        final String[] tickers;
+        final String[] tokens;
+
+        Registration(Strategy strategy, String exchange, int qty, List<Scrip> scrips) {
+            this.strategy = strategy;
+            this.exchange = exchange;
+            this.qty = qty;
+            int n = scrips.size();
+            this.index = new LongIntMap(n);
+            this.evaluators = new Strategy.Evaluator[n];
+            this.tickers = new String[n];
+            this.tokens = new String[n];
+            int type = SmartStreamClient.exchangeType(exchange);
+            for (int i = 0; i < n; i++) {
+                Scrip s = scrips.get(i);
+                tickers[i] = s.getTradingsymbol();
+                tokens[i] = s.getSymboltoken();
+                evaluators[i] = strategy.newEvaluator();
+                index.put(Tick.key(type, Long.parseLong(s.getSymboltoken())), i);
+            }
+        }
+    }
+
+    private final AlertIngestionService ingestion;
+    private final InstrumentMasterService instruments;
+    private final SmartStreamClient stream;
+    private final TickBus bus;
+    private final int[] intervals;
+    private final ExecutorService signals;
+    private final List<Registration> barStrategies = new CopyOnWriteArrayList<>();
+    private final List<Registration> tickStrategies = new CopyOnWriteArrayList<>();
+    private AutoCloseable tickSubscription;
+
+    private final AtomicLong barsEvaluated = new AtomicLong();
+    private final AtomicLong ticksEvaluated = new AtomicLong();
+    private final AtomicLong signalCount = new AtomicLong();
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public StrategyEngine(BarAggregator bars, TickBus bus, SmartStreamClient stream,
+                          AlertIngestionService ingestion, InstrumentMasterService instruments,
+                          @Value("${strategies.ema-cross.symbols:}") String emaCrossSymbols,
+                          @Value("${strategies.ema-cross.exchange:NSE}") String emaCrossExchange,
+                          @Value("${strategies.ema-cross.interval:5}") int emaCrossInterval,
+                          @Value("${strategies.ema-cross.fast:9}") int emaCrossFast,
+                          @Value("${strategies.ema-cross.slow:21}") int emaCrossSlow,
+                          @Value("${strategies.ema-cross.rsi:14}") int emaCrossRsi,
+                          @Value("${strategies.ema-cross.qty:1}") int emaCrossQty) {
+        this(ingestion, instruments, stream, bus, bars.intervals());
+        bars.addListener(this::onBar);
+        List<String> symbols = Arrays.stream(emaCrossSymbols.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        if (!symbols.isEmpty()) {
+            try {
+                register(new EmaCrossStrategy(emaCrossInterval, emaCrossFast, emaCrossSlow, emaCrossRsi),
+                        emaCrossExchange, symbols, emaCrossQty);
+            } catch (IllegalArgumentException e) {
+                log.warn("EMA cross strategy not started: {}", e.getMessage());
+            }
+        }
+    }
+
+    StrategyEngine(AlertIngestionService ingestion, InstrumentMasterService instruments,
+                   SmartStreamClient stream, TickBus bus, int[] intervals) {
+        this.ingestion = ingestion;
+        this.instruments = instruments;
+        this.stream = stream;
+        this.bus = bus;
+        this.intervals = intervals.clone();
+        Arrays.sort(this.intervals);
+        this.signals = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "strategy-signals");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Run a strategy on the given symbols, subscribing them on the tick feed. Symbols missing from
+     * the instrument master are logged and skipped.
+     *
+     * @throws IllegalArgumentException if the strategy's interval is not one the bar aggregator
+     *                                  builds, or if none of the symbols resolve
+     */
+    public synchronized void register(Strategy strategy, String exchange, List<String> symbols, int qty) {
+        int interval = strategy.intervalMinutes();
+        if (interval != 0 && Arrays.binarySearch(intervals, interval) < 0) {
+            throw new IllegalArgumentException("Strategy " + strategy.name() + " needs " + interval
+                    + "m bars but bars.intervals is " + Arrays.toString(intervals));
+        }
+        List<Scrip> scrips = new ArrayList<>();
+        for (String symbol : symbols) {
+            Scrip s = instruments.resolve(exchange, symbol);
+            if (s == null) log.warn("Strategy {}: {}:{} not in the instrument master", strategy.name(), exchange, symbol);
+            else scrips.add(s);
+        }
+        if (scrips.isEmpty()) throw new IllegalArgumentException("No symbols resolved for " + strategy.name());
+
+        Registration r = new Registration(strategy, exchange, Math.max(1, qty), scrips);
+        if (strategy.intervalMinutes() == 0) {
+            if (tickSubscription == null && bus != null) tickSubscription = bus.subscribe("strategies", this::onTick, true);
+            tickStrategies.add(r);
+        } else {
+            barStrategies.add(r);
+        }
+        if (stream != null) stream.subscribe(exchange, List.of(r.tokens));
+        log.info("Strategy {} running on {} {} symbols ({})", strategy.name(), scrips.size(), exchange,
+                strategy.intervalMinutes() == 0 ? "ticks" : strategy.intervalMinutes() + "m bars");
+    }
+
+    void onBar(Bar bar) {
+        long k = Tick.key(bar.exchangeType(), bar.token());
+        for (Registration r : barStrategies) {
+            if (r.strategy.intervalMinutes() != bar.intervalMinutes()) continue;
+            int i = r.index.get(k);
+            if (i < 0) continue;
+            barsEvaluated.incrementAndGet();
+            AlertAction action = evaluate(r, i, bar, null);
+            if (action != null) signal(r, i, action, bar.intervalMinutes(), bar.endMillis());
+        }
+    }
+
+    void onTick(Tick tick) {
+        long k = Tick.key(tick.exchangeType, tick.token);
+        for (Registration r : tickStrategies) {
+            int i = r.index.get(k);
+            if (i < 0) continue;
+            ticksEvaluated.incrementAndGet();
+            AlertAction action = evaluate(r, i, null, tick);
+            if (action != null) {
+                signal(r, i, action, 0, tick.exchangeTimeMillis > 0 ? tick.exchangeTimeMillis : System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static AlertAction evaluate(Registration r, int i, Bar bar, Tick tick) {
+        try {
+            return bar != null ? r.evaluators[i].onBar(bar) : r.evaluators[i].onTick(tick);
+        } catch (RuntimeException e) {
+            log.warn("Strategy {} failed on {}: {}", r.strategy.name(), r.tickers[i], e.toString());
+            return null;
+        }
+    }
+
+    private void signal(Registration r, int i, AlertAction action, int interval, long timeMillis) {
+        signalCount.incrementAndGet();
+        try {
+            signals.execute(() -> ingest(r, i, action, interval, timeMillis));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * The webhook-shaped payload for one strategy signal; the backtester builds the same.
+     */
+    static Map<String, Object> payload(Strategy strategy, String ticker, String exchange, String token,
+                                       AlertAction action, int qty, int interval, long timeMillis) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("ticker", ticker);
+        payload.put("exchange", exchange);
+        payload.put("symboltoken", token);
+        payload.put("interval", interval == 0 ? "tick" : String.valueOf(interval));
+        payload.put("time", Instant.ofEpochMilli(timeMillis).toString());
+        payload.put("action", action.name());
+        payload.put("qty", String.valueOf(qty));
+        payload.put("source", "strategy");
+        payload.put("strategy", strategy.name());
+        return payload;
+    }
+
+    private void ingest(Registration r, int i, AlertAction action, int interval, long timeMillis) {
+        Map<String, Object> payload = payload(r.strategy, r.tickers[i], r.exchange, r.tokens[i], action, r.qty, interval, timeMillis);
+        try {
+            AlertIngestionService.IngestResult result = ingestion.ingest(payload);
+            if (result.duplicate()) duplicates.incrementAndGet();
+            else ingested.incrementAndGet();
+            log.info("[STRATEGY] {} {} {} -> alert {}", r.strategy.name(), action, r.tickers[i], result.alertId());
+        } catch (RuntimeException e) {
+            rejected.incrementAndGet();
+            log.warn("Strategy {} signal for {} rejected: {}", r.strategy.name(), r.tickers[i], e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Registration r : barStrategies) names.add(r.strategy.name() + " (" + r.tickers.length + " symbols)");
+        for (Registration r : tickStrategies) names.add(r.strategy.name() + " (" + r.tickers.length + " symbols)");
+        m.put("strategies", names);
+        m.put("barsEvaluated", barsEvaluated.get());
+        m.put("ticksEvaluated", ticksEvaluated.get());
+        m.put("signals", signalCount.get());
+        m.put("ingested", ingested.get());
+        m.put("duplicates", duplicates.get());
+        m.put("rejected", rejected.get());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        signals.shutdown();
+        if (tickSubscription != null) {
+            try {
+                tickSubscription.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
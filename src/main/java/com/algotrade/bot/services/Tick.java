@@ -0,0 +1,121 @@
+package com.algotrade.bot.services;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * One market-data update from the SmartStream feed, decoded straight from the binary frame into
+ * primitives. Instances are reused from frame to frame: a handler that keeps a tick must copy it.
+ * <p>
+ * Prices are in the exchange's minor unit (paise for equities and F&amp;O); divide by 100 for rupees.
+ * Fields past {@link #ltp} are only set in QUOTE and SNAP_QUOTE mode and are 0 in LTP mode.
+ */
+public final class Tick {
+
+    public static final int LTP = 1, QUOTE = 2, SNAP_QUOTE = 3;
+
+    static final int TOKEN_OFFSET = 2, TOKEN_BYTES = 25;
+    static final int LTP_BYTES = 51, QUOTE_BYTES = 123;
+
+    public int mode;
+    public int exchangeType;
+    public long token;
+    public long sequence;
+    public long exchangeTimeMillis;
+    public long ltp;
+    public long lastTradedQty;
+    public long averagePrice;
+    public long volume;
+    public double totalBuyQty;
+    public double totalSellQty;
+    public long open;
+    public long high;
+    public long low;
+    public long close;
+    /** {@link System#nanoTime()} when the frame was decoded. */
+    public long receivedNanos;
+
+    /**
+     * A symbol as one long, {@code exchangeType << 48 | token}, for the primitive maps keyed by
+     * symbol. Tokens fit in 48 bits.
+     */
+    static long key(int exchangeType, long token) {
+        return (long) exchangeType << 48 | token;
+    }
+
+    static int exchangeType(long key) {
+        return (int) (key >>> 48);
+    }
+
+    static long token(long key) {
+        return key & 0xFFFF_FFFF_FFFFL;
+    }
+
+    /**
+     * Decode one little-endian frame from {@code frame}'s position into this tick.
+     *
+     * @return false if the frame is too short for its mode or the token is not numeric
+     */
+    public boolean decode(ByteBuffer frame) {
+        ByteBuffer b = frame.order(ByteOrder.LITTLE_ENDIAN);
+        int base = b.position();
+        int length = b.remaining();
+        if (length < LTP_BYTES) return false;
+        int m = b.get(base);
+        if (m >= QUOTE && length < QUOTE_BYTES) return false;
+
+        long t = 0;
+        for (int i = 0; i < TOKEN_BYTES; i++) {
+            int c = b.get(base + TOKEN_OFFSET + i);
+            if (c == 0) break;
+            if (c < '0' || c > '9') return false;
+            t = t * 10 + (c - '0');
+        }
+        mode = m;
+        exchangeType = b.get(base + 1);
+        token = t;
+        sequence = b.getLong(base + 27);
+        exchangeTimeMillis = b.getLong(base + 35);
+        ltp = b.getLong(base + 43);
+        if (m >= QUOTE) {
+            lastTradedQty = b.getLong(base + 51);
+            averagePrice = b.getLong(base + 59);
+            volume = b.getLong(base + 67);
+            totalBuyQty = b.getDouble(base + 75);
+            totalSellQty = b.getDouble(base + 83);
+            open = b.getLong(base + 91);
+            high = b.getLong(base + 99);
+            low = b.getLong(base + 107);
+            close = b.getLong(base + 115);
+        } else {
+            lastTradedQty = averagePrice = volume = open = high = low = close = 0;
+            totalBuyQty = totalSellQty = 0;
+        }
+        receivedNanos = System.nanoTime();
+        return true;
+    }
+
+    public void copyFrom(Tick o) {
+        mode = o.mode;
+        exchangeType = o.exchangeType;
+        token = o.token;
+        sequence = o.sequence;
+        exchangeTimeMillis = o.exchangeTimeMillis;
+        ltp = o.ltp;
+        lastTradedQty = o.lastTradedQty;
+        averagePrice = o.averagePrice;
+        volume = o.volume;
+        totalBuyQty = o.totalBuyQty;
+        totalSellQty = o.totalSellQty;
+        open = o.open;
+        high = o.high;
+        low = o.low;
+        close = o.close;
+        receivedNanos = o.receivedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Tick[" + exchangeType + ":" + token + " ltp=" + ltp + " seq=" + sequence + " t=" + exchangeTimeMillis + "]";
+    }
+}
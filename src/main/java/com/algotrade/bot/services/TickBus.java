@@ -0,0 +1,51 @@
+package com.algotrade.bot.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Fans the SmartStream feed out to in-process consumers through one {@link TickRing}.
+ * <p>
+ * Each consumer gets its own thread. Order-critical consumers (bar builders, trigger evaluators)
+ * should subscribe as critical so they never miss a tick; display and logging consumers as lossy,
+ * so they can fall behind without holding anyone up. The wait strategy defaults to
+ * {@code ticks.wait-strategy}.
+ */
+@Component
+public class TickBus {
+
+    private final TickRing ring;
+    private final TickRing.WaitStrategy defaultWait;
+
+    public TickBus(SmartStreamClient stream,
+                   @Value("${ticks.ring-size:16384}") int ringSize,
+                   @Value("${ticks.wait-strategy:SLEEPING}") String defaultWait) {
+        this.ring = new TickRing(ringSize);
+        this.defaultWait = TickRing.WaitStrategy.valueOf(defaultWait.trim().toUpperCase());
+        stream.addHandler(ring::publish);
+    }
+
+    /**
+     * @param critical true if the producer must wait for this consumer rather than let it drop ticks
+     */
+    public AutoCloseable subscribe(String name, SmartStreamClient.TickHandler handler, boolean critical) {
+        return subscribe(name, handler, critical, defaultWait);
+    }
+
+    AutoCloseable subscribe(String name, SmartStreamClient.TickHandler handler, boolean critical, TickRing.WaitStrategy wait) {
+        TickRing.Consumer c = ring.consume(name, handler, critical, wait);
+        return () -> ring.remove(c);
+    }
+
+    public Map<String, Object> stats() {
+        return ring.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ring.stop();
+    }
+}
@@ -0,0 +1,276 @@
+package com.algotrade.bot.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer, multi-consumer ring of {@link Tick} slots. The producer copies each
+ * tick into the next slot; every consumer runs on its own thread with its own cursor and sees every
+ * slot in order.
+ * <p>
+ * Consumers are critical or lossy. The producer never overwrites a slot a critical consumer has not
+ * read, so those get every tick, and a slow one holds the producer back. A lossy consumer never
+ * holds anything back: if it falls a full ring behind it skips ahead and counts the ticks it
+ * dropped, so a slow UI or journal cannot delay order logic. Slots carry a sequence number written
+ * around each update (a seqlock), so a lossy reader detects a slot overwritten while it was copying.
+ * <p>
+ * Nothing is allocated per tick: slots and each consumer's scratch tick are created up front.
+ */
+final class TickRing {
+
+    private static final Logger log = LoggerFactory.getLogger(TickRing.class);
+
+    /**
+     * How a consumer waits for the next tick. Busy-spin is fastest and burns a core; blocking is
+     * cheapest and adds a wake-up to each gap in the feed.
+     */
+    enum WaitStrategy { BUSY_SPIN, YIELDING, SLEEPING, BLOCKING }
+
+    private static final VarHandle PUBLISHED, CURSOR;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            PUBLISHED = l.findVarHandle(TickRing.class, "published", long.class);
+            CURSOR = l.findVarHandle(Consumer.class, "cursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Slot {
+        final Tick tick = new Tick();
+        // -1 while being written
+        volatile long seq = -1;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+
+    // padding keeps the producer's hot fields off the consumers' cache lines
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private long published = -1;
+    @SuppressWarnings("unused")
+    private long q1, q2, q3, q4, q5, q6, q7;
+
+    // producer-only (stats may read producerWaits slightly stale)
+    private long gate = -1;
+    private long producerWaits;
+
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    TickRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) slots[i] = new Slot();
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Copy {@code tick} into the ring. Single producer only. Waits while the slot is still unread by
+     * a critical consumer.
+     */
+    void publish(Tick tick) {
+        long seq = published + 1;
+        long wrap = seq - slots.length;
+        if (wrap > gate) {
+            gate = minCriticalCursor(seq - 1);
+            for (int spins = 0; wrap > gate; spins++) {
+                if (spins == 0) producerWaits++;
+                if (spins < 100) Thread.onSpinWait();
+                else Thread.yield();
+                gate = minCriticalCursor(seq - 1);
+            }
+        }
+        Slot s = slots[(int) seq & mask];
+        s.seq = -1;
+        VarHandle.storeStoreFence();
+        s.tick.copyFrom(tick);
+        s.seq = seq;
+        PUBLISHED.setRelease(this, seq);
+
+        Consumer[] cs = consumers;
+        boolean fenced = false;
+        for (Consumer c : cs) {
+            if (c.wait != WaitStrategy.BLOCKING) continue;
+            if (!fenced) {
+                // pairs with the consumer's store to parked before it re-reads published
+                VarHandle.fullFence();
+                fenced = true;
+            }
+            if (c.parked) LockSupport.unpark(c.thread);
+        }
+    }
+
+    private long minCriticalCursor(long upTo) {
+        long min = upTo;
+        for (Consumer c : consumers) {
+            if (c.critical) min = Math.min(min, (long) CURSOR.getAcquire(c));
+        }
+        return min;
+    }
+
+    long published() {
+        return (long) PUBLISHED.getAcquire(this);
+    }
+
+    /**
+     * Start a consumer thread that sees ticks published from now on. The tick passed to the handler
+     * is the consumer's own copy, reused for the next tick.
+     */
+    synchronized Consumer consume(String name, SmartStreamClient.TickHandler handler, boolean critical, WaitStrategy wait) {
+        Consumer c = new Consumer(name, handler, critical, wait, published());
+        Consumer[] cs = Arrays.copyOf(consumers, consumers.length + 1);
+        cs[cs.length - 1] = c;
+        consumers = cs;
+        c.thread.start();
+        return c;
+    }
+
+    synchronized void remove(Consumer c) {
+        c.running = false;
+        LockSupport.unpark(c.thread);
+        consumers = Arrays.stream(consumers).filter(x -> x != c).toArray(Consumer[]::new);
+    }
+
+    void stop() {
+        for (Consumer c : consumers) remove(c);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long pub = published();
+        m.put("capacity", slots.length);
+        m.put("published", pub + 1);
+        m.put("producerWaits", producerWaits);
+        Map<String, Object> cs = new LinkedHashMap<>();
+        for (Consumer c : consumers) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("critical", c.critical);
+            s.put("wait", c.wait.name());
+            s.put("lag", pub - (long) CURSOR.getAcquire(c));
+            s.put("processed", c.processed);
+            s.put("dropped", c.dropped);
+            s.put("failed", c.failed);
+            cs.put(c.name, s);
+        }
+        m.put("consumers", cs);
+        return m;
+    }
+
+    final class Consumer {
+        final String name;
+        final boolean critical;
+        final WaitStrategy wait;
+        private final SmartStreamClient.TickHandler handler;
+        private final Tick scratch = new Tick();
+        final Thread thread;
+
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6, p7;
+        private long cursor;
+        @SuppressWarnings("unused")
+        private long q1, q2, q3, q4, q5, q6, q7;
+
+        private volatile boolean running = true;
+        private volatile boolean parked;
+        // written by the consumer thread only; stats may read them slightly stale
+        private long processed, dropped, failed;
+
+        private Consumer(String name, SmartStreamClient.TickHandler handler, boolean critical, WaitStrategy wait, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.critical = critical;
+            this.wait = wait;
+            this.cursor = start;
+            this.thread = new Thread(this::run, "tick-" + name);
+            thread.setDaemon(true);
+        }
+
+        long dropped() {
+            return dropped;
+        }
+
+        long processed() {
+            return processed;
+        }
+
+        private void run() {
+            long next = cursor + 1;
+            int idle = 0;
+            while (running) {
+                long available = published();
+                if (available < next) {
+                    idle = idle(idle, next);
+                    continue;
+                }
+                idle = 0;
+                if (!critical && available - next >= slots.length) {
+                    long skipTo = available - slots.length + 1;
+                    dropped += skipTo - next;
+                    next = skipTo;
+                }
+                for (; next <= available && running; next++) {
+                    Slot s = slots[(int) next & mask];
+                    if (!read(s, next)) {
+                        dropped++;
+                    } else {
+                        try {
+                            handler.onTick(scratch);
+                            processed++;
+                        } catch (RuntimeException e) {
+                            if (failed++ == 0) log.warn("Tick consumer {} failed: {}", name, e.toString());
+                        }
+                    }
+                    CURSOR.setRelease(this, next);
+                }
+            }
+        }
+
+        // seqlock read: valid only if the slot held this sequence before and after the copy
+        private boolean read(Slot s, long seq) {
+            if (s.seq != seq) return false;
+            scratch.copyFrom(s.tick);
+            VarHandle.loadLoadFence();
+            return s.seq == seq;
+        }
+
+        private int idle(int count, long next) {
+            switch (wait) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> {
+                    if (count < 100) Thread.onSpinWait();
+                    else Thread.yield();
+                }
+                case SLEEPING -> {
+                    if (count < 100) Thread.onSpinWait();
+                    else if (count < 200) Thread.yield();
+                    else LockSupport.parkNanos(50_000);
+                }
+                case BLOCKING -> {
+                    parked = true;
+                    VarHandle.fullFence();
+                    // bounded, in case a wake-up races with stop()
+                    if (published() < next && running) LockSupport.parkNanos(1_000_000);
+                    parked = false;
+                }
+            }
+            return count + 1;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.algotrade.bot.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Broker session tokens by client code, independent of any HTTP session, so web requests and
+ * background engines use the same tokens.
+ * <p>
+ * The JWT's {@code exp} claim is read when tokens are stored. A background task refreshes tokens
+ * that expire within {@code token-vault.refresh-ahead-ms}, so orders do not normally meet a 401.
+ * Refreshes for one client are single-flight: concurrent callers wait for the one in progress,
+ * and a caller whose JWT has already been replaced gets the new tokens without another call.
+ */
+@Component
+public class TokenVault {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenVault.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * @param expiresAtMillis from the JWT, or 0 if it could not be read
+     */
+    public record Tokens(String clientCode, String jwt, String refreshToken, String feedToken, long expiresAtMillis) {
+
+        @Override
+        public String toString() {
+            return "Tokens[" + clientCode + ", expires " + Instant.ofEpochMilli(expiresAtMillis) + "]";
+        }
+    }
+
+    /**
+     * Exchanges the current tokens for new ones. Supplied by the broker client.
+     */
+    interface Refresher {
+        Tokens refresh(Tokens current);
+    }
+
+    private final Map<String, Tokens> tokens = new ConcurrentHashMap<>();
+    // logged out since their last login; their tokens in other browser sessions are dead
+    private final Set<String> loggedOut = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Tokens>> refreshing = new ConcurrentHashMap<>();
+    private final long refreshAheadMillis;
+    private final ScheduledExecutorService scheduler;
+    private volatile Refresher refresher;
+
+    public TokenVault(@Value("${token-vault.refresh-ahead-ms:900000}") long refreshAheadMillis,
+                      @Value("${token-vault.check-interval-seconds:60}") long checkIntervalSeconds) {
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-vault");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshExpiring, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void setRefresher(Refresher refresher) {
+        this.refresher = refresher;
+    }
+
+    public Tokens put(String clientCode, String jwt, String refreshToken, String feedToken) {
+        Tokens t = new Tokens(clientCode, jwt, refreshToken, feedToken, expiryOf(jwt));
+        loggedOut.remove(clientCode);
+        tokens.put(clientCode, t);
+        return t;
+    }
+
+    /**
+     * Take over tokens an HTTP session already holds, unless the vault has tokens for this client
+     * or the client has logged out since those tokens were issued.
+     *
+     * @return the vault's tokens for the client, or null if the session's are not to be used
+     */
+    public Tokens adopt(String clientCode, String jwt, String refreshToken, String feedToken) {
+        if (clientCode == null) return null;
+        return tokens.compute(clientCode, (k, current) -> current != null ? current
+                : loggedOut.contains(k) ? null : new Tokens(k, jwt, refreshToken, feedToken, expiryOf(jwt)));
+    }
+
+    /**
+     * Current tokens, or null if this client has not logged in.
+     */
+    public Tokens get(String clientCode) {
+        return clientCode != null ? tokens.get(clientCode) : null;
+    }
+
+    public void remove(String clientCode) {
+        if (clientCode == null) return;
+        // marked first, so an adopt racing the logout cannot put the tokens back
+        loggedOut.add(clientCode);
+        tokens.remove(clientCode);
+    }
+
+    /**
+     * Refresh this client's tokens, unless {@code staleJwt} has already been replaced. Pass a null
+     * {@code staleJwt} to force a refresh. Concurrent calls share one broker round trip.
+     *
+     * @throws LoggedOutException if the client is not logged in, or logs out during the refresh
+     * @throws RuntimeException    if the refresh fails
+     */
+    public Tokens refresh(String clientCode, String staleJwt) {
+        Tokens current = get(clientCode);
+        if (current == null) throw new LoggedOutException("Not authenticated. Please login.");
+        if (staleJwt != null && !staleJwt.equals(current.jwt())) return current;
+
+        CompletableFuture<Tokens> mine = new CompletableFuture<>();
+        CompletableFuture<Tokens> running = refreshing.putIfAbsent(clientCode, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            // re-read: a refresh may have finished between the check above and claiming the slot
+            Tokens latest = Objects.requireNonNullElse(get(clientCode), current);
+            Tokens next = staleJwt != null && !staleJwt.equals(latest.jwt()) ? latest : refresher.refresh(latest);
+            // only over the tokens that were refreshed: a logout or a new login during the call wins
+            Tokens stored = tokens.computeIfPresent(clientCode, (k, t) -> t == latest ? next : t);
+            if (stored == null) throw new LoggedOutException("Logged out during token refresh for clientCode=" + clientCode);
+            mine.complete(stored);
+            if (stored == next) log.info("Tokens refreshed for clientCode={}, expire {}", clientCode, Instant.ofEpochMilli(next.expiresAtMillis()));
+            return stored;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshing.remove(clientCode, mine);
+        }
+    }
+
+    private void refreshExpiring() {
+        long now = System.currentTimeMillis();
+        for (Tokens t : tokens.values()) {
+            if (t.expiresAtMillis() == 0 || t.expiresAtMillis() - now > refreshAheadMillis) continue;
+            try {
+                refresh(t.clientCode(), t.jwt());
+            } catch (RuntimeException e) {
+                log.warn("Proactive token refresh failed for clientCode={}: {}", t.clientCode(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The {@code exp} claim in epoch millis, or 0 if the token is not a readable JWT.
+     */
+    static long expiryOf(String jwt) {
+        if (jwt == null) return 0;
+        String[] parts = jwt.split("\\.");
+        if (parts.length < 2) return 0;
+        try {
+            JsonNode exp = JSON.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new TreeMap<>();
+        tokens.forEach((client, t) -> m.put(client, t.expiresAtMillis() > 0 ? Instant.ofEpochMilli(t.expiresAtMillis()).toString() : "unknown"));
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
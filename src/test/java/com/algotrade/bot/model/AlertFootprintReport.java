@@ -0,0 +1,121 @@
+package com.algotrade.bot.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Prints the retained heap per alert for the old all-objects layout and for {@link TradingViewAlert}.
+ * Run with a fixed heap for stable numbers, e.g.
+ * {@code java -Xms1g -Xmx1g -cp target/classes:target/test-classes:<deps> com.algotrade.bot.model.AlertFootprintReport}.
+ */
+public class AlertFootprintReport {
+
+    private static final int N = 200_000;
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /** Field layout of TradingViewAlert before the compact representation. */
+    @SuppressWarnings("unused")
+    static final class LegacyAlert {
+        String id;
+        long seq;
+        String ticker, exchange, interval, time, action;
+        int quantity;
+        String status;
+        LocalDateTime timestamp;
+        Map<String, Object> orderResult;
+        String errorMessage;
+        Map<String, Object> rawPayload;
+        String symboltoken;
+    }
+
+    private static final String PAYLOAD = """
+            {"ticker":"SBIN","exchange":"NSE","interval":"5","time":"2025-08-18T03:45:00Z","action":"buy","qty":"10"}""";
+    private static final String ORDER_RESULT = """
+            {"status":true,"message":"SUCCESS","errorcode":"","data":{"script":"SBIN-EQ","orderid":"250818000123456","uniqueorderid":"34reqfachdfih"}}""";
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(String json) throws Exception {
+        return JSON.readValue(json, Map.class);
+    }
+
+    // fresh strings per alert, as they would be after parsing a webhook or reloading a snapshot
+    private static String s(String v) {
+        return new String(v);
+    }
+
+    private static Object[] legacy() throws Exception {
+        Object[] out = new Object[N];
+        LocalDateTime base = LocalDateTime.of(2025, 8, 18, 9, 15);
+        for (int i = 0; i < N; i++) {
+            LegacyAlert a = new LegacyAlert();
+            a.id = java.util.UUID.randomUUID().toString();
+            a.seq = i + 1;
+            a.ticker = s("SBIN");
+            a.exchange = s("NSE");
+            a.interval = s("5");
+            a.timestamp = base.plusSeconds(i);
+            a.time = a.timestamp.toString();
+            a.action = s("BUY");
+            a.quantity = 10;
+            a.status = s(i % 2 == 0 ? "ACCEPTED" : "NEW");
+            a.rawPayload = map(PAYLOAD);
+            if (i % 2 == 0) a.orderResult = map(ORDER_RESULT);
+            out[i] = a;
+        }
+        return out;
+    }
+
+    private static Object[] compact() throws Exception {
+        Object[] out = new Object[N];
+        LocalDateTime base = LocalDateTime.of(2025, 8, 18, 9, 15);
+        for (int i = 0; i < N; i++) {
+            TradingViewAlert a = new TradingViewAlert();
+            a.setId(java.util.UUID.randomUUID().toString());
+            a.setSeq(i + 1);
+            a.setTicker(s("SBIN"));
+            a.setExchange(s("NSE"));
+            a.setInterval(s("5"));
+            a.setTimestamp(base.plusSeconds(i));
+            a.setAction(s("BUY"));
+            a.setQuantity(10);
+            a.setStatus(s(i % 2 == 0 ? "ACCEPTED" : "NEW"));
+            a.setRawPayload(map(PAYLOAD));
+            if (i % 2 == 0) a.setOrderResult(map(ORDER_RESULT));
+            out[i] = a;
+        }
+        return out;
+    }
+
+    private interface Build {
+        Object[] run() throws Exception;
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long bytesPerAlert(Build build) throws Exception {
+        build.run(); // warm up
+        long before = usedAfterGc();
+        Object[] alerts = build.run();
+        long after = usedAfterGc();
+        if (alerts.length != N) throw new IllegalStateException();
+        return (after - before) / N;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long legacy = bytesPerAlert(AlertFootprintReport::legacy);
+        long compact = bytesPerAlert(AlertFootprintReport::compact);
+        System.out.printf("alerts:  %,d (half with an order result)%n", N);
+        System.out.printf("before:  %,d bytes/alert%n", legacy);
+        System.out.printf("after:   %,d bytes/alert%n", compact);
+        System.out.printf("saved:   %.0f%%%n", 100.0 * (legacy - compact) / legacy);
+    }
+}
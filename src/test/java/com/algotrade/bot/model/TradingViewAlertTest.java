@@ -0,0 +1,56 @@
+package com.algotrade.bot.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradingViewAlertTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void jsonShapeIsUnchanged() throws Exception {
+        String legacy = """
+                {"id":"a","seq":7,"ticker":"SBIN","exchange":"NSE","interval":"5",
+                 "time":"2025-08-18T09:15:00.123","action":"buy","quantity":2,"status":"ACCEPTED",
+                 "timestamp":"2025-08-18T09:15:00.123","orderResult":{"orderid":"1","ok":true},
+                 "errorMessage":null,"rawPayload":{"ticker":"SBIN","qty":"2"},"symboltoken":"3045"}
+                """;
+        TradingViewAlert a = mapper.readValue(legacy, TradingViewAlert.class);
+
+        assertEquals(AlertAction.BUY, a.getAlertAction());
+        assertEquals(AlertStatus.ACCEPTED, a.getAlertStatus());
+        assertEquals(LocalDateTime.of(2025, 8, 18, 9, 15, 0, 123_000_000), a.getTimestamp());
+        assertEquals("2025-08-18T09:15:00.123", a.getTime());
+        assertEquals(Map.of("orderid", "1", "ok", true), a.getOrderResult());
+
+        Map<?, ?> written = mapper.readValue(mapper.writeValueAsBytes(a), Map.class);
+        assertEquals(mapper.readValue(legacy, Map.class).keySet(), written.keySet());
+        assertEquals("BUY", written.get("action"));
+        assertEquals("2025-08-18T09:15:00.123", written.get("timestamp"));
+        assertEquals(Map.of("ticker", "SBIN", "qty", "2"), written.get("rawPayload"));
+    }
+
+    @Test
+    void explicitBarTimeIsKept() {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setTime("2025-08-18T09:10:00Z");
+        a.setTimestamp(LocalDateTime.of(2025, 8, 18, 9, 15));
+        assertEquals("2025-08-18T09:10:00Z", a.getTime());
+        // set again, as a re-read or a copy does
+        a.setTime("2025-08-18T09:10:00Z");
+        a.setTime("2025-08-18T09:10:00Z");
+        assertEquals("2025-08-18T09:10:00Z", a.getTime());
+        assertSame("SBIN", new TradingViewAlert() {{ setTicker(new String("SBIN")); }}.getTicker());
+        a.setStatus("MAYBE");
+        assertNull(a.getAlertStatus());
+    }
+}
@@ -0,0 +1,50 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertDeduplicatorTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static Map<String, Object> payload(String ticker, String time) {
+        return Map.of("ticker", ticker, "action", "buy", "interval", "5", "time", time, "qty", "1");
+    }
+
+    @Test
+    void repeatWithinWindowMapsToOriginal() {
+        AlertDeduplicator dedupe = new AlertDeduplicator(true, 1_000, 100, now::get);
+
+        assertNull(dedupe.claim(payload("SBIN", "t1"), "a"));
+        assertEquals("a", dedupe.claim(Map.of("ticker", "sbin ", "action", "BUY", "interval", "5", "time", "t1", "qty", 1), "b"));
+        assertNull(dedupe.claim(payload("SBIN", "t2"), "c"));
+
+        now.set(1_000);
+        assertNull(dedupe.claim(payload("SBIN", "t1"), "d"));
+    }
+
+    @Test
+    void releasedClaimIsNotADuplicate() {
+        AlertDeduplicator dedupe = new AlertDeduplicator(true, 1_000, 100, now::get);
+        assertNull(dedupe.claim(payload("SBIN", "t1"), "a"));
+        dedupe.release(payload("SBIN", "t1"), "a");
+        assertNull(dedupe.claim(payload("SBIN", "t1"), "b"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        AlertDeduplicator dedupe = new AlertDeduplicator(true, 1_000, 2, now::get);
+        dedupe.claim(payload("A", "t"), "a");
+        dedupe.claim(payload("B", "t"), "b");
+        dedupe.claim(payload("A", "t"), "a2");
+        dedupe.claim(payload("C", "t"), "c");
+
+        assertEquals(2, dedupe.size());
+        assertEquals("a", dedupe.claim(payload("A", "t"), "x"));
+        assertNull(dedupe.claim(payload("B", "t"), "y"));
+    }
+}
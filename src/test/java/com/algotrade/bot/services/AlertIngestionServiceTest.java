@@ -0,0 +1,123 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertStatus;
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AlertIngestionServiceTest {
+
+    private final AlertService alertService = mock(AlertService.class);
+    private final List<AlertIngestionService> services = new ArrayList<>();
+
+    AlertIngestionServiceTest() {
+        when(alertService.buildFromPayload(any(), anyMap(), any())).thenCallRealMethod();
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(AlertIngestionService::shutdown);
+    }
+
+    private AlertIngestionService ingestion(boolean async, boolean strict) {
+        AlertIngestionService s = new AlertIngestionService(alertService, new AlertDeduplicator(true, 60, 1_000),
+                new LatencyMetrics(new SimpleMeterRegistry()), async, 100, 16, 1, 20, strict);
+        services.add(s);
+        return s;
+    }
+
+    @Test
+    void payloadsAreAcceptedAsBeforeUnlessStrict() {
+        Map<String, Object> loose = Map.of("action", "close", "qty", "two");
+
+        TradingViewAlert alert = ingestion(false, false).ingest(loose).alert();
+        assertEquals("UNKNOWN", alert.getTicker());
+        assertEquals(1, alert.getQuantity());
+        // kept, but never traded as a buy
+        assertNull(alert.getAlertAction());
+        assertEquals(AlertStatus.FAILED, alert.getAlertStatus());
+        assertEquals("Unknown action 'close'", alert.getErrorMessage());
+        Scrip scrip = new Scrip("NSE", "SBIN-EQ", "3045");
+        assertThrows(IllegalArgumentException.class, () -> AlertOrderService.orderPayload(alert, scrip, "C1"));
+
+        TradingViewAlert silent = ingestion(false, false).ingest(Map.of("ticker", "SBIN")).alert();
+        assertEquals(AlertStatus.NEW, silent.getAlertStatus());
+        assertEquals("BUY", AlertOrderService.orderPayload(silent, scrip, "C1").get("transactiontype"));
+
+        AlertIngestionService strict = ingestion(false, true);
+        assertThrows(IllegalArgumentException.class, () -> strict.ingest(loose));
+        assertThrows(IllegalArgumentException.class, () -> strict.ingest(Map.of("ticker", "SBIN", "action", "close")));
+        assertEquals("SBIN", strict.ingest(Map.of("ticker", "SBIN", "action", "sell")).alert().getTicker());
+    }
+
+    @Test
+    void aQueuedAlertThatFailsToBuildCanBeResent() throws Exception {
+        Map<String, Object> payload = Map.of("ticker", "SBIN", "action", "BUY");
+        doThrow(new IllegalStateException("boom")).doCallRealMethod()
+                .when(alertService).buildFromPayload(any(), anyMap(), any());
+        AlertIngestionService async = ingestion(true, false);
+
+        assertTrue(async.ingest(payload).queued());
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((long) async.stats().get("batches") == 0) {
+            assertTrue(System.nanoTime() < deadline, "batch not processed");
+            Thread.sleep(5);
+        }
+
+        AlertIngestionService.IngestResult resent = async.ingest(payload);
+        assertFalse(resent.duplicate());
+        assertTrue(resent.queued());
+    }
+
+    @Test
+    void alertsForOneTickerKeepTheirOrderAcrossConsumers(@TempDir Path dir) throws Exception {
+        AlertService store = new AlertService(new LatencyMetrics(new SimpleMeterRegistry()),
+                50, 60_000, 1_000, false, false, dir.toString());
+        List<TradingViewAlert> stored = new CopyOnWriteArrayList<>();
+        store.addAlertListener(stored::add);
+        AlertIngestionService async = new AlertIngestionService(store, new AlertDeduplicator(true, 60, 1_000),
+                new LatencyMetrics(new SimpleMeterRegistry()), true, 10_000, 4, 4, 1_000, false);
+        services.add(async);
+        try {
+            List<String> tickers = List.of("A", "B", "C", "D", "E", "F");
+            int n = 200;
+            for (int i = 0; i < n; i++) {
+                // a distinct bar time per signal, or the deduplicator would take them for repeats
+                String time = Instant.ofEpochSecond(1_755_488_700L + i * 60L).toString();
+                for (String t : tickers) async.ingest(Map.of("ticker", t, "action", i % 2 == 0 ? "BUY" : "SELL", "time", time, "n", i));
+            }
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (stored.size() < n * tickers.size()) {
+                assertTrue(System.nanoTime() < deadline, "alerts not stored");
+                Thread.sleep(5);
+            }
+
+            for (String t : tickers) {
+                List<Object> bySeq = stored.stream().filter(a -> t.equals(a.getTicker()))
+                        .sorted(Comparator.comparingLong(TradingViewAlert::getSeq))
+                        .map(a -> a.getRawPayload().get("n")).toList();
+                List<Object> sent = new ArrayList<>();
+                for (int i = 0; i < n; i++) sent.add(i);
+                assertEquals(sent, bySeq, "seq order of " + t);
+            }
+        } finally {
+            async.shutdown();
+            store.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static TradingViewAlert alert(String id, String status) {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setId(id);
+        a.setTicker("SBIN");
+        a.setAction("BUY");
+        a.setStatus(status);
+        a.setTimestamp(LocalDateTime.now());
+        return a;
+    }
+
+    private Map<String, TradingViewAlert> replay(Path file) throws Exception {
+        Map<String, TradingViewAlert> out = new LinkedHashMap<>();
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.replay(a -> out.put(a.getId(), a));
+        }
+        return out;
+    }
+
+    @Test
+    void replayAppliesUpsertsInOrder() throws Exception {
+        Path file = dir.resolve("journal.jsonl");
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.append(alert("a", "NEW"));
+            j.appendAll(List.of(alert("b", "NEW"), alert("a", "ACCEPTED")));
+            assertEquals(3, j.recordCount());
+        }
+
+        Map<String, TradingViewAlert> state = replay(file);
+        assertEquals(2, state.size());
+        assertEquals("ACCEPTED", state.get("a").getStatus());
+        assertEquals("NEW", state.get("b").getStatus());
+    }
+
+    @Test
+    void rotatedRecordsReplayUntilDiscarded() throws Exception {
+        Path file = dir.resolve("journal.jsonl");
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.append(alert("a", "NEW"));
+            assertNotNull(j.rotate());
+            assertEquals(0, j.recordCount());
+            j.append(alert("b", "NEW"));
+        }
+        assertEquals(2, replay(file).size());
+
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.discardRotated();
+        }
+        assertEquals(List.of("b"), List.copyOf(replay(file).keySet()));
+    }
+
+    @Test
+    void tornTailIsSkippedAndNextRecordStartsOnFreshLine() throws Exception {
+        Path file = dir.resolve("journal.jsonl");
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.append(alert("a", "NEW"));
+        }
+        Files.write(file, "{\"id\":\"tor".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (AlertJournal j = new AlertJournal(file, mapper, 10)) {
+            j.append(alert("b", "NEW"));
+        }
+        assertEquals(List.of("a", "b"), List.copyOf(replay(file).keySet()));
+    }
+}
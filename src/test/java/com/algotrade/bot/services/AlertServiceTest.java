@@ -0,0 +1,104 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.AlertStatus;
+import com.algotrade.bot.model.TradingViewAlert;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertServiceTest {
+
+    private static AlertService open(Path dir) throws IOException {
+        return new AlertService(new LatencyMetrics(new SimpleMeterRegistry()), 50, 60_000, 1_000, false, true, dir.toString());
+    }
+
+    @Test
+    void legacyFileWithUnknownValuesLoads(@TempDir Path dir) throws Exception {
+        // written before action and status were enums: free-form strings, any case
+        Files.writeString(dir.resolve("alerts_data.json"), """
+                [{"id":"a","ticker":"SBIN","exchange":"NSE","interval":"5","action":"buy","quantity":1,
+                  "status":"accepted","timestamp":"2025-08-18T09:15:00"},
+                 {"id":"b","ticker":"INFY","exchange":"NSE","interval":"5","action":"long","quantity":2,
+                  "status":"PENDING","timestamp":"2025-08-18T09:20:00"}]
+                """);
+        AlertService service = open(dir);
+        try {
+            TradingViewAlert a = service.findById("a").orElseThrow();
+            assertEquals(AlertAction.BUY, a.getAlertAction());
+            assertEquals(AlertStatus.ACCEPTED, a.getAlertStatus());
+            TradingViewAlert b = service.findById("b").orElseThrow();
+            assertNull(b.getAlertAction());
+            assertNull(b.getAlertStatus());
+            assertEquals(2, b.getQuantity());
+        } finally {
+            service.shutdown();
+        }
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().contains(".corrupt")));
+        }
+    }
+
+    @Test
+    void journalIsKeptWhenTheJsonSnapshotCannotReplaceTheOldFile(@TempDir Path dir) throws Exception {
+        // a non-empty directory in the way makes the rename fail
+        Path blocker = Files.createDirectories(dir.resolve("alerts_data.json"));
+        Files.writeString(blocker.resolve("keep"), "x");
+        AlertService service = open(dir);
+        service.storeAll(List.of(service.buildFromPayload("a", Map.of("ticker", "SBIN"), LocalDateTime.now())));
+        service.shutdown(); // compacts
+
+        assertFalse(Files.exists(dir.resolve("alerts_data.bin")));
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".tmp")));
+        }
+        Files.delete(blocker.resolve("keep"));
+        Files.delete(blocker);
+        AlertService reopened = open(dir);
+        try {
+            assertTrue(reopened.findById("a").isPresent());
+        } finally {
+            reopened.shutdown();
+        }
+        assertTrue(Files.exists(dir.resolve("alerts_data.json")));
+    }
+
+    @Test
+    void aClaimRacingTheStoreIsReplayedAfterIt(@TempDir Path dir) throws Exception {
+        AlertService service = open(dir);
+        int n = 300;
+        try {
+            for (int i = 0; i < n; i++) {
+                String id = "c" + i;
+                // the click lands as soon as the alert is visible
+                Thread click = new Thread(() -> {
+                    while (service.findById(id).isEmpty()) Thread.yield();
+                    service.claim(id, AlertStatus.NEW, AlertStatus.PLACING);
+                });
+                click.start();
+                service.storeAll(List.of(service.buildFromPayload(id, Map.of("ticker", "SBIN"), LocalDateTime.now())));
+                click.join();
+            }
+            // read back from the journal alone, as after a crash
+            AlertService replayed = open(dir);
+            try {
+                for (int i = 0; i < n; i++) {
+                    assertEquals(AlertStatus.PLACING, replayed.findById("c" + i).orElseThrow().getAlertStatus(), "c" + i);
+                }
+            } finally {
+                replayed.shutdown();
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+}
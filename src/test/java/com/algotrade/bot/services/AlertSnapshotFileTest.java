@@ -0,0 +1,86 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertSnapshotFileTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 8, 18);
+
+    @TempDir
+    Path dir;
+
+    private static TradingViewAlert alert(String id, LocalDate day, int minute) {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setId(id);
+        a.setTicker("SBIN");
+        a.setAction("BUY");
+        a.setStatus("NEW");
+        a.setQuantity(2);
+        a.setTimestamp(day.atTime(9, 15, 0, 123_000_000).plusMinutes(minute));
+        a.setRawPayload(Map.of("ticker", "SBIN", "qty", "2"));
+        return a;
+    }
+
+    @Test
+    void daysRoundTripIndependently() throws Exception {
+        AlertStore store = new AlertStore();
+        store.put(alert("old", DAY.minusDays(1), 0));
+        store.put(alert("a", DAY, 1));
+        TradingViewAlert b = alert("b", DAY, 2);
+        b.setStatus("ACCEPTED");
+        b.setOrderResult(Map.of("orderid", "123"));
+        store.put(b);
+
+        Path file = dir.resolve("alerts_data.bin");
+        AlertSnapshotFile.write(file, store);
+
+        AlertSnapshotFile snapshot = AlertSnapshotFile.open(file);
+        assertEquals(3, snapshot.lastSeq());
+        assertEquals(List.of(DAY.minusDays(1), DAY), List.copyOf(snapshot.blocks().keySet()));
+
+        List<TradingViewAlert> today = snapshot.readDay(snapshot.blocks().get(DAY));
+        assertEquals(List.of("b", "a"), today.stream().map(TradingViewAlert::getId).toList());
+        TradingViewAlert read = today.get(0);
+        assertEquals(b.getTimestamp(), read.getTimestamp());
+        assertEquals(3, read.getSeq());
+        assertEquals("ACCEPTED", read.getStatus());
+        assertEquals(Map.of("orderid", "123"), read.getOrderResult());
+        assertEquals(Map.of("ticker", "SBIN", "qty", "2"), read.getRawPayload());
+        assertNull(read.getErrorMessage());
+    }
+
+    @Test
+    void lazilyMergedHistoryKeepsNewerState() throws Exception {
+        AlertStore source = new AlertStore();
+        source.put(alert("old", DAY.minusDays(1), 0));
+        source.put(alert("a", DAY, 1));
+        Path file = dir.resolve("alerts_data.bin");
+        AlertSnapshotFile.write(file, source);
+
+        AlertSnapshotFile snapshot = AlertSnapshotFile.open(file);
+        AlertStore store = new AlertStore();
+        store.reserveSeq(snapshot.lastSeq());
+        store.merge(snapshot.readDay(snapshot.blocks().get(DAY)));
+
+        // journal replay updates yesterday's alert before its day is loaded
+        TradingViewAlert updated = alert("old", DAY.minusDays(1), 0);
+        updated.setSeq(1);
+        updated.setStatus("REJECTED");
+        store.put(updated);
+        store.put(alert("new", DAY, 5));
+
+        store.merge(snapshot.readDay(snapshot.blocks().get(DAY.minusDays(1))));
+        assertEquals("REJECTED", store.get("old").orElseThrow().getStatus());
+        assertEquals(3, store.get("new").orElseThrow().getSeq());
+        assertEquals(3, store.size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.TradingViewAlert;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 8, 18);
+
+    private static TradingViewAlert alert(String id, int minute, String ticker, String action) {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setId(id);
+        a.setTicker(ticker);
+        a.setAction(action);
+        a.setStatus("NEW");
+        a.setTimestamp(DAY.atTime(9, 15).plusMinutes(minute));
+        return a;
+    }
+
+    private static List<String> ids(List<TradingViewAlert> alerts) {
+        return alerts.stream().map(TradingViewAlert::getId).toList();
+    }
+
+    @Test
+    void dayIsNewestFirstRegardlessOfInsertOrder() {
+        AlertStore store = new AlertStore();
+        store.put(alert("b", 2, "SBIN", "BUY"));
+        store.put(alert("c", 3, "SBIN", "SELL"));
+        store.put(alert("a", 1, "TCS", "BUY"));
+
+        assertEquals(List.of("c", "b", "a"), ids(store.day(DAY)));
+        assertEquals(List.of("c", "b"), ids(store.dayByTicker(DAY, "sbin")));
+        assertEquals(List.of("b", "a"), ids(store.dayByAction(DAY, "BUY")));
+        assertTrue(store.day(DAY.minusDays(1)).isEmpty());
+    }
+
+    @Test
+    void statusChangeMovesAlertBetweenIndexes() {
+        AlertStore store = new AlertStore();
+        TradingViewAlert a = alert("a", 1, "SBIN", "BUY");
+        store.put(a);
+        store.put(alert("b", 2, "SBIN", "BUY"));
+
+        List<TradingViewAlert> before = store.dayByStatus(DAY, "NEW");
+        a.setStatus("ACCEPTED");
+        store.put(a);
+
+        assertEquals(List.of("b"), ids(store.dayByStatus(DAY, "NEW")));
+        assertEquals(List.of("a"), ids(store.dayByStatus(DAY, "ACCEPTED")));
+        assertEquals(List.of("b", "a"), ids(store.day(DAY)));
+        // views handed out earlier are snapshots
+        assertEquals(List.of("b", "a"), ids(before));
+    }
+
+    @Test
+    void loadPartitionsByDayAndSinceSpansDays() {
+        AlertStore store = new AlertStore();
+        TradingViewAlert old = alert("old", 0, "INFY", "SELL");
+        old.setTimestamp(LocalDateTime.of(DAY.minusDays(3), old.getTimestamp().toLocalTime()));
+        store.load(List.of(alert("x", 5, "SBIN", "BUY"), old, alert("y", 9, "SBIN", "BUY")));
+
+        assertEquals(3, store.size());
+        assertEquals(List.of("y", "x"), ids(store.day(DAY)));
+        assertEquals(List.of("y", "x"), ids(store.since(DAY.minusDays(1))));
+        assertEquals(List.of("y", "x", "old"), ids(store.all()));
+
+        store.put(alert("z", 7, "TCS", "BUY"));
+        assertEquals(List.of("y", "z", "x"), ids(store.day(DAY)));
+    }
+
+    @Test
+    void sequenceNumbersAreAssignedOnceAndReadInOrder() {
+        AlertStore store = new AlertStore();
+        TradingViewAlert legacyOld = alert("old", 1, "SBIN", "BUY");
+        TradingViewAlert legacyNew = alert("new", 2, "SBIN", "BUY");
+        TradingViewAlert sequenced = alert("seq", 0, "TCS", "BUY");
+        sequenced.setSeq(10);
+        store.load(List.of(legacyNew, sequenced, legacyOld));
+
+        assertEquals(11, legacyOld.getSeq());
+        assertEquals(12, legacyNew.getSeq());
+
+        TradingViewAlert fresh = alert("fresh", 5, "INFY", "SELL");
+        store.put(fresh);
+        assertEquals(13, fresh.getSeq());
+        fresh.setStatus("ACCEPTED");
+        store.put(fresh);
+        assertEquals(13, store.lastSeq());
+
+        assertEquals(List.of("new", "fresh"), store.afterSeq(11).stream().map(TradingViewAlert::getId).toList());
+        assertTrue(store.afterSeq(13).isEmpty());
+    }
+}
@@ -0,0 +1,52 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.angelone.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AngelOneJsonTest {
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void decodesOrderBookWithStringNumbersEmptyFieldsAndUnknownKeys() {
+        byte[] body = bytes("""
+                {"status":true,"message":"SUCCESS","errorcode":"","data":[
+                 {"variety":"NORMAL","ordertype":"LIMIT","producttype":"INTRADAY","duration":"DAY","price":"194.5",
+                  "triggerprice":"","quantity":"10","disclosedquantity":"0","tradingsymbol":"SBIN-EQ",
+                  "transactiontype":"BUY","exchange":"NSE","symboltoken":"3045","averageprice":0,
+                  "filledshares":"0","unfilledshares":"10","orderid":"250818000123456","status":"open",
+                  "orderstatus":"open","lotsize":"1","cancelsize":"0","newfield":{"x":1}}]}""");
+
+        AngelResponse<List<OrderBookEntry>> r = AngelOneJson.read(AngelOneJson.ORDER_BOOK, body);
+
+        assertTrue(r.status());
+        OrderBookEntry o = r.data().get(0);
+        assertEquals("SBIN-EQ", o.tradingsymbol());
+        assertEquals(194.5, o.price());
+        assertEquals(0, o.triggerprice());
+        assertEquals(10, o.quantity());
+        assertEquals(10, o.unfilledshares());
+        assertEquals("250818000123456", o.orderid());
+    }
+
+    @Test
+    void decodesFailureEnvelopeAndNullData() {
+        AngelResponse<OrderAck> failed = AngelOneJson.read(AngelOneJson.ORDER, bytes("""
+                {"status":false,"message":"Invalid Token","errorcode":"AG8001","data":null}"""));
+        assertFalse(failed.status());
+        assertEquals("AG8001", failed.errorcode());
+        assertNull(failed.data());
+
+        AngelResponse<SessionTokens> login = AngelOneJson.read(AngelOneJson.TOKENS, bytes("""
+                {"status":true,"message":"SUCCESS","errorcode":"","data":{"jwtToken":"j","refreshToken":"r","feedToken":"f"}}"""));
+        assertEquals(new SessionTokens("j", "r", "f"), login.data());
+        assertNull(AngelOneJson.read(AngelOneJson.MAP, new byte[0]));
+    }
+}
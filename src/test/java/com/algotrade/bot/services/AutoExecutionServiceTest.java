@@ -0,0 +1,260 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.controller.AlertWebController;
+import com.algotrade.bot.model.AlertStatus;
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AutoExecutionServiceTest {
+
+    private final AlertService alertService = mock(AlertService.class);
+    private final AlertOrderService orderService = mock(AlertOrderService.class);
+    private final Map<String, List<String>> placedByTicker = new ConcurrentHashMap<>();
+    private final List<AlertStatus> stagesOfFirst = new CopyOnWriteArrayList<>();
+    private final Map<String, TradingViewAlert> alertsById = new ConcurrentHashMap<>();
+    private AutoExecutionService auto;
+    private Consumer<TradingViewAlert> listener;
+
+    @SuppressWarnings("unchecked")
+    private void start() {
+        auto = new AutoExecutionService(alertService, orderService,
+                new LatencyMetrics(new SimpleMeterRegistry()), true, 2);
+        ArgumentCaptor<Consumer<TradingViewAlert>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(alertService).addAlertListener(captor.capture());
+        listener = captor.getValue();
+
+        stubOrders();
+        when(alertService.claim(anyString(), any(), any())).thenAnswer(inv -> {
+            TradingViewAlert a = alertsById.get((String) inv.getArgument(0));
+            synchronized (alertsById) {
+                if (a == null || a.getAlertStatus() != inv.getArgument(1)) return Optional.empty();
+                a.setAlertStatus(inv.getArgument(2));
+            }
+            if ("A-0".equals(a.getId())) stagesOfFirst.add(a.getAlertStatus());
+            return Optional.of(a);
+        });
+        doAnswer(inv -> {
+            TradingViewAlert a = inv.getArgument(0);
+            if ("A-0".equals(a.getId())) stagesOfFirst.add(a.getAlertStatus());
+            return null;
+        }).when(alertService).update(any());
+    }
+
+    private void stubOrders() {
+        when(orderService.isLoggedIn(anyString())).thenReturn(true);
+
+        Answer<Scrip> resolve = inv -> {
+            TradingViewAlert a = inv.getArgument(1);
+            return "NOPE".equals(a.getTicker()) ? null : new Scrip("NSE", a.getTicker() + "-EQ", "1");
+        };
+        when(orderService.resolveSymbol(anyString(), any())).thenAnswer(resolve);
+        when(orderService.resolveSymbol(any(HttpSession.class), any())).thenAnswer(resolve);
+        when(orderService.buildOrder(any(), any(), anyString())).thenAnswer(inv -> {
+            TradingViewAlert a = inv.getArgument(0);
+            return new HashMap<>(Map.of("id", a.getId(), "ticker", a.getTicker()));
+        });
+        Answer<Map<String, Object>> place = inv -> {
+            Map<String, Object> order = inv.getArgument(1);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            placedByTicker.computeIfAbsent((String) order.get("ticker"), t -> new CopyOnWriteArrayList<>())
+                    .add((String) order.get("id"));
+            return Map.of("orderid", order.get("id"));
+        };
+        when(orderService.placeOrder(anyString(), anyMap())).thenAnswer(place);
+        when(orderService.placeOrder(any(HttpSession.class), anyMap())).thenAnswer(place);
+    }
+
+    @AfterEach
+    void stop() {
+        if (auto != null) auto.shutdown();
+    }
+
+    private void awaitIdle() {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while ((int) auto.stats().get("pending") > 0) {
+            assertTrue(System.nanoTime() < deadline, "auto-execution did not drain");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static MockHttpSession loggedIn() {
+        MockHttpSession s = new MockHttpSession();
+        s.setAttribute("jwtToken", "jwt");
+        s.setAttribute("clientCode", "C1");
+        return s;
+    }
+
+    private TradingViewAlert alert(String id, String ticker) {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setId(id);
+        a.setTicker(ticker);
+        a.setAction("BUY");
+        alertsById.put(id, a);
+        return a;
+    }
+
+    @Test
+    void ordersForOneTickerStayInSequence() {
+        start();
+        auto.arm(loggedIn());
+
+        List<TradingViewAlert> alerts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (String t : List.of("A", "B", "C")) {
+                TradingViewAlert a = alert(t + "-" + i, t);
+                alerts.add(a);
+                listener.accept(a);
+            }
+        }
+        awaitIdle();
+
+        for (String t : List.of("A", "B", "C")) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) expected.add(t + "-" + i);
+            assertEquals(expected, placedByTicker.get(t));
+        }
+        assertTrue(alerts.stream().allMatch(a -> a.getAlertStatus() == AlertStatus.ACCEPTED));
+        assertEquals(List.of(AlertStatus.QUEUED, AlertStatus.RESOLVING, AlertStatus.PLACING, AlertStatus.ACCEPTED),
+                stagesOfFirst);
+    }
+
+    @Test
+    void unresolvedSymbolFailsAndDisarmedServiceIgnoresAlerts() {
+        start();
+        TradingViewAlert ignored = alert("x", "A");
+        listener.accept(ignored);
+        assertEquals(AlertStatus.NEW, ignored.getAlertStatus());
+
+        auto.arm(loggedIn());
+        TradingViewAlert bad = alert("y", "NOPE");
+        listener.accept(bad);
+        awaitIdle();
+
+        assertEquals(AlertStatus.FAILED, bad.getAlertStatus());
+        assertEquals("Symbol not found for ticker: NOPE", bad.getErrorMessage());
+        verify(orderService, never()).placeOrder(anyString(), anyMap());
+    }
+
+    @Test
+    void unknownActionIsNeverPlaced(@TempDir Path dir) throws Exception {
+        start();
+        auto.arm(loggedIn());
+        TradingViewAlert exit = alert("A-0", "A");
+        exit.setAction("exit");
+        listener.accept(exit);
+        awaitIdle();
+
+        assertEquals(AlertStatus.FAILED, exit.getAlertStatus());
+        assertFalse(stagesOfFirst.contains(AlertStatus.RESOLVING));
+
+        // and from the webhook: stored as failed, so never queued
+        AlertService store = new AlertService(new LatencyMetrics(new SimpleMeterRegistry()),
+                50, 60_000, 1_000, false, false, dir.toString());
+        try {
+            AutoExecutionService armed = new AutoExecutionService(store, orderService,
+                    new LatencyMetrics(new SimpleMeterRegistry()), true, 2);
+            armed.arm(loggedIn());
+            TradingViewAlert stored = store.createFromPayload(Map.of("ticker", "SBIN", "action", "exit"));
+            armed.shutdown();
+            assertEquals(AlertStatus.FAILED, stored.getAlertStatus());
+            assertEquals(0L, armed.stats().get("queued"));
+        } finally {
+            store.shutdown();
+        }
+        verify(orderService, never()).buildOrder(any(), any(), anyString());
+        verify(orderService, never()).placeOrder(anyString(), anyMap());
+    }
+
+    @Test
+    void onlyALogoutDisarms() {
+        start();
+        when(orderService.placeOrder(eq("C1"), argThat(o -> "E".equals(o.get("ticker")))))
+                .thenThrow(new IllegalStateException("Alert history unavailable"));
+        when(orderService.placeOrder(eq("C1"), argThat(o -> "L".equals(o.get("ticker")))))
+                .thenThrow(new LoggedOutException("Logged out: no tokens for clientCode=C1"));
+        doAnswer(inv -> {
+            TradingViewAlert a = inv.getArgument(0);
+            if ("S".equals(a.getTicker()) && a.getAlertStatus() == AlertStatus.ACCEPTED) throw new IllegalStateException("disk full");
+            return null;
+        }).when(alertService).update(any());
+        auto.arm(loggedIn());
+
+        TradingViewAlert failed = alert("e", "E");
+        TradingViewAlert saved = alert("s", "S");
+        listener.accept(failed);
+        listener.accept(saved);
+        awaitIdle();
+        assertEquals(AlertStatus.FAILED, failed.getAlertStatus());
+        assertEquals("Alert history unavailable", failed.getErrorMessage());
+        // placed with the broker, so it must not read as failed and be accepted again
+        assertEquals(AlertStatus.ACCEPTED, saved.getAlertStatus());
+        assertNull(saved.getErrorMessage());
+        assertTrue(auto.isArmed());
+
+        TradingViewAlert loggedOut = alert("l", "L");
+        listener.accept(loggedOut);
+        awaitIdle();
+        assertEquals("Logged out, auto-execution disarmed", loggedOut.getErrorMessage());
+        assertFalse(auto.isArmed());
+    }
+
+    @Test
+    void armingRequiresLogin() {
+        start();
+        assertThrows(IllegalStateException.class, () -> auto.arm(new MockHttpSession()));
+        assertFalse(auto.isArmed());
+    }
+
+    @Test
+    void acceptRacingAutoExecutionPlacesEachAlertOnce(@TempDir Path dir) throws Exception {
+        AlertService store = new AlertService(new LatencyMetrics(new SimpleMeterRegistry()),
+                50, 60_000, 1_000, false, false, dir.toString());
+        try {
+            stubOrders();
+            auto = new AutoExecutionService(store, orderService, new LatencyMetrics(new SimpleMeterRegistry()), true, 2);
+            auto.arm(loggedIn());
+            AlertWebController web = new AlertWebController(store, orderService, auto, mock(AlertNotificationService.class));
+
+            int n = 200;
+            for (int i = 0; i < n; i++) {
+                String id = "R-" + i;
+                // the click lands as soon as the alert is visible, while the listener is queueing it
+                Thread click = new Thread(() -> {
+                    while (store.findById(id).isEmpty()) Thread.yield();
+                    web.acceptAlert(id, loggedIn(), new RedirectAttributesModelMap());
+                });
+                click.start();
+                store.storeAll(List.of(alert(id, "R")));
+                click.join();
+            }
+            awaitIdle();
+
+            List<String> placed = placedByTicker.get("R");
+            assertEquals(n, placed.size());
+            assertEquals(n, new HashSet<>(placed).size());
+            assertTrue(alertsById.values().stream().allMatch(a -> a.getAlertStatus() == AlertStatus.ACCEPTED));
+        } finally {
+            store.shutdown();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+import com.algotrade.bot.model.Scrip;
+import com.algotrade.bot.model.TradingViewAlert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BacktesterTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long MIN = 60_000L;
+    private static final long OPEN = LocalDateTime.of(2025, 8, 18, 9, 15)
+            .atZone(ZoneId.of("Asia/Kolkata")).toInstant().toEpochMilli();
+
+    @TempDir
+    Path dir;
+
+    private final AlertService alertService = mock(AlertService.class);
+    private final InstrumentMasterService instruments = mock(InstrumentMasterService.class);
+    private final AlertOrderService orderService =
+            new AlertOrderService(mock(AngelOneService.class), instruments, mock(LatencyMetrics.class));
+    private final List<Backtester> backtesters = new ArrayList<>();
+
+    BacktesterTest() {
+        when(alertService.buildFromPayload(any(), anyMap(), any())).thenCallRealMethod();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backtesters.forEach(Backtester::shutdown);
+    }
+
+    private Backtester backtester(MarketDataStore store, int parallelism) {
+        Backtester b = new Backtester(alertService, orderService, store, instruments, 1, 0, 1, 0, parallelism);
+        backtesters.add(b);
+        return b;
+    }
+
+    // raised on the one-minute bar before the one it was received in, as TradingView sends them
+    private static TradingViewAlert alert(String ticker, AlertAction action, int qty, long receivedMillis) {
+        TradingViewAlert a = new TradingViewAlert();
+        a.setTicker(ticker);
+        a.setExchange("NSE");
+        a.setInterval("1");
+        a.setAlertAction(action);
+        a.setQuantity(qty);
+        a.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(receivedMillis), ZoneId.systemDefault()));
+        a.setTime(Instant.ofEpochMilli(receivedMillis - receivedMillis % MIN - MIN).toString());
+        return a;
+    }
+
+    private void symbol(String ticker, long token) {
+        when(instruments.resolve("NSE", ticker)).thenReturn(new Scrip("NSE", ticker, String.valueOf(token)));
+    }
+
+    @Test
+    void alertsFillAtTheNextBarOpenAndAreSquaredOffAtTheClose() {
+        MarketDataStore store = new MarketDataStore(dir, "Asia/Kolkata", 16, new int[]{1});
+        for (int day = 0; day < 2; day++)
+            for (int m = 0; m < 45; m++) {
+                long open = 100_00 + m * 10;
+                store.append(new Bar(1, 3045, 1, OPEN + day * DAY + m * MIN, open, open + 8, open - 2, open + 5, 100, 1));
+                if (day == 0) store.append(new Bar(1, 1594, 1, OPEN + m * MIN, open, open + 8, open - 2, open + 5, 100, 1));
+            }
+        symbol("SBIN-EQ", 3045);
+        symbol("INFY-EQ", 1594);
+        when(alertService.getRecentAlerts(anyInt())).thenReturn(List.of(
+                alert("SBIN-EQ", AlertAction.BUY, 10, OPEN + 5 * MIN + 30_000),  // fills at the 09:21 open, 100.60
+                alert("SBIN-EQ", AlertAction.SELL, 10, OPEN + 20 * MIN),         // 09:35 open, 102.00
+                alert("SBIN-EQ", AlertAction.BUY, 5, OPEN + 120 * MIN),          // after the last bar of the day
+                alert("INFY-EQ", AlertAction.BUY, 2, OPEN + MIN),                // 100.10, squared off at 104.45
+                alert("NOPE-EQ", AlertAction.BUY, 1, OPEN + MIN),
+                alert("SBIN-EQ", AlertAction.BUY, 1, OPEN + 3 * DAY)));          // outside the range
+
+        Backtester.Report r = backtester(store, 2).replayAlerts(OPEN, OPEN + 2 * DAY);
+
+        assertEquals(2, r.symbols());
+        assertEquals(1, r.unresolved());
+        assertEquals(4, r.orders());
+        assertEquals(3, r.fills());
+        assertEquals(1, r.unfilled());
+        assertEquals(1, r.squareOffs());
+        assertEquals(2, r.trades());
+        assertEquals(2, r.wins());
+        assertEquals(4.0, r.costs(), 1e-9);
+        assertEquals(14.0 + 8.70 - 4.0, r.netPnl(), 1e-9);
+        assertEquals(0.0, r.maxDrawdown(), 1e-9);
+        assertEquals(135, r.bars());
+        Backtester.SymbolResult sbin = r.bySymbol().stream().filter(s -> s.symbol().equals("NSE:SBIN-EQ")).findFirst().orElseThrow();
+        assertEquals(12.0, sbin.pnl(), 1e-9);
+        assertTrue(sbin.maxDrawdown() > 0);
+
+        // the bar time alone is not a fill time: the signal is known only once that bar closes
+        TradingViewAlert replayed = alert("SBIN-EQ", AlertAction.BUY, 1, OPEN + 6 * MIN);
+        replayed.setTimestamp(null);
+        replayed.setInterval("5");
+        assertEquals(OPEN + 10 * MIN, Backtester.alertMillis(replayed));
+    }
+
+    @Test
+    void strategyReplayIsTheSameSplitAcrossWorkersAsOnOne() {
+        MarketDataStore store = new MarketDataStore(dir, "Asia/Kolkata", 16, new int[]{1});
+        List<String> symbols = new ArrayList<>();
+        for (int s = 1; s <= 40; s++) {
+            symbols.add("S" + s + "-EQ");
+            symbol("S" + s + "-EQ", s);
+            for (int day = 0; day < 3; day++)
+                for (int m = 0; m < 375; m++) {
+                    long price = 1_000_00 + Math.round(2_000 * Math.sin((m + day * 375) / (10.0 + s)));
+                    store.append(new Bar(1, s, 1, OPEN + day * DAY + m * MIN, price, price + 50, price - 50, price + 10, 100, 1));
+                }
+        }
+        EmaCrossStrategy strategy = new EmaCrossStrategy(1, 5, 20, 14);
+
+        Backtester.Report parallel = backtester(store, 4).replayStrategy(strategy, "NSE", symbols, 3, OPEN, OPEN + 3 * DAY);
+        Backtester.Report sequential = backtester(store, 1).replayStrategy(strategy, "NSE", symbols, 3, OPEN, OPEN + 3 * DAY);
+
+        assertEquals(40 * 3 * 375, parallel.bars());
+        assertTrue(parallel.fills() > 40);
+        assertEquals(parallel.orders(), parallel.fills() + parallel.unfilled());
+        assertTrue(parallel.squareOffs() > 0);
+        assertEquals(sequential.bySymbol(), parallel.bySymbol());
+        assertEquals(sequential.netPnl(), parallel.netPnl(), 1e-6);
+        assertEquals(parallel.bySymbol().stream().mapToDouble(Backtester.SymbolResult::pnl).sum(), parallel.netPnl(), 1e-6);
+        assertTrue(parallel.maxDrawdown() >= 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> backtester(store, 1).replayStrategy(strategy, "NSE", List.of("NOPE-EQ"), 1, OPEN, OPEN + DAY));
+    }
+}
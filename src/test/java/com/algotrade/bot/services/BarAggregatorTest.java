@@ -0,0 +1,128 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Bar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarAggregatorTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long OPEN = LocalDateTime.of(2025, 8, 18, 9, 15)
+            .atZone(ZoneId.of("Asia/Kolkata")).toInstant().toEpochMilli();
+
+    // a grace of a year keeps the background sweep from closing these historical bars
+    private final BarAggregator bars = new BarAggregator("1,5,60", "09:15", "Asia/Kolkata", 365 * DAY, 16);
+    private final List<Bar> closed = new ArrayList<>();
+    private final Tick tick = new Tick();
+
+    BarAggregatorTest() {
+        bars.addListener(closed::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bars.shutdown();
+    }
+
+    private void tick(long token, long atMillis, long ltp, long cumVolume) {
+        tick.exchangeType = 1;
+        tick.token = token;
+        tick.exchangeTimeMillis = atMillis;
+        tick.ltp = ltp;
+        tick.volume = cumVolume;
+        tick.lastTradedQty = 10;
+        bars.onTick(tick);
+    }
+
+    private Bar closedBar(int interval) {
+        return closed.stream().filter(b -> b.intervalMinutes() == interval).findFirst().orElseThrow();
+    }
+
+    @Test
+    void buildsAlignedBarsAtEveryIntervalAndClosesThemOnTheNextBar() {
+        tick(3045, OPEN + 1_000, 81_000, 1_010);
+        tick(3045, OPEN + 20_000, 81_500, 1_200);
+        tick(3045, OPEN + 59_000, 80_800, 1_300);
+        assertTrue(closed.isEmpty());
+
+        // 09:16: closes the first 1m bar only
+        tick(3045, OPEN + 61_000, 80_900, 1_350);
+        assertEquals(1, closed.size());
+        Bar m1 = closedBar(1);
+        assertEquals(OPEN, m1.startMillis());
+        assertEquals(81_000, m1.open());
+        assertEquals(81_500, m1.high());
+        assertEquals(80_800, m1.low());
+        assertEquals(80_800, m1.close());
+        assertEquals(300, m1.volume()); // 1300 - (1010 - 10)
+        assertEquals(3, m1.ticks());
+
+        // 10:15 starts the second hourly bar: the first ran 09:15-10:15, not 09:00-10:00
+        tick(3045, OPEN + 3_600_000, 82_000, 5_000);
+        Bar h1 = closedBar(60);
+        assertEquals(OPEN, h1.startMillis());
+        assertEquals(OPEN + 3_600_000, h1.endMillis());
+        assertEquals(81_000, h1.open());
+        assertEquals(81_500, h1.high());
+        assertEquals(80_800, h1.low());
+        assertEquals(80_900, h1.close());
+        assertEquals(4, h1.ticks());
+        assertEquals(OPEN, closedBar(5).startMillis());
+
+        Bar forming = bars.current(1, 3045, 60);
+        assertEquals(OPEN + 3_600_000, forming.startMillis());
+        assertEquals(82_000, forming.close());
+        assertEquals(h1, bars.lastClosed(1, 3045, 60));
+        assertThrows(IllegalArgumentException.class, () -> bars.current(1, 3045, 15));
+    }
+
+    @Test
+    void sweepClosesQuietBarsLateTicksAreIgnoredAndTicksAllocateNothing() {
+        int symbols = 2_000;
+        for (int s = 1; s <= symbols; s++) tick(s, OPEN + 1_000, 10_000 + s, 0); // registers, may grow
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int round = 0; round < 20; round++)
+            for (int s = 1; s <= symbols; s++) tick(s, OPEN + 2_000 + round * 1_000, 10_000 + s + round, 0);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        assertTrue(allocated < 4_096, "allocated " + allocated + " bytes for " + 20 * symbols + " ticks");
+        assertTrue(closed.isEmpty());
+
+        // a minute and the grace period later, every 1m bar is closed without another tick
+        bars.sweep(OPEN + 60_000 + 365 * DAY);
+        assertEquals(symbols, closed.stream().filter(b -> b.intervalMinutes() == 1).count());
+        assertEquals(20, bars.lastClosed(1, 7, 1).ticks() - 1);
+
+        tick(7, OPEN + 30_000, 1, 0); // belongs to the closed 1m bar
+        assertEquals(1L, bars.stats().get("lateTicks"));
+        assertEquals(10_007, bars.lastClosed(1, 7, 1).low());
+    }
+
+    @Test
+    void volumeStartsAgainWithEachSession() {
+        tick(3045, OPEN + 1_000, 81_000, 1_010);
+        tick(3045, OPEN + 6 * 3_600_000, 81_200, 900_000); // 15:15, the day's last trades
+        // next morning the cumulative volume is back near zero
+        tick(3045, OPEN + DAY + 1_000, 81_300, 40);
+        tick(3045, OPEN + DAY + 30_000, 81_400, 250);
+        tick(3045, OPEN + DAY + 61_000, 81_500, 300);
+
+        Bar first = closed.stream().filter(b -> b.intervalMinutes() == 1 && b.startMillis() == OPEN + DAY)
+                .findFirst().orElseThrow();
+        assertEquals(250 - (40 - 10), first.volume());
+        assertTrue(closed.stream().allMatch(b -> b.volume() >= 0));
+
+        // a feed that restarts its count mid-bar: the bar keeps its volume and adds this trade
+        tick(3045, OPEN + DAY + 62_000, 81_500, 20);
+        assertEquals((300 - 250) + 10, bars.current(1, 3045, 1).volume());
+    }
+}
@@ -0,0 +1,111 @@
+package com.algotrade.bot.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.algotrade.bot.services.BrokerRateLimiter.Priority.ORDER;
+import static com.algotrade.bot.services.BrokerRateLimiter.Priority.QUERY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerRateLimiterTest {
+
+    private final LatencyMetrics metrics = new LatencyMetrics(new SimpleMeterRegistry());
+
+    @Test
+    void queuesOnceTheBurstIsSpentAndRejectsAfterMaxWait() {
+        BrokerRateLimiter limiter = new BrokerRateLimiter("test", Map.of("book", 10.0), 100, 0, 1_000, metrics);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) limiter.acquire("book", QUERY);
+        assertTrue(elapsedMillis(start) < 80, "burst should not wait");
+
+        limiter.acquire("book", QUERY);
+        assertTrue(elapsedMillis(start) >= 80, "11th call should wait for a refill");
+
+        // other endpoints are unaffected
+        long other = System.nanoTime();
+        limiter.acquire("ltp", QUERY);
+        assertTrue(elapsedMillis(other) < 80);
+
+        BrokerRateLimiter strict = new BrokerRateLimiter("test", Map.of("book", 1.0), 1, 0, 100, metrics);
+        strict.acquire("book", QUERY);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> strict.acquire("book", QUERY));
+        assertTrue(e.getMessage().contains("Rate limit"));
+        assertEquals(0, strict.queued());
+        assertEquals(1L, ((Map<?, ?>) metrics.snapshot().get("rateLimitRejected")).get("test/book/QUERY"));
+    }
+
+    @Test
+    void ordersOvertakeQueuedQueriesForTheGlobalBudget() throws Exception {
+        // one global token a second, already spent
+        BrokerRateLimiter limiter = new BrokerRateLimiter("test", Map.of(), 0, 1, 5_000, metrics);
+        limiter.acquire("book", QUERY);
+
+        List<String> served = new CopyOnWriteArrayList<>();
+        Thread query = Thread.ofVirtual().start(() -> {
+            limiter.acquire("book", QUERY);
+            served.add("query");
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (limiter.queued() < 1 && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(1, limiter.queued());
+        Thread order = Thread.ofVirtual().start(() -> {
+            limiter.acquire("placeOrder", ORDER);
+            served.add("order");
+        });
+        query.join(5_000);
+        order.join(5_000);
+
+        assertEquals(List.of("order", "query"), served);
+    }
+
+    @Test
+    void ordersOvertakeQueriesWithTheShippedLimits() throws Exception {
+        Properties p = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/application.properties")) {
+            p.load(in);
+        }
+        double global = Double.parseDouble(p.getProperty("angel.ratelimit.global"));
+        assertTrue(global > 0, "without a global cap the priority never applies");
+        BrokerRateLimiter limiter = new BrokerRateLimiter("test",
+                BrokerRateLimiter.parseRates(p.getProperty("angel.ratelimit.limits")),
+                Double.parseDouble(p.getProperty("angel.ratelimit.default")), global, 5_000, metrics);
+
+        // spend the global burst across endpoints that each still have tokens of their own
+        for (int i = 0; i < (int) global; i++) limiter.acquire("getLtpData" + i % 4, QUERY);
+
+        // ten queries queue for the global budget, half a second's worth; an order arriving behind them
+        // takes the next token
+        List<String> served = new CopyOnWriteArrayList<>();
+        List<Thread> queries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            queries.add(Thread.ofVirtual().start(() -> {
+                limiter.acquire("quote", QUERY);
+                served.add("query");
+            }));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (limiter.queued() + served.size() < 10 && System.nanoTime() < deadline) Thread.sleep(1);
+        Thread order = Thread.ofVirtual().start(() -> {
+            limiter.acquire("placeOrder", ORDER);
+            served.add("order");
+        });
+        for (Thread q : queries) q.join(5_000);
+        order.join(5_000);
+
+        assertEquals(11, served.size());
+        assertTrue(served.indexOf("order") <= 2, "order served at " + served.indexOf("order") + " of " + served);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
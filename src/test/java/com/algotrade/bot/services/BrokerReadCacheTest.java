@@ -0,0 +1,47 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerReadCacheTest {
+
+    private final BrokerReadCache cache = new BrokerReadCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Map<String, Object> book() {
+        return Map.of("status", true, "data", loads.incrementAndGet());
+    }
+
+    @Test
+    void servesWithinTtlAndReloadsAfterInvalidation() {
+        assertEquals(1, cache.get("C1", "orderBook", 60_000, this::book).get("data"));
+        assertEquals(1, cache.get("C1", "orderBook", 60_000, this::book).get("data"));
+        // per client
+        assertEquals(2, cache.get("C2", "orderBook", 60_000, this::book).get("data"));
+
+        cache.invalidate("C1", "orderBook");
+        assertEquals(3, cache.get("C1", "orderBook", 60_000, this::book).get("data"));
+        assertEquals(2, cache.get("C2", "orderBook", 60_000, this::book).get("data"));
+
+        // no client, no TTL, or a failed response: not cached
+        cache.get(null, "orderBook", 60_000, this::book);
+        cache.get("C1", "tradeBook", 0, this::book);
+        cache.get("C1", "rms", 60_000, () -> Map.of("status", false));
+        assertEquals(Map.of("status", false, "x", 1), cache.get("C1", "rms", 60_000, () -> Map.of("status", false, "x", 1)));
+        assertEquals(2L, cache.hits());
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        Map<String, Object> stale = cache.get("C1", "orderBook", 60_000, () -> {
+            cache.invalidate("C1");   // an order is accepted while the book is in flight
+            return book();
+        });
+        assertEquals(1, stale.get("data"));
+        assertEquals(2, cache.get("C1", "orderBook", 60_000, this::book).get("data"));
+    }
+}
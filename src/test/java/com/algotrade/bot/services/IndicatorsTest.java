@@ -0,0 +1,84 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicatorsTest {
+
+    private static double mean(double[] p, int end, int n) {
+        double s = 0;
+        for (int i = end - n + 1; i <= end; i++) s += p[i];
+        return s / n;
+    }
+
+    @Test
+    void streamingValuesMatchTheTextbookFormulasOverLongSeries() {
+        Random rnd = new Random(7);
+        int n = 5_000, period = 20;
+        double[] p = new double[n];
+        p[0] = 1_000;
+        for (int i = 1; i < n; i++) p[i] = p[i - 1] + rnd.nextGaussian() * 5;
+
+        Indicators.Sma sma = new Indicators.Sma(period);
+        Indicators.Ema ema = new Indicators.Ema(period);
+        Indicators.Bollinger bands = new Indicators.Bollinger(period, 2);
+        Indicators.Vwap vwap = new Indicators.Vwap();
+        double expectedEma = 0, pv = 0, vol = 0;
+        for (int i = 0; i < n; i++) {
+            sma.update(p[i]);
+            ema.update(p[i]);
+            bands.update(p[i]);
+            vwap.update(p[i], i % 7 + 1);
+            pv += p[i] * (i % 7 + 1);
+            vol += i % 7 + 1;
+            expectedEma = i < period ? mean(p, i, i + 1) : expectedEma + 2.0 / (period + 1) * (p[i] - expectedEma);
+            assertEquals(expectedEma, ema.value(), 1e-6);
+            assertEquals(pv / vol, vwap.value(), 1e-6);
+            if (i < period - 1) {
+                assertFalse(sma.ready());
+                continue;
+            }
+            double m = mean(p, i, period), var = 0;
+            for (int j = i - period + 1; j <= i; j++) var += (p[j] - m) * (p[j] - m);
+            double sd = Math.sqrt(var / period);
+            assertEquals(m, sma.value(), 1e-6);
+            assertEquals(m + 2 * sd, bands.upper(), 1e-6);
+            assertEquals(m - 2 * sd, bands.lower(), 1e-6);
+        }
+
+        // an update does a fixed amount of work and allocates nothing
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < n; i++) {
+            sma.update(p[i]);
+            ema.update(p[i]);
+            bands.update(p[i]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void rsiAndAtrFollowWilderSmoothing() {
+        Indicators.Rsi rsi = new Indicators.Rsi(3);
+        for (double price : new double[]{10, 11, 12, 13}) rsi.update(price);
+        assertTrue(rsi.ready());
+        assertEquals(100, rsi.value(), 1e-9);
+        // seed: gains 1,1,1 -> 1; then a loss of 3: gain 2/3, loss 1 -> RSI 40
+        rsi.update(10);
+        assertEquals(40, rsi.value(), 1e-9);
+
+        Indicators.Atr atr = new Indicators.Atr(2);
+        atr.update(12, 10, 11); // range 2
+        atr.update(15, 13, 14); // gap up from 11: true range 4
+        assertEquals(3, atr.value(), 1e-9);
+        assertTrue(atr.ready());
+        atr.update(14, 13, 13); // range 1, Wilder: (3 + 1) / 2
+        assertEquals(2, atr.value(), 1e-9);
+    }
+}
@@ -0,0 +1,86 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Instrument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentMasterFileTest {
+
+    private static final String MASTER = """
+            [
+              {"token":"3045","symbol":"SBIN-EQ","name":"SBIN","expiry":"","strike":"-1.000000","lotsize":"1","instrumenttype":"","exch_seg":"NSE","tick_size":"5.000000"},
+              {"token":"500112","symbol":"SBIN","name":"SBIN","expiry":"","strike":"-1.000000","lotsize":"1","instrumenttype":"","exch_seg":"BSE","tick_size":"5.000000"},
+              {"token":"99926000","symbol":"Nifty 50","name":"NIFTY","expiry":"","strike":"0.000000","lotsize":"1","instrumenttype":"AMXIDX","exch_seg":"NSE","tick_size":"0.000000"},
+              {"token":"2885","symbol":"RELIANCE-EQ","name":"RELIANCE INDUSTRIES","expiry":"","strike":"-1.000000","lotsize":"1","instrumenttype":"","exch_seg":"NSE","tick_size":"10.000000"},
+              {"token":"35001","symbol":"NIFTY28OCT2625000CE","name":"NIFTY","expiry":"28OCT2026","strike":"2500000.000000","lotsize":"75","instrumenttype":"OPTIDX","exch_seg":"NFO","tick_size":"5.000000"},
+              {"token":"1","symbol":"A-VERY-LONG-SYMBOL-THAT-DOES-NOT-FIT-IN-FORTY-BYTES","name":"X","lotsize":"1","exch_seg":"NSE"}
+            ]
+            """;
+
+    @TempDir
+    Path dir;
+
+    private InstrumentMasterFile convert(Set<String> exchanges) throws Exception {
+        Path out = dir.resolve("master.bin");
+        InstrumentMasterFile.convert(new ByteArrayInputStream(MASTER.getBytes(StandardCharsets.UTF_8)), exchanges, out);
+        return InstrumentMasterFile.open(out);
+    }
+
+    private static String token(InstrumentMasterFile f, String exchange, String symbol) {
+        int i = f.indexOf(exchange, symbol);
+        return i < 0 ? null : f.cursor().at(i).symboltoken();
+    }
+
+    @Test
+    void resolvesExactSymbolsAndAliasesCaseInsensitively() throws Exception {
+        InstrumentMasterFile f = convert(Set.of("NSE", "BSE"));
+        assertEquals(4, f.size());
+
+        assertEquals("3045", token(f, "nse", "SBIN-EQ"));
+        assertEquals("3045", token(f, "NSE", " sbin "));
+        assertEquals("500112", token(f, "BSE", "SBIN"));
+        assertEquals("99926000", token(f, "NSE", "NIFTY 50"));
+        assertEquals("2885", token(f, "NSE", "Reliance Industries"));
+
+        assertNull(token(f, "NSE", "NIFTY28OCT2625000CE"));
+        assertNull(token(f, "NSE", "UNKNOWN"));
+        assertNull(token(f, "NSE", "A-VERY-LONG-SYMBOL-THAT-DOES-NOT-FIT-IN-FORTY-BYTES"));
+        assertEquals(-1, InstrumentMasterFile.EMPTY.indexOf("NSE", "SBIN"));
+
+        Instrument sbin = f.cursor().at(f.indexOf("NSE", "SBIN")).toInstrument();
+        assertEquals(new Instrument("NSE", "SBIN-EQ", "3045", "SBIN", "", 1, 5.0), sbin);
+    }
+
+    @Test
+    void everyRecordIsFoundAfterSortingAndReopening() throws Exception {
+        List<Instrument> rows = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String exch = i % 3 == 0 ? "BSE" : i % 3 == 1 ? "NSE" : "NFO";
+            rows.add(new Instrument(exch, "SYM" + Integer.toString(i * 7919, 36) + (i % 2 == 0 ? "-EQ" : ""),
+                    String.valueOf(i), "Name " + i, "", 1 + i % 50, 5));
+        }
+        Path out = dir.resolve("bulk.bin");
+        InstrumentMasterFile.write(out, rows);
+        InstrumentMasterFile f = InstrumentMasterFile.open(out);
+
+        assertEquals(rows.size(), f.size());
+        InstrumentMasterFile.Cursor c = f.cursor();
+        for (Instrument r : rows) {
+            int i = f.indexOf(r.exchange(), r.tradingsymbol().toLowerCase());
+            assertTrue(i >= 0, r.tradingsymbol());
+            assertEquals(r.symboltoken(), c.at(i).symboltoken());
+            assertEquals(r.lotSize(), c.lotSize());
+        }
+        assertFalse(Files.exists(dir.resolve("bulk.bin.tmp")));
+    }
+}
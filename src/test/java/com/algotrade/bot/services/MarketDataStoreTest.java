@@ -0,0 +1,95 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Bar;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataStoreTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long OPEN = LocalDateTime.of(2025, 8, 18, 9, 15)
+            .atZone(ZoneId.of("Asia/Kolkata")).toInstant().toEpochMilli();
+
+    @TempDir
+    Path dir;
+
+    private MarketDataStore store(int tickRows) {
+        return new MarketDataStore(dir, "Asia/Kolkata", tickRows, new int[]{1, 5});
+    }
+
+    @Test
+    void barsAreSplitIntoDailySegmentsAndScannedByRange() {
+        MarketDataStore store = store(16);
+        for (int day = 0; day < 3; day++)
+            for (int m = 0; m < 375; m++) {
+                long start = OPEN + day * DAY + m * 60_000L;
+                for (long token : new long[]{3045, 2885})
+                    store.append(new Bar(1, token, 1, start, 100 + m, 110 + m, 90 + m, 105 + m, 1_000 + m, 7));
+            }
+        store.append(new Bar(1, 3045, 5, OPEN, 1, 2, 1, 2, 3, 4));
+        store.append(new Bar(1, 3045, 15, OPEN, 1, 2, 1, 2, 3, 4)); // not a stored interval
+
+        // last hour of day one through the first hour of day two
+        long from = OPEN + 315 * 60_000L, to = OPEN + DAY + 60 * 60_000L;
+        List<long[]> seen = new ArrayList<>();
+        long n = store.scanBars(1, 3045, 1, from, to, (start, o, h, l, c, v, ticks) -> seen.add(new long[]{start, o, v, ticks}));
+        assertEquals(120, n);
+        assertEquals(from, seen.get(0)[0]);
+        assertEquals(100 + 315, seen.get(0)[1]);
+        assertEquals(7, seen.get(0)[3]);
+        assertEquals(OPEN + DAY, seen.get(60)[0]);
+        assertEquals(1_000, seen.get(60)[2]);
+        for (int i = 1; i < seen.size(); i++) assertTrue(seen.get(i)[0] > seen.get(i - 1)[0]);
+
+        List<Bar> five = store.bars(1, 3045, 5, OPEN, OPEN + 30 * DAY);
+        assertEquals(List.of(new Bar(1, 3045, 5, OPEN, 1, 2, 1, 2, 3, 4)), five);
+        assertArrayEquals(new long[]{Tick.key(1, 2885), Tick.key(1, 3045)}, store.symbols(MarketDataStore.barSeries(1), OPEN, OPEN + DAY));
+        assertEquals(0, store.scanBars(1, 9999, 1, OPEN, OPEN + DAY, (s, o, h, l, c, v, t) -> fail()));
+        assertThrows(IllegalArgumentException.class, () -> store.scanBars(1, 3045, 15, OPEN, OPEN + DAY, (s, o, h, l, c, v, t) -> { }));
+    }
+
+    @Test
+    void tickSegmentsGrowSurviveARestartAndReadersSeeOnlyCommittedRows() throws Exception {
+        MarketDataStore store = store(16);
+        Tick tick = new Tick();
+        tick.exchangeType = 2;
+        tick.token = 35001;
+        tick.lastTradedQty = 50;
+        for (int i = 0; i < 100; i++) { // grows 16 -> 128 rows
+            tick.exchangeTimeMillis = OPEN + i * 10L;
+            tick.ltp = 20_000 + i;
+            tick.volume = 50L * (i + 1);
+            store.append(tick);
+        }
+        // a reader maps the segment while the writer keeps going
+        Path file = dir.resolve("2025-08-18").resolve("2-35001.ticks");
+        ColumnSegment reader = ColumnSegment.openReadOnly(file);
+        assertEquals(100, reader.rows());
+        assertEquals(128, reader.capacity());
+        assertEquals(20_099, reader.column(1).get(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.column(1).get(100));
+
+        store.shutdown();
+        MarketDataStore restarted = store(16);
+        tick.exchangeTimeMillis = OPEN + 5_000;
+        tick.ltp = 1;
+        restarted.append(tick);
+        long[] sum = new long[2];
+        long n = restarted.scanTicks(2, 35001, OPEN, OPEN + DAY, (t, ltp, qty, vol) -> {
+            sum[0] += ltp;
+            sum[1] = vol;
+        });
+        assertEquals(101, n);
+        assertEquals(100 * 20_000 + 4_950 + 1, sum[0]);
+        assertEquals(5_000, sum[1]);
+        assertEquals(101, ColumnSegment.openReadOnly(file).rows());
+    }
+}
@@ -0,0 +1,74 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.Quote;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QuoteServiceTest {
+
+    private final AngelOneService angel = mock(AngelOneService.class);
+    private final MockHttpSession session = new MockHttpSession();
+    private final QuoteService quotes = new QuoteService(angel, mock(InstrumentMasterService.class), 60_000, 50, 5_000);
+
+    QuoteServiceTest() {
+        session.setAttribute("clientCode", "C1");
+        // echoes every requested token back except "404", priced at the token's value
+        when(angel.getMarketQuote(any(), eq("LTP"), anyMap())).thenAnswer(inv -> {
+            Map<String, List<String>> tokens = inv.getArgument(2);
+            List<Map<String, Object>> fetched = new ArrayList<>();
+            tokens.forEach((exch, list) -> list.stream().filter(t -> !t.equals("404")).forEach(t ->
+                    fetched.add(Map.of("exchange", exch, "tradingSymbol", "S" + t, "symbolToken", t, "ltp", Double.parseDouble(t)))));
+            return Map.of("fetched", fetched, "unfetched", List.of());
+        });
+    }
+
+    @AfterEach
+    void stop() {
+        quotes.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void coalescesAndBatchesConcurrentRequests() throws Exception {
+        List<CompletableFuture<Quote>> sbin = new ArrayList<>();
+        for (int i = 0; i < 10; i++) sbin.add(quotes.ltp(session, "NSE", "3045"));
+        CompletableFuture<Quote> reliance = quotes.ltp(session, "nse", "2885");
+        CompletableFuture<Quote> bse = quotes.ltp(session, "BSE", "500112");
+        CompletableFuture<Quote> missing = quotes.ltp(session, "NSE", "404");
+
+        for (CompletableFuture<Quote> f : sbin) assertEquals(3045.0, f.get(5, TimeUnit.SECONDS).ltp());
+        assertEquals("S2885", reliance.get(5, TimeUnit.SECONDS).tradingsymbol());
+        assertEquals(500112.0, bse.get(5, TimeUnit.SECONDS).ltp());
+        assertThrows(Exception.class, () -> missing.get(5, TimeUnit.SECONDS));
+
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(angel, times(1)).getMarketQuote(any(), eq("LTP"), captor.capture());
+        Map<String, List<String>> sent = captor.getValue();
+        assertEquals(Set.of("3045", "2885", "404"), new HashSet<>(sent.get("NSE")));
+        assertEquals(List.of("500112"), sent.get("BSE"));
+
+        // fresh: from cache, no further call
+        assertEquals(3045.0, quotes.ltp(session, "NSE", "3045").get(1, TimeUnit.SECONDS).ltp());
+        verify(angel, times(1)).getMarketQuote(any(), any(), anyMap());
+        assertEquals(9L, quotes.stats().get("coalesced"));
+        assertEquals(1L, quotes.stats().get("cacheHits"));
+    }
+
+    @Test
+    void fullBatchGoesOutWithoutWaitingForTheWindow() throws Exception {
+        List<CompletableFuture<Quote>> all = new ArrayList<>();
+        for (int i = 1; i <= QuoteService.MAX_BATCH + 1; i++) all.add(quotes.ltp(session, "NSE", String.valueOf(i)));
+        for (CompletableFuture<Quote> f : all) f.get(5, TimeUnit.SECONDS);
+        verify(angel, times(2)).getMarketQuote(any(), any(), anyMap());
+    }
+}
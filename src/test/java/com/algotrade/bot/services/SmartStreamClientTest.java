@@ -0,0 +1,256 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SmartStreamClientTest {
+
+    private final StandInFeed feed = new StandInFeed();
+    private final TokenVault vault = new TokenVault(900_000, 3600);
+    private final SmartStreamClient client;
+    private final BlockingQueue<Tick> ticks = new LinkedBlockingQueue<>();
+
+    SmartStreamClientTest() throws IOException {
+        BrokerHttpTransport transport = mock(BrokerHttpTransport.class);
+        when(transport.httpClient()).thenReturn(HttpClient.newHttpClient());
+        client = new SmartStreamClient(transport, vault, "key", "ws://127.0.0.1:" + feed.port() + "/smart-stream", 2, 30, 200);
+        client.addHandler(t -> {
+            Tick copy = new Tick();
+            copy.copyFrom(t);
+            ticks.add(copy);
+        });
+        vault.put("C1", "jwt-1", "refresh-1", "feed-1");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.shutdown();
+        vault.shutdown();
+        feed.close();
+    }
+
+    private static byte[] frame(int mode, int exchangeType, String token, long seq, long ltp) {
+        ByteBuffer b = ByteBuffer.allocate(mode == Tick.LTP ? Tick.LTP_BYTES : Tick.QUOTE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        b.put((byte) mode).put((byte) exchangeType);
+        b.put(token.getBytes(StandardCharsets.US_ASCII));
+        b.putLong(27, seq).putLong(35, 1_755_488_700_000L).putLong(43, ltp);
+        if (mode >= Tick.QUOTE) {
+            b.putLong(51, 5).putLong(59, ltp - 10).putLong(67, 123_456)
+                    .putDouble(75, 1000.5).putDouble(83, 900.25)
+                    .putLong(91, ltp - 100).putLong(99, ltp + 50).putLong(107, ltp - 150).putLong(115, ltp - 80);
+        }
+        return b.array();
+    }
+
+    @Test
+    void subscribesWithFeedTokenAndDecodesFramesIntoTicks() throws Exception {
+        client.subscribe("NSE", List.of("3045", "2885"));
+        client.start("C1");
+
+        StandInFeed.Conn conn = feed.nextConnection();
+        assertEquals("feed-1", conn.headers.get("x-feed-token"));
+        assertEquals("C1", conn.headers.get("x-client-code"));
+        String sub = conn.nextText();
+        assertTrue(sub.contains("\"action\":1") && sub.contains("\"exchangeType\":1") && sub.contains("3045") && sub.contains("2885"), sub);
+
+        conn.sendBinary(frame(Tick.LTP, 1, "3045", 7, 81520), 0);
+        // split across two WebSocket frames, as a server may send a larger message
+        conn.sendBinary(frame(Tick.QUOTE, 1, "2885", 8, 291075), 60);
+
+        Tick ltp = ticks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(ltp);
+        assertEquals(Tick.LTP, ltp.mode);
+        assertEquals(3045, ltp.token);
+        assertEquals(7, ltp.sequence);
+        assertEquals(81520, ltp.ltp);
+        assertEquals(0, ltp.volume);
+
+        Tick quote = ticks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(quote);
+        assertEquals(2885, quote.token);
+        assertEquals(291075, quote.ltp);
+        assertEquals(123_456, quote.volume);
+        assertEquals(900.25, quote.totalSellQty);
+        assertEquals(291125, quote.high);
+
+        client.subscribe("NSE", List.of("3045", "1594"));
+        String more = conn.nextText();
+        assertTrue(more.contains("1594") && !more.contains("3045"), more);
+        assertEquals(2L, client.stats().get("ticks"));
+    }
+
+    @Test
+    void reconnectsAfterDropAndResubscribesEverything() throws Exception {
+        client.subscribe("NSE", List.of("3045"));
+        client.start("C1");
+        StandInFeed.Conn first = feed.nextConnection();
+        assertTrue(first.nextText().contains("3045"));
+
+        first.socket.close();
+        // subscribed while disconnected: goes out with the rest on reconnect
+        client.subscribe("NFO", List.of("35003"));
+
+        StandInFeed.Conn second = feed.nextConnection();
+        String sub = second.nextText();
+        assertTrue(sub.contains("3045") && sub.contains("35003"), sub);
+        second.sendBinary(frame(Tick.LTP, 2, "35003", 1, 2_450_000), 0);
+        assertEquals(35003, ticks.poll(5, TimeUnit.SECONDS).token);
+        assertEquals(2L, client.stats().get("connects"));
+        assertEquals(1L, client.stats().get("drops"));
+    }
+
+    /**
+     * Just enough of RFC 6455 to stand in for the broker: handshake, unmasked binary frames out,
+     * masked text frames in, and a reply to "ping".
+     */
+    static final class StandInFeed implements Closeable {
+
+        private final ServerSocket server = new ServerSocket(0);
+        private final BlockingQueue<Conn> connections = new LinkedBlockingQueue<>();
+        private final Thread acceptor;
+
+        StandInFeed() throws IOException {
+            acceptor = new Thread(this::accept, "stand-in-feed");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        Conn nextConnection() throws InterruptedException {
+            Conn c = connections.poll(10, TimeUnit.SECONDS);
+            assertNotNull(c, "no connection");
+            return c;
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Conn c = new Conn(server.accept());
+                    connections.add(c);
+                    Thread reader = new Thread(c::read, "stand-in-feed-conn");
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+        static final class Conn {
+            final Socket socket;
+            final Map<String, String> headers = new HashMap<>();
+            final BlockingQueue<String> texts = new LinkedBlockingQueue<>();
+            private final DataInputStream in;
+            private final OutputStream out;
+
+            Conn(Socket socket) throws Exception {
+                this.socket = socket;
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = socket.getOutputStream();
+                String line;
+                while ((line = readLine()) != null && !line.isEmpty()) {
+                    int i = line.indexOf(':');
+                    if (i > 0) headers.put(line.substring(0, i).trim().toLowerCase(), line.substring(i + 1).trim());
+                }
+                String accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1").digest(
+                        (headers.get("sec-websocket-key") + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.US_ASCII)));
+                write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+
+            private String readLine() throws IOException {
+                StringBuilder sb = new StringBuilder();
+                int c;
+                while ((c = in.read()) != -1 && c != '\n') if (c != '\r') sb.append((char) c);
+                return c == -1 && sb.isEmpty() ? null : sb.toString();
+            }
+
+            String nextText() throws InterruptedException {
+                String t = texts.poll(5, TimeUnit.SECONDS);
+                assertNotNull(t, "no text message");
+                return t;
+            }
+
+            /**
+             * @param splitAt send as two frames split here, or 0 for one frame
+             */
+            void sendBinary(byte[] payload, int splitAt) throws IOException {
+                if (splitAt <= 0) {
+                    frame(0x82, payload, 0, payload.length);
+                } else {
+                    frame(0x02, payload, 0, splitAt);
+                    frame(0x80, payload, splitAt, payload.length - splitAt);
+                }
+            }
+
+            private synchronized void frame(int first, byte[] payload, int off, int len) throws IOException {
+                ByteArrayOutputStream f = new ByteArrayOutputStream();
+                f.write(first);
+                if (len < 126) {
+                    f.write(len);
+                } else {
+                    f.write(126);
+                    f.write(len >> 8);
+                    f.write(len);
+                }
+                f.write(payload, off, len);
+                write(f.toByteArray());
+            }
+
+            private synchronized void write(byte[] bytes) throws IOException {
+                out.write(bytes);
+                out.flush();
+            }
+
+            void read() {
+                try {
+                    while (true) {
+                        int opcode = in.readUnsignedByte() & 0x0F;
+                        int len = in.readUnsignedByte() & 0x7F;
+                        if (len == 126) len = in.readUnsignedShort();
+                        else if (len == 127) len = (int) in.readLong();
+                        byte[] mask = new byte[4];
+                        in.readFully(mask);
+                        byte[] data = new byte[len];
+                        in.readFully(data);
+                        for (int i = 0; i < len; i++) data[i] ^= mask[i & 3];
+                        if (opcode == 8) {
+                            socket.close();
+                            return;
+                        }
+                        if (opcode == 1) {
+                            String text = new String(data, StandardCharsets.UTF_8);
+                            if (text.equals("ping")) frame(0x81, "pong".getBytes(StandardCharsets.UTF_8), 0, 4);
+                            else texts.add(text);
+                        }
+                    }
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+    }
+}
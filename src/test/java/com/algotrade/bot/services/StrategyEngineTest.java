@@ -0,0 +1,113 @@
+package com.algotrade.bot.services;
+
+import com.algotrade.bot.model.AlertAction;
+import com.algotrade.bot.model.Bar;
+import com.algotrade.bot.model.Scrip;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StrategyEngineTest {
+
+    private static final long T0 = 1_755_488_700_000L; // 2025-08-18 09:15 IST
+
+    private final AlertIngestionService ingestion = mock(AlertIngestionService.class);
+    private final InstrumentMasterService instruments = mock(InstrumentMasterService.class);
+    private final StrategyEngine engine = new StrategyEngine(ingestion, instruments, null, null, new int[]{1, 3, 5, 15, 60});
+
+    StrategyEngineTest() {
+        when(instruments.resolve("NSE", "SBIN-EQ")).thenReturn(new Scrip("NSE", "SBIN-EQ", "3045"));
+        when(ingestion.ingest(anyMap())).thenAnswer(inv -> new AlertIngestionService.IngestResult("a1", null, false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private static Bar bar(long token, int interval, int n, long close) {
+        long start = T0 + n * interval * 60_000L;
+        return new Bar(1, token, interval, start, close, close, close, close, 100, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> payloads(int expected) {
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ingestion, timeout(2_000).times(expected)).ingest(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    void emaCrossSignalsBecomeWebhookShapedAlerts() {
+        // RSI period longer than the run keeps its filter out of the way
+        engine.register(new EmaCrossStrategy(5, 2, 4, 50), "NSE", List.of("SBIN-EQ", "NOPE-EQ"), 3);
+        int n = 0;
+        for (long close = 100_00; close > 90_00; close -= 1_00) engine.onBar(bar(3045, 5, n++, close));
+        for (long close = 90_00; close < 100_00; close += 2_00) {
+            engine.onBar(bar(3045, 15, n, 1));   // another interval
+            engine.onBar(bar(9999, 5, n, 1));    // another symbol
+            engine.onBar(bar(3045, 5, n++, close));
+        }
+        int buyBar = n;
+        for (long close = 100_00; close > 80_00; close -= 3_00) engine.onBar(bar(3045, 5, n++, close));
+
+        List<Map<String, Object>> sent = payloads(2);
+        Map<String, Object> buy = sent.get(0);
+        assertEquals("SBIN-EQ", buy.get("ticker"));
+        assertEquals("NSE", buy.get("exchange"));
+        assertEquals("3045", buy.get("symboltoken"));
+        assertEquals("5", buy.get("interval"));
+        assertEquals("BUY", buy.get("action"));
+        assertEquals("3", buy.get("qty"));
+        assertEquals("strategy", buy.get("source"));
+        assertTrue(bar(3045, 5, buyBar, 0).startMillis() >= java.time.Instant.parse(buy.get("time").toString()).toEpochMilli());
+        assertEquals("SELL", sent.get(1).get("action"));
+        assertEquals(2L, engine.stats().get("ingested"));
+
+        // no bars are built for 7 minutes, so the strategy would never fire
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> engine.register(new EmaCrossStrategy(7, 2, 4, 50), "NSE", List.of("SBIN-EQ"), 1));
+        assertTrue(e.getMessage().contains("bars.intervals"));
+    }
+
+    @Test
+    void tickStrategiesSeeEveryTickAndUnknownSymbolsAreRejected() {
+        Strategy aboveVwap = new Strategy() {
+            public String name() { return "vwap-break"; }
+            public int intervalMinutes() { return 0; }
+            public Evaluator newEvaluator() {
+                Indicators.Vwap vwap = new Indicators.Vwap();
+                return new Evaluator() {
+                    public AlertAction onTick(Tick t) {
+                        double before = vwap.value();
+                        vwap.update(t.ltp, t.lastTradedQty);
+                        return t.ltp > before ? AlertAction.BUY : null;
+                    }
+                };
+            }
+        };
+        engine.register(aboveVwap, "NSE", List.of("SBIN-EQ"), 1);
+        Tick tick = new Tick();
+        tick.exchangeType = 1;
+        tick.token = 3045;
+        tick.lastTradedQty = 10;
+        for (long ltp : new long[]{100, 99, 98, 97, 120}) {
+            tick.ltp = ltp;
+            tick.exchangeTimeMillis = T0 + ltp;
+            engine.onTick(tick);
+        }
+        Map<String, Object> sent = payloads(1).get(0);
+        assertEquals("tick", sent.get("interval"));
+        assertEquals("vwap-break", sent.get("strategy"));
+        assertEquals(5L, engine.stats().get("ticksEvaluated"));
+
+        assertThrows(IllegalArgumentException.class, () -> engine.register(aboveVwap, "NSE", List.of("NOPE-EQ"), 1));
+    }
+}
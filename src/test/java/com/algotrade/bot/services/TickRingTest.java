@@ -0,0 +1,89 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickRingTest {
+
+    private final TickRing ring = new TickRing(64);
+
+    @AfterEach
+    void tearDown() {
+        ring.stop();
+    }
+
+    private static void awaitCursor(TickRing.Consumer c, long processed) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (c.processed() + c.dropped() < processed) {
+            assertTrue(System.nanoTime() < deadline, "consumer " + c.name + " stuck at " + c.processed());
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void criticalConsumersSeeEveryTickInOrderWhileALossyOneFallsBehind() throws Exception {
+        int n = 20_000;
+        AtomicLong orderErrors = new AtomicLong();
+        long[] last = {-1, -1};
+        TickRing.Consumer fast = ring.consume("fast", t -> {
+            if (t.sequence != last[0] + 1) orderErrors.incrementAndGet();
+            last[0] = t.sequence;
+        }, true, TickRing.WaitStrategy.YIELDING);
+        TickRing.Consumer slowCritical = ring.consume("slow-critical", t -> {
+            if (t.sequence != last[1] + 1) orderErrors.incrementAndGet();
+            last[1] = t.sequence;
+            if (t.sequence % 1000 == 0) Thread.onSpinWait();
+        }, true, TickRing.WaitStrategy.BLOCKING);
+        CountDownLatch release = new CountDownLatch(1);
+        TickRing.Consumer stuck = ring.consume("ui", t -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, false, TickRing.WaitStrategy.SLEEPING);
+
+        Tick tick = new Tick();
+        for (int i = 0; i < n; i++) {
+            tick.sequence = i;
+            tick.ltp = 100 + i;
+            ring.publish(tick);
+        }
+        awaitCursor(fast, n);
+        awaitCursor(slowCritical, n);
+
+        assertEquals(0, orderErrors.get());
+        assertEquals(n, fast.processed());
+        assertEquals(n, slowCritical.processed());
+        assertEquals(0, fast.dropped());
+        // the stuck consumer held no one up; once released it skips to the latest ring's worth
+        release.countDown();
+        awaitCursor(stuck, n);
+        assertTrue(stuck.dropped() > 0);
+        assertTrue(stuck.processed() <= ring.capacity() + 1);
+    }
+
+    @Test
+    void publishingAllocatesNothing() throws Exception {
+        TickRing.Consumer c = ring.consume("sum", t -> { }, true, TickRing.WaitStrategy.YIELDING);
+        Tick tick = new Tick();
+        for (int i = 0; i < 50_000; i++) ring.publish(tick); // warm up
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 100_000; i++) {
+            tick.sequence = i;
+            ring.publish(tick);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        awaitCursor(c, 150_000);
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+}
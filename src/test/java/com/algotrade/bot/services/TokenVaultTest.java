@@ -0,0 +1,119 @@
+package com.algotrade.bot.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVaultTest {
+
+    private final AtomicInteger refreshes = new AtomicInteger();
+    private TokenVault vault;
+
+    private static String jwt(long expSeconds, String nonce) {
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.UTF_8)) + '.'
+                + b64.encodeToString(("{\"sub\":\"C1\",\"n\":\"" + nonce + "\",\"exp\":" + expSeconds + "}").getBytes(StandardCharsets.UTF_8))
+                + ".sig";
+    }
+
+    private TokenVault start(long refreshAheadMs, long checkSeconds, long refreshMillis) {
+        vault = new TokenVault(refreshAheadMs, checkSeconds);
+        vault.setRefresher(current -> {
+            int n = refreshes.incrementAndGet();
+            try {
+                Thread.sleep(refreshMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long exp = System.currentTimeMillis() / 1000 + 86_400;
+            return new TokenVault.Tokens(current.clientCode(), jwt(exp, "r" + n), "refresh" + n, "feed", exp * 1000);
+        });
+        return vault;
+    }
+
+    @AfterEach
+    void stop() {
+        if (vault != null) vault.shutdown();
+    }
+
+    @Test
+    void readsExpiryFromTheJwt() {
+        assertEquals(1_700_000_000_000L, TokenVault.expiryOf(jwt(1_700_000_000L, "x")));
+        assertEquals(0, TokenVault.expiryOf("not-a-jwt"));
+        assertEquals(0, TokenVault.expiryOf(null));
+    }
+
+    @Test
+    void concurrentRefreshesForTheSameTokenCollapseIntoOne() throws Exception {
+        start(60_000, 3600, 100);
+        String stale = vault.put("C1", jwt(1, "old"), "refresh0", "feed").jwt();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<TokenVault.Tokens>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) results.add(pool.submit(() -> {
+            go.await();
+            return vault.refresh("C1", stale);
+        }));
+        go.countDown();
+        for (Future<TokenVault.Tokens> f : results) assertEquals("refresh1", f.get().refreshToken());
+        pool.shutdown();
+
+        assertEquals(1, refreshes.get());
+        // a caller still holding the old JWT gets the new one without another round trip
+        assertEquals("refresh1", vault.refresh("C1", stale).refreshToken());
+        assertEquals(1, refreshes.get());
+
+        assertThrows(RuntimeException.class, () -> vault.refresh("NOBODY", null));
+
+        // a logout while the broker call is in flight is not undone by its result
+        CompletableFuture<TokenVault.Tokens> inFlight = CompletableFuture.supplyAsync(() -> vault.refresh("C1", null));
+        while (refreshes.get() < 2) Thread.sleep(5);
+        vault.remove("C1");
+        assertThrows(ExecutionException.class, inFlight::get);
+        assertNull(vault.get("C1"));
+    }
+
+    @Test
+    void sessionTokensAreNotAdoptedBackAfterALogout() {
+        start(60_000, 3600, 0);
+        String first = jwt(1, "first");
+        assertEquals(first, vault.adopt("C1", first, "refresh0", "feed").jwt());
+        // the vault's tokens win over another session's copy
+        assertEquals(first, vault.adopt("C1", jwt(1, "other"), "refresh1", "feed").jwt());
+
+        vault.remove("C1");
+        assertNull(vault.adopt("C1", first, "refresh0", "feed"));
+        assertNull(vault.get("C1"));
+
+        String again = vault.put("C1", jwt(1, "again"), "refresh2", "feed").jwt();
+        assertEquals(again, vault.adopt("C1", first, "refresh0", "feed").jwt());
+    }
+
+    @Test
+    void refreshesAheadOfExpiryInTheBackground() throws Exception {
+        start(15 * 60_000, 1, 0);
+        vault.put("C1", jwt(System.currentTimeMillis() / 1000 + 60, "soon"), "refresh0", "feed");
+        vault.put("C2", jwt(System.currentTimeMillis() / 1000 + 86_400, "later"), "refresh0", "feed");
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (vault.get("C1").refreshToken().equals("refresh0") && System.currentTimeMillis() < deadline) Thread.sleep(20);
+
+        assertEquals("refresh1", vault.get("C1").refreshToken());
+        assertEquals("refresh0", vault.get("C2").refreshToken());
+        assertEquals(1, refreshes.get());
+    }
+}